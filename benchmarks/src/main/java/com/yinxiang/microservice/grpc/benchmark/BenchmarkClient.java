@@ -0,0 +1,22 @@
+package com.yinxiang.microservice.grpc.benchmark;
+
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcClient;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcMethod;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcParam;
+import com.yinxiang.microservice.grpc.test.BenchmarkServiceGrpc;
+import com.yinxiang.microservice.grpc.test.QueryReply;
+import com.yinxiang.microservice.grpc.test.QueryRequest;
+
+/**
+ * The client of {@link BenchmarkServiceGrpc}, implemented by BenchmarkClient_GrpcClient which is generated at build
+ * time by GrpcClientProcessor.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@GrpcClient(stub = BenchmarkServiceGrpc.BenchmarkServiceBlockingStub.class)
+public interface BenchmarkClient {
+  QueryReply query(QueryRequest request);
+  QueryReply query(@GrpcParam(param = "id") long id, @GrpcParam(param = "keyword") String keyword);
+  @GrpcMethod(method = "query", safe = true)
+  QueryReply safeQuery(QueryRequest request);
+}
@@ -0,0 +1,115 @@
+package com.yinxiang.microservice.grpc.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import com.yinxiang.microservice.grpc.autoconfigure.GrpcServerProperties;
+import com.yinxiang.microservice.grpc.inject.config.GrpcServiceConfig;
+import com.yinxiang.microservice.grpc.inject.factories.GrpcClientCreator;
+import com.yinxiang.microservice.grpc.test.BenchmarkServiceGrpc;
+import com.yinxiang.microservice.grpc.test.QueryReply;
+import com.yinxiang.microservice.grpc.test.QueryRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the proxy generated by GrpcClientProxyFactory, call an in-process server.
+ * The blocking stub is the baseline, the difference is the cost of proxy.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientProxyBenchmark {
+  /** The name of in-process server. */
+  private static final String SERVER_NAME = "benchmark";
+
+  /** The count of items in reply. */
+  @Param({"1", "100"})
+  private int items;
+
+  /** The in-process server. */
+  private Server server;
+  /** The channel of stub. */
+  private ManagedChannel channel;
+  /** The blocking stub. */
+  private BenchmarkServiceGrpc.BenchmarkServiceBlockingStub stub;
+  /** The proxy. */
+  private BenchmarkClient client;
+  /** The request. */
+  private QueryRequest request;
+
+  @Setup
+  public void setup() throws Exception {
+    server = InProcessServerBuilder.forName(SERVER_NAME)
+            .directExecutor()
+            .addService(new Fixtures.Service(Fixtures.createReply(items)))
+            .build()
+            .start();
+    channel = InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build();
+    stub = BenchmarkServiceGrpc.newBlockingStub(channel);
+    client = new Creator().create();
+    request = Fixtures.createRequest();
+  }
+
+  @TearDown
+  public void tearDown() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Benchmark
+  public QueryReply stub() {
+    return stub.query(request);
+  }
+
+  @Benchmark
+  public QueryReply proxy() {
+    return client.query(request);
+  }
+
+  @Benchmark
+  public QueryReply proxyWithParams() {
+    return client.query(request.getId(), request.getKeyword());
+  }
+
+  @Benchmark
+  public QueryReply safeProxy() {
+    return client.safeQuery(request);
+  }
+
+  /** The creator of {@link BenchmarkClient}, all channels are in-process. */
+  static class Creator extends GrpcClientCreator<BenchmarkClient> {
+    Creator() {
+      super(BenchmarkClient.class);
+      GrpcServiceConfig config = new GrpcServiceConfig();
+      config.setName("grpc.test");
+      GrpcServerProperties properties = new GrpcServerProperties();
+      properties.setServices(ImmutableMap.of(SERVER_NAME, config));
+      setGrpcServerProperties(properties);
+    }
+
+    @Override
+    protected Class getStubClass() {
+      return BenchmarkServiceGrpc.BenchmarkServiceBlockingStub.class;
+    }
+
+    @Override
+    protected String getLogMethod() {
+      return "_log";
+    }
+
+    @Override
+    protected ManagedChannelBuilder<?> newChannelBuilder(String target, GrpcServiceConfig config) {
+      return InProcessChannelBuilder.forName(SERVER_NAME).directExecutor();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.yinxiang.microservice.grpc.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.googlecode.protobuf.format.JsonFormat;
+import com.yinxiang.microservice.grpc.controller.BaseGrpcController;
+import com.yinxiang.microservice.grpc.inject.Marshaller;
+import com.yinxiang.microservice.grpc.test.BenchmarkServiceGrpc;
+import com.yinxiang.microservice.grpc.test.QueryRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link BaseGrpcController}'s _process: merge the json request, run the headers interceptor and
+ * the service, print the json reply.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+  /** The count of items in reply. */
+  @Param({"10", "100"})
+  private int items;
+
+  /** The controller. */
+  private Controller controller;
+  /** The json of request. */
+  private String json;
+  /** The UTF-8 bytes of request. */
+  private byte[] bytes;
+
+  @Setup
+  public void setup() throws Exception {
+    controller = new Controller(new Fixtures.Service(Fixtures.createReply(items)));
+    json = Marshaller.toJson(Fixtures.createRequest());
+    bytes = json.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public String process() throws JsonFormat.ParseException {
+    return controller.query(json);
+  }
+
+  @Benchmark
+  public String processStream() throws IOException {
+    return controller.query(new ByteArrayInputStream(bytes));
+  }
+
+  /** The controller of {@link BenchmarkServiceGrpc}, with the headers interceptor. */
+  static class Controller extends BaseGrpcController {
+    /** The service. */
+    private final Fixtures.Service service;
+
+    Controller(Fixtures.Service service) throws Exception {
+      this.service = service;
+      setInterceptors(ImmutableList.of(new Fixtures.HeadersInterceptor()));
+    }
+
+    String query(String json) throws JsonFormat.ParseException {
+      return _process(json, Fixtures.HTTP_HEADERS, QueryRequest.newBuilder(), service::query,
+              BenchmarkServiceGrpc.getQueryMethod());
+    }
+
+    String query(ByteArrayInputStream stream) throws IOException {
+      return _process(stream, Fixtures.HTTP_HEADERS, QueryRequest.newBuilder(), service::query,
+              BenchmarkServiceGrpc.getQueryMethod());
+    }
+  }
+}
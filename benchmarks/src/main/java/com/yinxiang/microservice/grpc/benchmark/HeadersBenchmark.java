@@ -0,0 +1,121 @@
+package com.yinxiang.microservice.grpc.benchmark;
+
+import com.yinxiang.grpc.http.Headers;
+import com.yinxiang.grpc.http.HeadersFilter;
+import com.yinxiang.microservice.grpc.test.BenchmarkServiceGrpc;
+import com.yinxiang.microservice.grpc.test.QueryRequest;
+import io.grpc.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.yinxiang.microservice.grpc.inject.header.StubHeadersProcessor.createMetadata;
+
+/**
+ * Benchmarks of the headers interceptor: filter headers from metadata with and without cookies, and merge the
+ * reference fields of headers into a request.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadersBenchmark {
+  /** The interceptor. */
+  private Fixtures.HeadersInterceptor interceptor;
+  /** Metadata with all headers. */
+  private Metadata metadata;
+  /** Metadata which authorization is only in cookie. */
+  private Metadata cookieMetadata;
+  /** Filter without cookie. */
+  private HeadersFilter filter;
+  /** Filter with cookie, the default of proto. */
+  private HeadersFilter cookieFilter;
+  /** The listener which merges reference fields of headers. */
+  private ServerCall.Listener<QueryRequest> listener;
+  /** The request. */
+  private QueryRequest request;
+  /** The request after merge. */
+  private QueryRequest merged;
+
+  @Setup
+  public void setup() throws Exception {
+    interceptor = new Fixtures.HeadersInterceptor();
+    metadata = createMetadata(Fixtures.HTTP_HEADERS);
+    cookieMetadata = createMetadata(Fixtures.HTTP_HEADERS);
+    cookieMetadata.removeAll(Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER));
+    cookieMetadata.put(Metadata.Key.of("cookie", Metadata.ASCII_STRING_MARSHALLER), Fixtures.COOKIE);
+    filter = HeadersFilter.newBuilder().setCOOKIE(false).build();
+    cookieFilter = HeadersFilter.getDefaultInstance();
+    request = Fixtures.createRequest();
+    listener = interceptor.interceptCall(new NoopServerCall<>(BenchmarkServiceGrpc.getQueryMethod()), metadata,
+            (call, headers) -> new ServerCall.Listener<QueryRequest>() {
+              @Override
+              public void onMessage(QueryRequest message) {
+                merged = message;
+              }
+            });
+    // fail fast if a fixture is wrong
+    listener.onMessage(request);
+    if (!merged.getAuthorization().equals(Fixtures.AUTHORIZATION) || !merged.hasHeaders()) {
+      throw new IllegalStateException("reference fields are not merged: " + merged.getHeaders());
+    }
+    if (!interceptor.filter(cookieMetadata, cookieFilter).getValue().getAUTHORIZATION().equals(Fixtures.AUTHORIZATION)) {
+      throw new IllegalStateException("authorization is not read from cookie");
+    }
+  }
+
+  @Benchmark
+  public Headers filterHeaders() {
+    return interceptor.filter(metadata, filter).getValue();
+  }
+
+  @Benchmark
+  public Headers filterHeadersWithCookie() {
+    return interceptor.filter(cookieMetadata, cookieFilter).getValue();
+  }
+
+  @Benchmark
+  public QueryRequest mergeReferenceFields() {
+    listener.onMessage(request);
+    return merged;
+  }
+
+  /**
+   * A ServerCall only with the methodDescriptor.
+   * @param <T> request type
+   * @param <R> response type
+   */
+  static class NoopServerCall<T, R> extends ServerCall<T, R> {
+    private final MethodDescriptor<T, R> methodDescriptor;
+
+    NoopServerCall(MethodDescriptor<T, R> methodDescriptor) {
+      this.methodDescriptor = methodDescriptor;
+    }
+
+    @Override
+    public void request(int numMessages) {}
+
+    @Override
+    public void sendHeaders(Metadata headers) {}
+
+    @Override
+    public void sendMessage(R message) {}
+
+    @Override
+    public void close(Status status, Metadata trailers) {}
+
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+
+    @Override
+    public MethodDescriptor<T, R> getMethodDescriptor() {
+      return methodDescriptor;
+    }
+  }
+}
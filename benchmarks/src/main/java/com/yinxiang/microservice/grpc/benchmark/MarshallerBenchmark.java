@@ -0,0 +1,99 @@
+package com.yinxiang.microservice.grpc.benchmark;
+
+import com.googlecode.protobuf.format.JsonFormat;
+import com.yinxiang.microservice.grpc.codec.CompiledJsonCodec;
+import com.yinxiang.microservice.grpc.codec.JsonCodec;
+import com.yinxiang.microservice.grpc.codec.JsonCodecs;
+import com.yinxiang.microservice.grpc.codec.LegacyJsonCodec;
+import com.yinxiang.microservice.grpc.inject.Marshaller;
+import com.yinxiang.microservice.grpc.test.QueryReply;
+import com.yinxiang.microservice.grpc.test.QueryRequest;
+import com.yinxiang.microservice.grpc.test.SearchType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link Marshaller}: message - json and message - plain object.
+ * Every suite runs with {@link CompiledJsonCodec} and {@link LegacyJsonCodec}, the codec before 1.0.8.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarshallerBenchmark {
+  /** The count of items in reply. */
+  @Param({"10", "100"})
+  private int items;
+  /** The json codec, compiled or legacy. */
+  @Param({"compiled", "legacy"})
+  private String codec;
+
+  /** The request. */
+  private QueryRequest request;
+  /** The reply. */
+  private QueryReply reply;
+  /** The json of reply. */
+  private String replyJson;
+  /** The plain object of request. */
+  private Query query;
+  /** The codec before setup. */
+  private JsonCodec original;
+
+  @Setup
+  public void setup() {
+    original = JsonCodecs.get();
+    JsonCodecs.set("legacy".equals(codec) ? new LegacyJsonCodec() : new CompiledJsonCodec());
+    request = Fixtures.createRequest();
+    reply = Fixtures.createReply(items);
+    replyJson = Marshaller.toJson(reply);
+    query = Marshaller.toObject(request, Query.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    JsonCodecs.set(original);
+  }
+
+  @Benchmark
+  public String toJson() {
+    return Marshaller.toJson(reply);
+  }
+
+  @Benchmark
+  public QueryReply.Builder fromJson() throws JsonFormat.ParseException {
+    return Marshaller.fromJson(QueryReply.newBuilder(), replyJson);
+  }
+
+  @Benchmark
+  public Query toObject() {
+    return Marshaller.toObject(request, Query.class);
+  }
+
+  @Benchmark
+  public QueryRequest.Builder fromObject() {
+    return Marshaller.fromObjectButNot(QueryRequest.newBuilder(), query);
+  }
+
+  /** A plain object of {@link QueryRequest}. */
+  public static class Query {
+    long id;
+    String keyword;
+    List<String> tags;
+    List<Filter> filters;
+    SearchType type;
+  }
+
+  /** A plain object of {@link com.yinxiang.microservice.grpc.test.QueryFilter}. */
+  public static class Filter {
+    String field;
+    String value;
+    double boost;
+    boolean negate;
+  }
+}
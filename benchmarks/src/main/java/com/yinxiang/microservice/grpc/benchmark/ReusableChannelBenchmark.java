@@ -0,0 +1,77 @@
+package com.yinxiang.microservice.grpc.benchmark;
+
+import com.yinxiang.microservice.grpc.inject.channels.ReusableChannel;
+import com.yinxiang.microservice.grpc.test.BenchmarkServiceGrpc;
+import com.yinxiang.microservice.grpc.test.QueryReply;
+import com.yinxiang.microservice.grpc.test.QueryRequest;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ReusableChannel#newCall} under contention, every thread creates calls from one shared channel.
+ * The calls are never started, so no server is needed. The plain channel is the baseline, and the group of rebuild
+ * measures calls while another thread keeps shutting down the delegate.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ReusableChannelBenchmark {
+  /** The address of a server which is never connected. */
+  private static final String ADDRESS = "localhost:50051";
+  /** The cpu tokens between two shutdowns. */
+  private static final long SHUTDOWN_INTERVAL = 100_000;
+
+  /** The reusable channel. */
+  private ReusableChannel reusableChannel;
+  /** The plain channel. */
+  private ManagedChannel channel;
+
+  @Setup
+  public void setup() {
+    reusableChannel = new ReusableChannel(ADDRESS);
+    channel = ManagedChannelBuilder.forTarget(ADDRESS).usePlaintext().build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    reusableChannel.shutdownNow();
+    channel.shutdownNow();
+  }
+
+  @Benchmark
+  public ClientCall<QueryRequest, QueryReply> newCall() {
+    return reusableChannel.newCall(BenchmarkServiceGrpc.getQueryMethod(), CallOptions.DEFAULT);
+  }
+
+  @Benchmark
+  public ClientCall<QueryRequest, QueryReply> newCallOfPlainChannel() {
+    return channel.newCall(BenchmarkServiceGrpc.getQueryMethod(), CallOptions.DEFAULT);
+  }
+
+  @Benchmark
+  @Group("rebuild")
+  @GroupThreads(7)
+  public ClientCall<QueryRequest, QueryReply> newCallWhileRebuilding() {
+    return reusableChannel.newCall(BenchmarkServiceGrpc.getQueryMethod(), CallOptions.DEFAULT);
+  }
+
+  @Benchmark
+  @Group("rebuild")
+  @GroupThreads(1)
+  public ManagedChannel shutdown() {
+    Blackhole.consumeCPU(SHUTDOWN_INTERVAL);
+    return reusableChannel.shutdownNow();
+  }
+}
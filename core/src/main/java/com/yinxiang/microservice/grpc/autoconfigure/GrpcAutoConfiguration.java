@@ -5,9 +5,15 @@ import com.yinxiang.microservice.grpc.GrpcServerBuilderConfigurer;
 import com.yinxiang.microservice.grpc.GrpcServerRunner;
 import com.yinxiang.microservice.grpc.GrpcService;
 import com.yinxiang.microservice.grpc.context.LocalRunningGrpcPort;
+import com.yinxiang.microservice.grpc.controller.HttpTranscodingRegistrar;
+import com.yinxiang.microservice.grpc.transport.DomainSockets;
+import com.yinxiang.microservice.grpc.transport.GrpcTransportResources;
+import com.yinxiang.microservice.grpc.transport.NettyTransport;
 import io.grpc.ServerBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyServerBuilder;
 import io.grpc.services.HealthStatusManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -17,6 +23,12 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.google.common.base.Preconditions.checkState;
+
 @AutoConfigureOrder
 @ConditionalOnBean(annotation = GrpcService.class)
 @EnableConfigurationProperties(GrpcServerProperties.class)
@@ -32,8 +44,19 @@ public class GrpcAutoConfiguration {
 
   @Bean
   @ConditionalOnProperty(value = "grpc.enabled", havingValue = "true", matchIfMissing = true)
-  public GrpcServerRunner grpcServerRunner(GrpcServerBuilderConfigurer configurer) {
-    return new GrpcServerRunner(configurer, ServerBuilder.forPort(port));
+  public GrpcServerRunner grpcServerRunner(
+          GrpcServerBuilderConfigurer configurer,
+          ObjectProvider<GrpcTransportResources> transportResources
+  ) {
+    GrpcTransportResources resources = transportResources.getIfAvailable();
+    if (resources == null) {
+      return new GrpcServerRunner(configurer, ServerBuilder.forPort(port));
+    }
+    return new GrpcServerRunner(configurer, NettyServerBuilder.forPort(port)
+            .bossEventLoopGroup(resources.getBossGroup())
+            .workerEventLoopGroup(resources.getWorkerGroup())
+            .channelType(resources.getServerChannelType())
+            .executor(resources.getExecutor()));
   }
 
   @Bean
@@ -42,6 +65,31 @@ public class GrpcAutoConfiguration {
     return new GrpcServerRunner(configurer, InProcessServerBuilder.forName(grpcServerProperties.getInProcessServerName()));
   }
 
+  @Bean
+  @ConditionalOnExpression("#{environment.getProperty('grpc.unixSocketPath','')!=''}")
+  public GrpcServerRunner grpcUnixSocketServerRunner(
+          GrpcServerBuilderConfigurer configurer,
+          ObjectProvider<GrpcTransportResources> transportResources
+  ) throws IOException {
+    GrpcTransportResources resources = transportResources.getIfAvailable();
+    checkState(resources != null && resources.getTransport() == NettyTransport.EPOLL,
+            "grpc.unixSocketPath needs the shared epoll transport.");
+    Path path = Paths.get(grpcServerProperties.getUnixSocketPath());
+    // the socket file left by the last process can not be bound, a live one or another file fails
+    DomainSockets.deleteStale(path, resources.getWorkerGroup());
+    return new GrpcServerRunner(configurer, NettyServerBuilder.forAddress(DomainSockets.newAddress(path.toString()))
+            .bossEventLoopGroup(resources.getBossGroup())
+            .workerEventLoopGroup(resources.getWorkerGroup())
+            .channelType(DomainSockets.getServerChannelType())
+            .executor(resources.getExecutor()));
+  }
+
+  @Bean
+  @ConditionalOnProperty(value = "grpc.enableTranscoding", havingValue = "true")
+  public HttpTranscodingRegistrar httpTranscodingRegistrar() {
+    return new HttpTranscodingRegistrar();
+  }
+
   @Bean
   public HealthStatusManager healthStatusManager() {
     return new HealthStatusManager();
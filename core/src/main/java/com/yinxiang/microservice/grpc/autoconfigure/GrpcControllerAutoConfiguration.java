@@ -0,0 +1,26 @@
+package com.yinxiang.microservice.grpc.autoconfigure;
+
+import com.yinxiang.microservice.grpc.controller.BaseGrpcController;
+import com.yinxiang.microservice.grpc.controller.HandlerMethodBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Bind the handler method to every request of spring mvc when there is a {@link BaseGrpcController}.
+ * @see HandlerMethodBinder
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnBean(BaseGrpcController.class)
+public class GrpcControllerAutoConfiguration implements WebMvcConfigurer {
+  @Override
+  public void addInterceptors(@NonNull InterceptorRegistry registry) {
+    registry.addInterceptor(new HandlerMethodBinder());
+  }
+}
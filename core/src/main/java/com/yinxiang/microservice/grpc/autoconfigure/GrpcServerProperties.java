@@ -9,7 +9,7 @@ import java.util.Set;
 @ConfigurationProperties("grpc")
 public class GrpcServerProperties {
   public static final int DEFAULT_GRPC_PORT = 9090;
-  private static final int DEFAULT_MAX_IN_BOUND_MESSAGE_SIZE = 4 * 1024 * 1024;
+  public static final int DEFAULT_MAX_IN_BOUND_MESSAGE_SIZE = 4 * 1024 * 1024;
 
   /**
    * gRPC server port
@@ -31,15 +31,32 @@ public class GrpcServerProperties {
    */
   private String inProcessServerName;
 
+  /**
+   * The path of an unix domain socket which the server also listens on, for the clients on the same host.
+   * Needs the shared epoll transport.
+   */
+  private String unixSocketPath;
+
   /**
    * Enables server reflection using <a href="https://github.com/grpc/grpc-java/blob/master/documentation/server-reflection-tutorial.md">ProtoReflectionService</a>.
    * Available only from gRPC 1.3 or higher.
    */
   private boolean enableReflection = false;
 
+  /**
+   * Enables http routes of the google.api.http options of all bound services.
+   * The path of the yinxiang.grpc.http.url option of a service is the prefix of its routes.
+   */
+  private boolean enableTranscoding = false;
+
   private Map<String, GrpcServiceConfig> services;
   private Map<String, Set<String>> headerNames;
 
+  /**
+   * The transport resources shared by the server and all channels.
+   */
+  private Transport transport = new Transport();
+
   public int getPort() {
     return port;
   }
@@ -64,6 +81,14 @@ public class GrpcServerProperties {
     this.inProcessServerName = inProcessServerName;
   }
 
+  public String getUnixSocketPath() {
+    return unixSocketPath;
+  }
+
+  public void setUnixSocketPath(String unixSocketPath) {
+    this.unixSocketPath = unixSocketPath;
+  }
+
   public boolean isEnableReflection() {
     return enableReflection;
   }
@@ -72,6 +97,14 @@ public class GrpcServerProperties {
     this.enableReflection = enableReflection;
   }
 
+  public boolean isEnableTranscoding() {
+    return enableTranscoding;
+  }
+
+  public void setEnableTranscoding(boolean enableTranscoding) {
+    this.enableTranscoding = enableTranscoding;
+  }
+
   public Map<String, GrpcServiceConfig> getServices() {
     return services;
   }
@@ -95,5 +128,82 @@ public class GrpcServerProperties {
   public void setMaxInboundMessageSize(int maxInboundMessageSize) {
     this.maxInboundMessageSize = maxInboundMessageSize;
   }
-}
 
+  public Transport getTransport() {
+    return transport;
+  }
+
+  public void setTransport(Transport transport) {
+    this.transport = transport;
+  }
+
+  /**
+   * Config of the shared transport resources.
+   */
+  public static class Transport {
+    /**
+     * Share one boss, one group of worker event loops and one executor between the server and all channels.
+     */
+    private boolean shared = true;
+
+    /**
+     * Use the native epoll transport when netty-transport-native-epoll is on the classpath and available.
+     */
+    private boolean preferNative = true;
+
+    /**
+     * The count of worker event loop threads, 0 is the default of netty.
+     */
+    private int workerThreads;
+
+    /**
+     * The count of executor threads of application callbacks.
+     */
+    private int executorThreads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * The capacity of queue of executor, the callback runs on the calling thread when it is full.
+     */
+    private int executorQueueSize = 10000;
+
+    public boolean isShared() {
+      return shared;
+    }
+
+    public void setShared(boolean shared) {
+      this.shared = shared;
+    }
+
+    public boolean isPreferNative() {
+      return preferNative;
+    }
+
+    public void setPreferNative(boolean preferNative) {
+      this.preferNative = preferNative;
+    }
+
+    public int getWorkerThreads() {
+      return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+      this.workerThreads = workerThreads;
+    }
+
+    public int getExecutorThreads() {
+      return executorThreads;
+    }
+
+    public void setExecutorThreads(int executorThreads) {
+      this.executorThreads = executorThreads;
+    }
+
+    public int getExecutorQueueSize() {
+      return executorQueueSize;
+    }
+
+    public void setExecutorQueueSize(int executorQueueSize) {
+      this.executorQueueSize = executorQueueSize;
+    }
+  }
+}
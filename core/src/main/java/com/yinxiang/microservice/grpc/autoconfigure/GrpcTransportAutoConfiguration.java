@@ -0,0 +1,28 @@
+package com.yinxiang.microservice.grpc.autoconfigure;
+
+import com.yinxiang.microservice.grpc.transport.GrpcTransportResources;
+import com.yinxiang.microservice.grpc.transport.NettyTransport;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Create the {@link GrpcTransportResources} shared by the server and all channels, unless grpc.transport.shared
+ * is false.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@Configuration
+@EnableConfigurationProperties(GrpcServerProperties.class)
+@ConditionalOnProperty(value = "grpc.transport.shared", havingValue = "true", matchIfMissing = true)
+public class GrpcTransportAutoConfiguration {
+  @Bean
+  @ConditionalOnMissingBean(GrpcTransportResources.class)
+  public GrpcTransportResources grpcTransportResources(GrpcServerProperties grpcServerProperties) {
+    GrpcServerProperties.Transport transport = grpcServerProperties.getTransport();
+    return new GrpcTransportResources(NettyTransport.detect(transport.isPreferNative()),
+            transport.getWorkerThreads(), transport.getExecutorThreads(), transport.getExecutorQueueSize());
+  }
+}
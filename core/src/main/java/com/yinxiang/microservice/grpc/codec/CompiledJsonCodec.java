@@ -0,0 +1,201 @@
+package com.yinxiang.microservice.grpc.codec;
+
+import com.google.common.collect.Maps;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.googlecode.protobuf.format.JsonFormat;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The default {@link JsonCodec}, every descriptor is compiled to a {@link MessageSchema} at the first time.
+ * Printing walks the compiled writers and appends to the output directly, without Message#getAllFields and
+ * intermediate strings. Parsing merges a json token by token from a Reader with the compiled field lookup.
+ * The json is the same as JsonFormat, a message with unknown fields or extensions is printed by JsonFormat.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class CompiledJsonCodec implements JsonCodec {
+  /** protobuf - json formatter, for unknown fields and extensions. */
+  private static final JsonFormat JSON_FORMAT = new JsonFormat();
+
+  /** Message descriptor - compiled schema. */
+  private final ConcurrentMap<Descriptor, MessageSchema> schemas = Maps.newConcurrentMap();
+
+  @Override
+  public void print(Message message, Appendable output) throws IOException {
+    print(message, getSchema(message.getDescriptorForType()), output);
+  }
+
+  @Override
+  public void merge(Reader input, Message.Builder builder) throws IOException {
+    JsonReader reader = new JsonReader(new JsonStrings.EscapeReader(input));
+    // same as JsonFormat, NaN and Infinity are allowed
+    reader.setLenient(true);
+    try {
+      mergeMessage(reader, builder);
+    } catch (IllegalStateException | NumberFormatException | JsonParseException
+            | MalformedJsonException | EOFException e) {
+      throw new JsonFormat.ParseException(e.getMessage());
+    }
+  }
+
+  /**
+   * Get the compiled schema of a descriptor, compile it at the first time.
+   * @param descriptor  the descriptor of message
+   * @return  compiled schema
+   */
+  private MessageSchema getSchema(Descriptor descriptor) {
+    MessageSchema schema = schemas.get(descriptor);
+    return schema != null ? schema : schemas.computeIfAbsent(descriptor, MessageSchema::new);
+  }
+
+  private void print(Message message, MessageSchema schema, Appendable output) throws IOException {
+    if (schema.legacy || !message.getUnknownFields().asMap().isEmpty()) {
+      JSON_FORMAT.print(message, output);
+      return;
+    }
+    output.append('{');
+    boolean first = true;
+    for (MessageSchema.FieldWriter writer : schema.writers) {
+      Object value = writer.get(message);
+      if (value == null) {
+        continue;
+      }
+      if (!first) {
+        output.append(',');
+      }
+      first = false;
+      output.append(writer.key);
+      if (writer.field.isRepeated()) {
+        output.append('[');
+        List<?> values = (List<?>) value;
+        for (int i = 0, size = values.size(); i < size; i++) {
+          if (i > 0) {
+            output.append(',');
+          }
+          printValue(writer, values.get(i), output);
+        }
+        output.append(']');
+      } else {
+        printValue(writer, value, output);
+      }
+    }
+    output.append('}');
+  }
+
+  private void printValue(MessageSchema.FieldWriter writer, Object value, Appendable output) throws IOException {
+    switch (writer.kind) {
+      case UINT32:
+        output.append(Integer.toUnsignedString((Integer) value));
+        break;
+      case UINT64:
+        output.append(Long.toUnsignedString((Long) value));
+        break;
+      case STRING:
+        JsonStrings.appendText((String) value, output);
+        break;
+      case BYTES:
+        JsonStrings.appendBytes((ByteString) value, output);
+        break;
+      case ENUM:
+        output.append('"').append(((EnumValueDescriptor) value).getName()).append('"');
+        break;
+      case MESSAGE:
+        MessageSchema schema = writer.schema;
+        if (schema == null) {
+          writer.schema = schema = getSchema(writer.field.getMessageType());
+        }
+        print((Message) value, schema, output);
+        break;
+      default:
+        output.append(value.toString());
+    }
+  }
+
+  private void mergeMessage(JsonReader reader, Message.Builder builder) throws IOException {
+    Map<String, FieldDescriptor> fields = getSchema(builder.getDescriptorForType()).fields;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      FieldDescriptor field = fields.get(reader.nextName());
+      if (field == null || reader.peek() == JsonToken.NULL) {
+        reader.skipValue();
+      } else if (field.isRepeated()) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          builder.addRepeatedField(field, readValue(reader, builder, field));
+        }
+        reader.endArray();
+      } else {
+        builder.setField(field, readValue(reader, builder, field));
+      }
+    }
+    reader.endObject();
+  }
+
+  private Object readValue(JsonReader reader, Message.Builder builder, FieldDescriptor field) throws IOException {
+    switch (field.getType()) {
+      case INT32:
+      case SINT32:
+      case SFIXED32:
+        return reader.nextInt();
+      case UINT32:
+      case FIXED32:
+        return Integer.parseUnsignedInt(reader.nextString());
+      case INT64:
+      case SINT64:
+      case SFIXED64:
+        return reader.nextLong();
+      case UINT64:
+      case FIXED64:
+        return Long.parseUnsignedLong(reader.nextString());
+      case FLOAT:
+        return (float) reader.nextDouble();
+      case DOUBLE:
+        return reader.nextDouble();
+      case BOOL:
+        return reader.nextBoolean();
+      case STRING:
+        return reader.nextString();
+      case BYTES:
+        return JsonStrings.toBytes(reader.nextString());
+      case ENUM:
+        return readEnum(reader, field);
+      case MESSAGE:
+      case GROUP:
+        Message.Builder fieldBuilder = builder.newBuilderForField(field);
+        if (!field.isRepeated() && builder.hasField(field)) {
+          fieldBuilder.mergeFrom((Message) builder.getField(field));
+        }
+        mergeMessage(reader, fieldBuilder);
+        return fieldBuilder.build();
+      default:
+        throw new JsonFormat.ParseException("Unsupported field type of " + field.getName() + ": " + field.getType());
+    }
+  }
+
+  private static EnumValueDescriptor readEnum(JsonReader reader, FieldDescriptor field) throws IOException {
+    EnumValueDescriptor value;
+    if (reader.peek() == JsonToken.NUMBER) {
+      value = field.getEnumType().findValueByNumber(reader.nextInt());
+    } else {
+      value = field.getEnumType().findValueByName(reader.nextString());
+    }
+    if (value == null) {
+      throw new JsonFormat.ParseException("Invalid enum value of " + field.getName() + " at " + reader.getPath());
+    }
+    return value;
+  }
+}
@@ -0,0 +1,83 @@
+package com.yinxiang.microservice.grpc.codec;
+
+import com.google.protobuf.Message;
+import com.googlecode.protobuf.format.JsonFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The codec of protobuf message - json, all json of http bridge and Marshaller go through it.
+ * An implementation can be provided by {@link java.util.ServiceLoader} or {@link JsonCodecs#set(JsonCodec)}.
+ * The json format is the one of protobuf-java-format's JsonFormat.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ * @see JsonCodecs
+ */
+public interface JsonCodec {
+  /**
+   * Write the json of a message.
+   * @param message protobuf message
+   * @param output  the output of json
+   * @throws IOException  IO Exception of output
+   */
+  void print(Message message, Appendable output) throws IOException;
+
+  /**
+   * Merge a json into a message builder.
+   * @param input   the input of json
+   * @param builder message builder
+   * @throws IOException  IO Exception of input, or JsonFormat.ParseException if the json is invalid
+   */
+  void merge(Reader input, Message.Builder builder) throws IOException;
+
+  /**
+   * Write the json of a message to a stream in UTF-8.
+   * @param message protobuf message
+   * @param output  the output stream of json
+   * @throws IOException  IO Exception of output
+   */
+  default void print(Message message, OutputStream output) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    print(message, writer);
+    writer.flush();
+  }
+
+  /**
+   * Get the json of a message.
+   * @param message protobuf message
+   * @return  json string
+   */
+  default String printToString(Message message) {
+    StringBuilder builder = new StringBuilder();
+    try {
+      print(message, builder);
+    } catch (IOException e) {
+      // StringBuilder never throws
+      throw new IllegalStateException(e);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Merge a json string into a message builder.
+   * @param input   json string
+   * @param builder message builder
+   * @throws JsonFormat.ParseException  if the json is invalid
+   */
+  default void merge(CharSequence input, Message.Builder builder) throws JsonFormat.ParseException {
+    try {
+      merge(new StringReader(input.toString()), builder);
+    } catch (JsonFormat.ParseException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new JsonFormat.ParseException(e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.yinxiang.microservice.grpc.codec;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The holder of current {@link JsonCodec}.
+ * The first implementation of {@link java.util.ServiceLoader} is used, or {@link CompiledJsonCodec} if none.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public final class JsonCodecs {
+  /** The current codec. */
+  private static volatile JsonCodec codec = load();
+
+  private JsonCodecs() {}
+
+  /**
+   * Get the current codec.
+   * @return  json codec
+   */
+  public static JsonCodec get() {
+    return codec;
+  }
+
+  /**
+   * Replace the current codec, e.g. {@link LegacyJsonCodec} to go back to protobuf-java-format.
+   * @param codec json codec
+   */
+  public static void set(JsonCodec codec) {
+    JsonCodecs.codec = checkNotNull(codec);
+  }
+
+  private static JsonCodec load() {
+    Iterator<JsonCodec> iterator = ServiceLoader.load(JsonCodec.class, JsonCodecs.class.getClassLoader()).iterator();
+    return iterator.hasNext() ? iterator.next() : new CompiledJsonCodec();
+  }
+}
@@ -0,0 +1,226 @@
+package com.yinxiang.microservice.grpc.codec;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The escapes of strings and bytes, the same output as JsonFormat's escapeText and escapeBytes.
+ * A run of chars without escape is appended at once. The escapes of bytes which are not json are read back by
+ * {@link EscapeReader}.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+final class JsonStrings {
+  /** JsonFormat iterates a string by CharacterIterator, which ends at this char. */
+  private static final char DONE = '\uffff';
+
+  private JsonStrings() {}
+
+  /**
+   * Append a quoted and escaped string.
+   * @param text    string
+   * @param output  the output of json
+   * @throws IOException  IO Exception of output
+   * @throws IllegalArgumentException if a high surrogate is the last char, same as JsonFormat
+   */
+  static void appendText(String text, Appendable output) throws IOException {
+    output.append('"');
+    int start = 0;
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      String escape = escapeChar(c);
+      if (escape == null && c > 31 && !Character.isHighSurrogate(c) && c != DONE) {
+        continue;
+      }
+      // append the run before c
+      output.append(text, start, i);
+      if (c == DONE) {
+        start = length;
+        break;
+      } else if (escape != null) {
+        output.append(escape);
+      } else if (c <= 31) {
+        appendUnicode(c, output);
+      } else {
+        // a high surrogate and its pair are both escaped
+        appendUnicode(c, output);
+        if (++i == length || text.charAt(i) == DONE) {
+          throw new IllegalArgumentException(
+                  "invalid unicode string: unexpected high surrogate pair value without corresponding low value.");
+        }
+        appendUnicode(text.charAt(i), output);
+      }
+      start = i + 1;
+    }
+    output.append(text, start, length);
+    output.append('"');
+  }
+
+  /**
+   * Append a quoted and escaped bytes, every byte is a char.
+   * @param bytes   bytes
+   * @param output  the output of json
+   * @throws IOException  IO Exception of output
+   */
+  static void appendBytes(ByteString bytes, Appendable output) throws IOException {
+    output.append('"');
+    for (int i = 0, size = bytes.size(); i < size; i++) {
+      byte b = bytes.byteAt(i);
+      switch (b) {
+        case 7:
+          output.append("\\a");
+          break;
+        case 8:
+          output.append("\\b");
+          break;
+        case 12:
+          output.append("\\f");
+          break;
+        case 10:
+          output.append("\\n");
+          break;
+        case 13:
+          output.append("\\r");
+          break;
+        case 9:
+          output.append("\\t");
+          break;
+        case 11:
+          output.append("\\v");
+          break;
+        case '\\':
+          output.append("\\\\");
+          break;
+        case '\'':
+          output.append("\\'");
+          break;
+        case '"':
+          output.append("\\\"");
+          break;
+        default:
+          // a negative byte is a char of 0xff80 - 0xffff, same as JsonFormat
+          if (b >= 0x20) {
+            output.append((char) b);
+          } else {
+            appendUnicode((char) b, output);
+          }
+      }
+    }
+    output.append('"');
+  }
+
+  /**
+   * Get the bytes of a string which was escaped by {@link #appendBytes(ByteString, Appendable)}, every char is a byte.
+   * @param text  unescaped string
+   * @return  bytes
+   */
+  static ByteString toBytes(String text) {
+    byte[] bytes = new byte[text.length()];
+    for (int i = 0; i < bytes.length; i++) {
+      // a char of 0xff80 - 0xffff is a negative byte
+      bytes[i] = (byte) text.charAt(i);
+    }
+    return UnsafeByteOperations.unsafeWrap(bytes);
+  }
+
+  private static String escapeChar(char c) {
+    switch (c) {
+      case '\b':
+        return "\\b";
+      case '\f':
+        return "\\f";
+      case '\n':
+        return "\\n";
+      case '\r':
+        return "\\r";
+      case '\t':
+        return "\\t";
+      case '\\':
+        return "\\\\";
+      case '"':
+        return "\\\"";
+      default:
+        return null;
+    }
+  }
+
+  private static void appendUnicode(char c, Appendable output) throws IOException {
+    output.append("\\u");
+    if (c < 0x10) {
+      output.append("000");
+    } else if (c < 0x100) {
+      output.append("00");
+    } else if (c < 0x1000) {
+      output.append('0');
+    }
+    output.append(Integer.toHexString(c));
+  }
+
+  /** A reader which replaces the escapes {@code \a} and {@code \v} of JsonFormat with the unicode escapes of json. */
+  static final class EscapeReader extends Reader {
+    /** The json. */
+    private final Reader in;
+    /** The buffer of json. */
+    private final char[] buffer = new char[1024];
+    /** The position of buffer. */
+    private int position;
+    /** The limit of buffer. */
+    private int limit;
+    /** The last char is a backslash which is not escaped. */
+    private boolean escaped;
+    /** The hex digits of unicode escape which are not read. */
+    private String pending = "";
+    /** The position of pending. */
+    private int pendingIndex;
+
+    EscapeReader(Reader in) {
+      this.in = in;
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+      int count = 0;
+      while (count < length) {
+        if (pendingIndex < pending.length()) {
+          chars[offset + count++] = pending.charAt(pendingIndex++);
+          continue;
+        }
+        if (position == limit) {
+          // return what was read before blocking on the next read
+          if (count > 0) {
+            break;
+          }
+          int read = in.read(buffer, 0, buffer.length);
+          if (read < 0) {
+            return -1;
+          }
+          position = 0;
+          limit = read;
+          continue;
+        }
+        char c = buffer[position++];
+        if (escaped) {
+          escaped = false;
+          if (c == 'a' || c == 'v') {
+            pending = c == 'a' ? "0007" : "000b";
+            pendingIndex = 0;
+            c = 'u';
+          }
+        } else {
+          escaped = c == '\\';
+        }
+        chars[offset + count++] = c;
+      }
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
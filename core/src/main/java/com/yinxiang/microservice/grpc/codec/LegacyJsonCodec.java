@@ -0,0 +1,39 @@
+package com.yinxiang.microservice.grpc.codec;
+
+import com.google.common.io.CharStreams;
+import com.google.protobuf.ExtensionRegistry;
+import com.google.protobuf.Message;
+import com.googlecode.protobuf.format.JsonFormat;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The codec by protobuf-java-format's JsonFormat, the one before {@link CompiledJsonCodec}.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class LegacyJsonCodec implements JsonCodec {
+  /** protobuf - json formatter */
+  private final JsonFormat jsonFormat = new JsonFormat();
+
+  @Override
+  public void print(Message message, Appendable output) throws IOException {
+    jsonFormat.print(message, output);
+  }
+
+  @Override
+  public String printToString(Message message) {
+    return jsonFormat.printToString(message);
+  }
+
+  @Override
+  public void merge(Reader input, Message.Builder builder) throws IOException {
+    jsonFormat.merge(CharStreams.toString(input), ExtensionRegistry.getEmptyRegistry(), builder);
+  }
+
+  @Override
+  public void merge(CharSequence input, Message.Builder builder) throws JsonFormat.ParseException {
+    jsonFormat.merge(input, ExtensionRegistry.getEmptyRegistry(), builder);
+  }
+}
@@ -0,0 +1,143 @@
+package com.yinxiang.microservice.grpc.codec;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.GeneratedMessageV3;
+import com.google.protobuf.Message;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The compiled schema of a message descriptor: the writers of fields in the order of JsonFormat, and the lookup of
+ * field names for parsing. Compiled once for every descriptor by {@link CompiledJsonCodec}.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+final class MessageSchema {
+  /** The writers of fields, ordered by field number as Message#getAllFields. */
+  final FieldWriter[] writers;
+  /** Field name, lower case name of group or number - field. */
+  final Map<String, FieldDescriptor> fields;
+  /** A message with extensions is written by JsonFormat. */
+  final boolean legacy;
+
+  MessageSchema(Descriptor descriptor) {
+    writers = descriptor.getFields().stream()
+            .sorted(Comparator.comparingInt(FieldDescriptor::getNumber))
+            .map(FieldWriter::new)
+            .toArray(FieldWriter[]::new);
+    fields = createFields(descriptor);
+    legacy = descriptor.toProto().getExtensionRangeCount() > 0;
+  }
+
+  /**
+   * Create the lookup of fields, same as JsonFormat: by name, lower case name of group, or number.
+   * @param descriptor  the descriptor of message
+   * @return  field name or number - field
+   */
+  private static Map<String, FieldDescriptor> createFields(Descriptor descriptor) {
+    Map<String, FieldDescriptor> fields = Maps.newHashMap();
+    for (FieldDescriptor field : descriptor.getFields()) {
+      fields.putIfAbsent(String.valueOf(field.getNumber()), field);
+      if (field.getType() == FieldDescriptor.Type.GROUP) {
+        fields.putIfAbsent(field.getMessageType().getName(), field);
+      }
+    }
+    // names are preferred to numbers and groups
+    for (FieldDescriptor field : descriptor.getFields()) {
+      fields.put(field.getName(), field);
+      if (field.getType() == FieldDescriptor.Type.GROUP) {
+        fields.putIfAbsent(field.getName().toLowerCase(Locale.US), field);
+      }
+    }
+    return ImmutableMap.copyOf(fields);
+  }
+
+  /** The kinds of json value. */
+  enum Kind {
+    /** Signed numbers and bool, by toString. */
+    PLAIN,
+    UINT32,
+    UINT64,
+    STRING,
+    BYTES,
+    ENUM,
+    MESSAGE
+  }
+
+  /** The compiled writer of a field. */
+  static final class FieldWriter {
+    /** The field. */
+    final FieldDescriptor field;
+    /** The prefix of the field: "name": */
+    final String key;
+    /** The kind of value. */
+    final Kind kind;
+    /** A proto3 scalar without has method, present if not default, like the has of generated message. */
+    private final boolean implicitPresence;
+    /** The default value of field. */
+    private final Object defaultValue;
+    /** The schema of message field, bound at the first write because a message may be recursive. */
+    MessageSchema schema;
+
+    FieldWriter(FieldDescriptor field) {
+      this.field = field;
+      String name = field.getType() == FieldDescriptor.Type.GROUP ? field.getMessageType().getName() : field.getName();
+      this.key = "\"" + name + "\": ";
+      this.kind = getKind(field);
+      this.implicitPresence = !field.isRepeated()
+              && field.getJavaType() != FieldDescriptor.JavaType.MESSAGE
+              && field.getContainingOneof() == null
+              && field.getFile().getSyntax() == FileDescriptor.Syntax.PROTO3;
+      this.defaultValue = field.isRepeated() || field.getJavaType() == FieldDescriptor.JavaType.MESSAGE
+              ? null
+              : field.getDefaultValue();
+    }
+
+    /**
+     * Get the value of field if present.
+     * @param message protobuf message
+     * @return  the value, a non-empty list of repeated field, or null if not present
+     */
+    Object get(Message message) {
+      if (field.isRepeated()) {
+        List<?> values = (List<?>) message.getField(field);
+        return values.isEmpty() ? null : values;
+      } else if (implicitPresence && message instanceof GeneratedMessageV3) {
+        // one call instead of hasField and getField
+        Object value = message.getField(field);
+        return value.equals(defaultValue) ? null : value;
+      } else {
+        return message.hasField(field) ? message.getField(field) : null;
+      }
+    }
+
+    private static Kind getKind(FieldDescriptor field) {
+      switch (field.getType()) {
+        case UINT32:
+        case FIXED32:
+          return Kind.UINT32;
+        case UINT64:
+        case FIXED64:
+          return Kind.UINT64;
+        case STRING:
+          return Kind.STRING;
+        case BYTES:
+          return Kind.BYTES;
+        case ENUM:
+          return Kind.ENUM;
+        case MESSAGE:
+        case GROUP:
+          return Kind.MESSAGE;
+        default:
+          return Kind.PLAIN;
+      }
+    }
+  }
+}
@@ -1,25 +1,52 @@
 package com.yinxiang.microservice.grpc.controller;
 
 import com.google.common.base.Joiner;
-import com.google.protobuf.ExtensionRegistry;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.protobuf.Message;
 import com.googlecode.protobuf.format.JsonFormat;
 import com.yinxiang.grpc.http.Headers;
 import com.yinxiang.grpc.http.HeadersFilter;
+import com.yinxiang.microservice.grpc.autoconfigure.GrpcServerProperties;
+import com.yinxiang.microservice.grpc.codec.JsonCodecs;
 import com.yinxiang.microservice.grpc.inject.Marshaller;
 import io.grpc.*;
 import io.grpc.stub.StreamObserver;
 import org.springframework.beans.BeansException;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -35,8 +62,8 @@ import static com.yinxiang.microservice.grpc.inject.header.StubHeadersProcessor.
  * @since 1.0.0
  */
 public abstract class BaseGrpcController implements ApplicationContextAware {
-  /** protobuf - json formatter */
-  private static final JsonFormat JSON_FORMAT = new JsonFormat();
+  /** The media type of protobuf binary. */
+  public static final MediaType PROTOBUF = MediaType.valueOf("application/x-protobuf");
   /** A none marshaller. */
   private static final MethodDescriptor.Marshaller NONE_MARSHALLER = new MethodDescriptor.Marshaller() {
     @Override
@@ -50,8 +77,32 @@ public abstract class BaseGrpcController implements ApplicationContextAware {
     }
   };
 
-  /** List of gRPC interceptors. Will init by springboot, load all interceptors from applicationContext. */
-  private List<ServerInterceptor> interceptors;
+  /** The key of the consumer of current request, read by the terminal listener. */
+  private static final Context.Key<Consumer<Object>> CONSUMER_KEY = Context.key("consumer");
+  /** The terminal listener of all chains, call the consumer of current request. */
+  private static final ServerCall.Listener<Object> TERMINAL_LISTENER = new ServerCall.Listener<Object>() {
+    @Override
+    public void onMessage(Object message) {
+      CONSUMER_KEY.get().accept(message);
+    }
+  };
+  /** The terminal handler of all chains. */
+  private static final ServerCallHandler<Object, Object> TERMINAL_HANDLER = (call, headers) -> TERMINAL_LISTENER;
+  /** The default max milliseconds of a streaming response, when the async timeout of spring mvc is not set. */
+  private static final long DEFAULT_STREAMING_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+  /** Handler method of spring mvc - simulation of MethodDescriptor, the mapped methods are filled at registration. */
+  private final ConcurrentMap<Method, MethodDescriptor> handlers = Maps.newConcurrentMap();
+  /** Caller class - caller method - simulation of MethodDescriptor, only for the calls out of spring mvc. */
+  private final ConcurrentMap<String, ConcurrentMap<String, MethodDescriptor>> callers = Maps.newConcurrentMap();
+  /** Full method name - simulation of MethodDescriptor. */
+  private final ConcurrentMap<String, MethodDescriptor> descriptors = Maps.newConcurrentMap();
+  /** The chains of gRPC interceptors. Will init by springboot, load all interceptors from applicationContext. */
+  private volatile InterceptorChains chains;
+  /** The max size of a request body from stream, same as the gRPC server. */
+  private volatile int maxInboundMessageSize = GrpcServerProperties.DEFAULT_MAX_IN_BOUND_MESSAGE_SIZE;
+  /** The max milliseconds of a streaming response, same as the async timeout of spring mvc. */
+  private volatile long streamingTimeout = DEFAULT_STREAMING_TIMEOUT;
 
   /**
    * Process gRPC request from http.
@@ -118,9 +169,134 @@ public abstract class BaseGrpcController implements ApplicationContextAware {
           MethodDescriptor method
   ) throws JsonFormat.ParseException {
     // merge parameters to message builder
-    JSON_FORMAT.merge(params, ExtensionRegistry.getEmptyRegistry(), builder);
+    JsonCodecs.get().merge(params, builder);
+    // create response StreamObserver
+    RestControllerStreamObserver<T> streamObserver = new RestControllerStreamObserver<>(JsonCodecs.get());
+    // process
+    _processInterceptors(metadata, message -> consumer.accept((B) message, streamObserver), method)
+            .onMessage(builder.build());
+    // return result
+    return streamObserver.toString();
+  }
+
+  /**
+   * Process gRPC request from http, the json body is merged from the stream without a copy of String.
+   * @param params    a json stream of request parameters, UTF-8
+   * @param headers   http headers source from spring controller
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a json of response
+   * @throws IOException  IO Exception, or JsonFormat.ParseException
+   * @see #setMaxInboundMessageSize(int)
+   */
+  protected <T extends Message, B extends Message> String _process(
+          InputStream params,
+          MultiValueMap<String, String> headers,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method
+  ) throws IOException {
+    return _process(createReader(params), createMetadata(headers), builder, consumer, method);
+  }
+
+  /**
+   * Process gRPC request from http, the json body is merged from the stream without a copy of String.
+   * @param params    a json stream of request parameters, UTF-8
+   * @param headers   http headers source from any way
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a json of response
+   * @throws IOException  IO Exception, or JsonFormat.ParseException
+   * @see #setMaxInboundMessageSize(int)
+   */
+  protected <T extends Message, B extends Message> String _process(
+          InputStream params,
+          Map<String, String> headers,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method
+  ) throws IOException {
+    return _process(createReader(params), createMetadata(headers), builder, consumer, method);
+  }
+
+  /**
+   * Process gRPC request from http, the json body is merged from the reader without a copy of String.
+   * @param params    a json reader of request parameters
+   * @param headers   http headers source from spring controller
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a json of response
+   * @throws IOException  IO Exception, or JsonFormat.ParseException
+   * @see #setMaxInboundMessageSize(int)
+   */
+  protected <T extends Message, B extends Message> String _process(
+          Reader params,
+          MultiValueMap<String, String> headers,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method
+  ) throws IOException {
+    return _process(new LimitedInputs.LimitedReader(params, maxInboundMessageSize), createMetadata(headers),
+            builder, consumer, method);
+  }
+
+  /**
+   * Process gRPC request from http, the json body is merged from the reader without a copy of String.
+   * @param params    a json reader of request parameters
+   * @param headers   http headers source from any way
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a json of response
+   * @throws IOException  IO Exception, or JsonFormat.ParseException
+   * @see #setMaxInboundMessageSize(int)
+   */
+  protected <T extends Message, B extends Message> String _process(
+          Reader params,
+          Map<String, String> headers,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method
+  ) throws IOException {
+    return _process(new LimitedInputs.LimitedReader(params, maxInboundMessageSize), createMetadata(headers),
+            builder, consumer, method);
+  }
+
+  /**
+   * Process gRPC request from http.
+   * @param params    a limited json reader of request parameters
+   * @param metadata  gRPC metadata
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a json of response
+   * @throws IOException  IO Exception, or JsonFormat.ParseException
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends Message, B extends Message> String _process(
+          Reader params,
+          Metadata metadata,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method
+  ) throws IOException {
+    // merge parameters to message builder token by token
+    JsonCodecs.get().merge(params, builder);
     // create response StreamObserver
-    RestControllerStreamObserver<T> streamObserver = new RestControllerStreamObserver<>(JSON_FORMAT);
+    RestControllerStreamObserver<T> streamObserver = new RestControllerStreamObserver<>(JsonCodecs.get());
     // process
     _processInterceptors(metadata, message -> consumer.accept((B) message, streamObserver), method)
             .onMessage(builder.build());
@@ -128,6 +304,270 @@ public abstract class BaseGrpcController implements ApplicationContextAware {
     return streamObserver.toString();
   }
 
+  /**
+   * Create a UTF-8 reader of a stream, limited by the max inbound message size.
+   * @param inputStream input stream
+   * @return  reader
+   */
+  private Reader createReader(InputStream inputStream) {
+    return new InputStreamReader(
+            new LimitedInputs.LimitedInputStream(inputStream, maxInboundMessageSize), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Process gRPC request from http, negotiate the content by headers.
+   * The request is protobuf binary if Content-Type is application/x-protobuf, else is json.
+   * The response is protobuf binary if Accept prefers application/x-protobuf, else is json. A binary response of
+   * server streaming method writes every message with a varint length prefix, like Message#writeDelimitedTo.
+   * @param request   http request
+   * @param response  http response
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param <T>       request type
+   * @param <B>       response type
+   * @throws IOException  IO Exception, or JsonFormat.ParseException
+   */
+  @SuppressWarnings("unchecked")
+  protected <T extends Message, B extends Message> void _process(
+          HttpServletRequest request,
+          HttpServletResponse response,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method
+  ) throws IOException {
+    HttpHeaders headers = new ServletServerHttpRequest(request).getHeaders();
+    // merge request to message builder
+    MediaType contentType = headers.getContentType();
+    InputStream inputStream = new LimitedInputs.LimitedInputStream(request.getInputStream(), maxInboundMessageSize);
+    if (contentType != null && PROTOBUF.includes(contentType)) {
+      builder.mergeFrom(inputStream);
+    } else {
+      Charset charset = contentType == null || contentType.getCharset() == null
+              ? StandardCharsets.UTF_8
+              : contentType.getCharset();
+      JsonCodecs.get().merge(new InputStreamReader(inputStream, charset), builder);
+    }
+    // create response StreamObserver
+    RestControllerStreamObserver<T> streamObserver = new RestControllerStreamObserver<>(JsonCodecs.get());
+    // process
+    _processInterceptors(createMetadata(headers), message -> consumer.accept((B) message, streamObserver), method)
+            .onMessage(builder.build());
+    // write result
+    if (acceptProtobuf(headers.getAccept())) {
+      response.setContentType(PROTOBUF.toString());
+      streamObserver.writeTo(response.getOutputStream(), !method.getType().serverSendsOneMessage());
+    } else {
+      response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+      response.getOutputStream().write(streamObserver.toString().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Check the client prefers protobuf binary or not.
+   * @param accept  media types of Accept header
+   * @return  true if protobuf binary is preferred to json
+   */
+  private static boolean acceptProtobuf(List<MediaType> accept) {
+    List<MediaType> mediaTypes = Lists.newArrayList(accept);
+    MediaType.sortBySpecificityAndQuality(mediaTypes);
+    for (MediaType mediaType : mediaTypes) {
+      if (mediaType.isConcrete() && PROTOBUF.includes(mediaType)) {
+        return true;
+      } else if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Process gRPC request from http asynchronously, the servlet thread is free while the gRPC method works.
+   * @param params    a json string of request parameters
+   * @param headers   http headers source from spring controller
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a future of the json of response, completed by onCompleted or onError
+   * @throws JsonFormat.ParseException  Json Exception
+   */
+  protected <T extends Message, B extends Message> CompletableFuture<String> _processAsync(
+          String params,
+          MultiValueMap<String, String> headers,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method
+  ) throws JsonFormat.ParseException {
+    return _processAsync(params, createMetadata(headers), builder, consumer, method);
+  }
+
+  /**
+   * Process gRPC request from http asynchronously, the servlet thread is free while the gRPC method works.
+   * @param params    a json string of request parameters
+   * @param headers   http headers source from any way
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a future of the json of response, completed by onCompleted or onError
+   * @throws JsonFormat.ParseException  Json Exception
+   */
+  protected <T extends Message, B extends Message> CompletableFuture<String> _processAsync(
+          String params,
+          Map<String, String> headers,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method
+  ) throws JsonFormat.ParseException {
+    return _processAsync(params, createMetadata(headers), builder, consumer, method);
+  }
+
+  /**
+   * Process gRPC request from http asynchronously, the servlet thread is free while the gRPC method works.
+   * @param params    a json string of request parameters
+   * @param metadata  gRPC metadata
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a future of the json of response, completed by onCompleted or onError
+   * @throws JsonFormat.ParseException  Json Exception
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends Message, B extends Message> CompletableFuture<String> _processAsync(
+          String params,
+          Metadata metadata,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method
+  ) throws JsonFormat.ParseException {
+    // merge parameters to message builder
+    JsonCodecs.get().merge(params, builder);
+    // create response StreamObserver
+    RestControllerStreamObserver<T> streamObserver = new RestControllerStreamObserver<>(JsonCodecs.get());
+    // process, any exception of interceptors or the method, or the close of an interceptor completes the future
+    try {
+      _processInterceptors(metadata, message -> consumer.accept((B) message, streamObserver), method,
+              (status, trailers) -> {
+                if (status.isOk()) {
+                  streamObserver.onCompleted();
+                } else {
+                  streamObserver.onError(status.asRuntimeException(trailers));
+                }
+              }).onMessage(builder.build());
+    } catch (RuntimeException e) {
+      streamObserver.onError(e);
+    }
+    // return the future of result
+    return streamObserver.getFuture();
+  }
+
+  /**
+   * Process a server streaming gRPC request from http, every response message is written to the client immediately.
+   * @param params    a json string of request parameters
+   * @param headers   http headers source from spring controller
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param format    the format of response frames
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a streaming response
+   * @throws JsonFormat.ParseException  Json Exception
+   */
+  protected <T extends Message, B extends Message> ResponseEntity<StreamingResponseBody> _processStreaming(
+          String params,
+          MultiValueMap<String, String> headers,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method,
+          StreamingFormat format
+  ) throws JsonFormat.ParseException {
+    return _processStreaming(params, createMetadata(headers), builder, consumer, method, format);
+  }
+
+  /**
+   * Process a server streaming gRPC request from http, every response message is written to the client immediately.
+   * @param params    a json string of request parameters
+   * @param headers   http headers source from any way
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param format    the format of response frames
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a streaming response
+   * @throws JsonFormat.ParseException  Json Exception
+   */
+  protected <T extends Message, B extends Message> ResponseEntity<StreamingResponseBody> _processStreaming(
+          String params,
+          Map<String, String> headers,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method,
+          StreamingFormat format
+  ) throws JsonFormat.ParseException {
+    return _processStreaming(params, createMetadata(headers), builder, consumer, method, format);
+  }
+
+  /**
+   * Process a server streaming gRPC request from http, every response message is written to the client immediately.
+   * The interceptors run before return, thus a rejected request still throws here.
+   * The call is cancelled when the client has gone or it is not done in the streaming timeout.
+   * @param params    a json string of request parameters
+   * @param metadata  gRPC metadata
+   * @param builder   proto builder
+   * @param consumer  proto consumer
+   * @param method    the descriptor of gRPC method
+   * @param format    the format of response frames
+   * @param <T>       request type
+   * @param <B>       response type
+   * @return  a streaming response
+   * @throws JsonFormat.ParseException  Json Exception
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends Message, B extends Message> ResponseEntity<StreamingResponseBody> _processStreaming(
+          String params,
+          Metadata metadata,
+          B.Builder builder,
+          BiConsumer<B, StreamObserver<T>> consumer,
+          MethodDescriptor method,
+          StreamingFormat format
+  ) throws JsonFormat.ParseException {
+    // merge parameters to message builder
+    JsonCodecs.get().merge(params, builder);
+    Message request = builder.build();
+    // create response StreamObserver and start the call
+    StreamingRestControllerStreamObserver<T> streamObserver = new StreamingRestControllerStreamObserver<>(JsonCodecs.get(), format);
+    ServerCall.Listener<Message> listener = _processInterceptors(
+            metadata, message -> consumer.accept((B) message, streamObserver), method, streamObserver::close);
+    streamObserver.checkClosed();
+    long timeout = streamingTimeout;
+    // process when the response starts, and keep the response open until the stream ends or times out
+    StreamingResponseBody body = outputStream -> {
+      streamObserver.start(outputStream);
+      try {
+        listener.onMessage(request);
+        streamObserver.ready();
+      } catch (RuntimeException e) {
+        streamObserver.onError(e);
+      }
+      try {
+        if (!streamObserver.await(timeout, TimeUnit.MILLISECONDS)) {
+          streamObserver.cancel("deadline exceeded after " + timeout + " ms");
+        }
+      } catch (InterruptedException e) {
+        streamObserver.cancel("interrupted");
+        Thread.currentThread().interrupt();
+      }
+    };
+    return ResponseEntity.ok().contentType(format.getMediaType()).body(body);
+  }
+
   /**
    * Process gRPC interceptors.
    * @param metadata  gRPC metadata
@@ -138,20 +578,33 @@ public abstract class BaseGrpcController implements ApplicationContextAware {
    */
   @SuppressWarnings("unchecked")
   protected <T> ServerCall.Listener<T> _processInterceptors(Metadata metadata, Consumer<T> consumer, MethodDescriptor method) {
-    // create the terminal handler, call consumer
-    ServerCallHandler handler = (call, hs) -> new ServerCall.Listener() {
-      @Override
-      public void onMessage(Object message) {
-        consumer.accept((T) message);
-      }
-    };
-    // link all interceptors and refresh handler
-    for (ServerInterceptor interceptor : interceptors) {
-      final ServerCallHandler next = handler;
-      handler = (call, hs) -> interceptor.interceptCall(call, hs, next);
-    }
-    // execute handler and return result
-    return handler.startCall(new SimpleServerCall(method), metadata);
+    // get the precompiled chain of the method
+    InterceptorChain chain = chains.get(method);
+    // execute handler with the consumer in context and return result
+    Context context = Context.current().withValue(CONSUMER_KEY, (Consumer<Object>) consumer);
+    return Contexts.interceptCall(context, chain.call, metadata, chain.handler);
+  }
+
+  /**
+   * Process gRPC interceptors with a ServerCall of this request, an interceptor which rejects the call by
+   * {@link ServerCall#close(Status, Metadata)} is passed to onClose.
+   * @param metadata  gRPC metadata
+   * @param consumer  process consumer
+   * @param method    the descriptor of gRPC method
+   * @param onClose   called when an interceptor closes the call
+   * @param <T>       process type
+   * @return  the listener of the call
+   */
+  @SuppressWarnings("unchecked")
+  private <T> ServerCall.Listener<T> _processInterceptors(
+          Metadata metadata,
+          Consumer<T> consumer,
+          MethodDescriptor method,
+          BiConsumer<Status, Metadata> onClose
+  ) {
+    InterceptorChain chain = chains.get(method);
+    Context context = Context.current().withValue(CONSUMER_KEY, (Consumer<Object>) consumer);
+    return Contexts.interceptCall(context, new SimpleServerCall(method, onClose), metadata, chain.handler);
   }
 
   /**
@@ -174,44 +627,76 @@ public abstract class BaseGrpcController implements ApplicationContextAware {
     _processInterceptors(createMetadata(headers), consumer, method).onMessage(Headers.newBuilder().build());
   }
 
+  /**
+   * Process http headers by gRPC interceptors, thus look like a gRPC request.
+   * @param headers   http headers source from spring controller
+   * @param function  a supplier of result by headers consumer
+   * @param method    the descriptor of gRPC method
+   */
+  protected <T> T _processHeadersAndDo(
+          MultiValueMap<String, String> headers,
+          Function<Headers, T> function,
+          MethodDescriptor method
+  ) {
+    Result<T> result = new Result<>();
+    _processHeadersAndDo(headers, header -> {result.t = function.apply(header);}, method);
+    return result.t;
+  }
+
+  /**
+   * Process http headers by gRPC interceptors, thus look like a gRPC request.
+   * @param headers   http headers source from any way
+   * @param function  a supplier of result by headers consumer
+   * @param method    the descriptor of gRPC method
+   */
+  protected <T> T _processHeadersAndDo(
+          Map<String, String> headers,
+          Function<Headers, T> function,
+          MethodDescriptor method
+  ) {
+    Result<T> result = new Result<>();
+    _processHeadersAndDo(headers, header -> {result.t = function.apply(header);}, method);
+    return result.t;
+  }
+
   /**
    * Process http request by gRPC interceptors, thus look like a gRPC request.
+   * The MethodDescriptor is named by the handler method of spring mvc, else by the calling method.
    * @param headers   http headers source from spring controller
    * @param consumer  headers consumer
    */
   protected void _processHeadersAndDo(MultiValueMap<String, String> headers, Consumer<Headers> consumer) {
-    _processHeadersAndDo(headers, consumer, createMethodDescriptor());
+    _processHeadersAndDo(headers, consumer, getCallerMethodDescriptor());
   }
 
   /**
    * Process http request by gRPC interceptors, thus look like a gRPC request.
+   * The MethodDescriptor is named by the handler method of spring mvc, else by the calling method.
    * @param headers   http headers source from any way
    * @param consumer  headers consumer
    */
   protected void _processHeadersAndDo(Map<String, String> headers, Consumer<Headers> consumer) {
-    _processHeadersAndDo(headers, consumer, createMethodDescriptor());
+    _processHeadersAndDo(headers, consumer, getCallerMethodDescriptor());
   }
 
   /**
    * Process http request by gRPC interceptors, thus look like a gRPC request.
+   * The MethodDescriptor is named by the handler method of spring mvc, else by the calling method.
    * @param headers   http headers source from any way
    * @param function  a supplier of result by headers consumer
    */
   protected <T> T _processHeadersAndDo(MultiValueMap<String, String> headers, Function<Headers, T> function) {
-    Result<T> result = new Result<>();
-    _processHeadersAndDo(headers, header -> {result.t = function.apply(header);});
-    return result.t;
+    return _processHeadersAndDo(headers, function, getCallerMethodDescriptor());
   }
 
   /**
    * Process http request by gRPC interceptors, thus look like a gRPC request.
+   * The MethodDescriptor is named by the handler method of spring mvc, else by the calling method.
    * @param headers   http headers source from spring controller
    * @param function  a supplier of result by headers consumer
    */
   protected <T> T _processHeadersAndDo(Map<String, String> headers, Function<Headers, T> function) {
-    Result<T> result = new Result<>();
-    _processHeadersAndDo(headers, header -> {result.t = function.apply(header);});
-    return result.t;
+    return _processHeadersAndDo(headers, function, getCallerMethodDescriptor());
   }
 
   /** The supplier of result by headers consumer's result container. */
@@ -221,11 +706,91 @@ public abstract class BaseGrpcController implements ApplicationContextAware {
 
   @Override
   public void setApplicationContext(@NonNull final ApplicationContext applicationContext) throws BeansException {
+    // name the descriptors of mapped methods once, a request of spring mvc only looks up its handler method
+    ReflectionUtils.doWithMethods(ClassUtils.getUserClass(getClass()),
+            method -> handlers.computeIfAbsent(method, this::getMethodDescriptor),
+            method -> AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class));
     Map<String, ServerInterceptor> map = applicationContext.getBeansOfType(ServerInterceptor.class);
-    interceptors = map.values().stream()
+    setInterceptors(map.values().stream()
             .distinct()
             .sorted(serverInterceptorOrderComparator())
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
+    applicationContext.getBeanProvider(GrpcServerProperties.class)
+            .ifAvailable(properties -> setMaxInboundMessageSize(properties.getMaxInboundMessageSize()));
+    applicationContext.getBeanProvider(WebMvcProperties.class)
+            .ifAvailable(properties -> Optional.ofNullable(properties.getAsync().getRequestTimeout())
+                    .ifPresent(timeout -> setStreamingTimeout(timeout.toMillis())));
+  }
+
+  /**
+   * Set the max size of a request body from stream, bytes of InputStream or chars of Reader.
+   * A larger body fails with the status of RESOURCE_EXHAUSTED.
+   * @param maxInboundMessageSize the max size
+   */
+  protected void setMaxInboundMessageSize(int maxInboundMessageSize) {
+    this.maxInboundMessageSize = maxInboundMessageSize;
+  }
+
+  /**
+   * Set the max milliseconds of a streaming response, a call which is not done in time is cancelled.
+   * @param streamingTimeout  the max milliseconds
+   */
+  protected void setStreamingTimeout(long streamingTimeout) {
+    this.streamingTimeout = streamingTimeout;
+  }
+
+  /**
+   * Set the gRPC interceptors, all precompiled chains of the old interceptors will be dropped.
+   * @param interceptors  sorted gRPC interceptors, the last one is the outermost
+   */
+  protected void setInterceptors(List<ServerInterceptor> interceptors) {
+    chains = new InterceptorChains(interceptors);
+  }
+
+  /** The precompiled chains of every MethodDescriptor, bound to a list of interceptors. */
+  private static class InterceptorChains {
+    /** List of gRPC interceptors. */
+    private final List<ServerInterceptor> interceptors;
+    /** full method name - chain */
+    private final ConcurrentMap<String, InterceptorChain> chains = Maps.newConcurrentMap();
+
+    private InterceptorChains(List<ServerInterceptor> interceptors) {
+      this.interceptors = interceptors;
+    }
+
+    /**
+     * Get the chain of a method, compile it at the first time.
+     * @param method  the descriptor of gRPC method
+     * @return  the chain of the method
+     */
+    private InterceptorChain get(MethodDescriptor method) {
+      InterceptorChain chain = chains.get(method.getFullMethodName());
+      return chain != null ? chain : chains.computeIfAbsent(method.getFullMethodName(), name -> compile(method));
+    }
+
+    @SuppressWarnings("unchecked")
+    private InterceptorChain compile(MethodDescriptor method) {
+      ServerCallHandler handler = TERMINAL_HANDLER;
+      // link all interceptors and refresh handler
+      for (ServerInterceptor interceptor : interceptors) {
+        final ServerCallHandler next = handler;
+        handler = (call, hs) -> interceptor.interceptCall(call, hs, next);
+      }
+      return new InterceptorChain(new SimpleServerCall(method, null), handler);
+    }
+  }
+
+  /** A precompiled chain of interceptors and the shared ServerCall of a method. */
+  private static class InterceptorChain {
+    /** The ServerCall of the method, only with the methodDescriptor. */
+    private final ServerCall call;
+    /** The head of the chain. */
+    private final ServerCallHandler handler;
+
+    private InterceptorChain(ServerCall call, ServerCallHandler handler) {
+      this.call = call;
+      this.handler = handler;
+    }
   }
 
   /**
@@ -266,15 +831,18 @@ public abstract class BaseGrpcController implements ApplicationContextAware {
   }
 
   /**
-   * A simple implement of ServerCall, only with the methodDescriptor.
+   * A simple implement of ServerCall, only with the methodDescriptor and the handler of close.
    * @param <T>
    * @param <R>
    */
   private static class SimpleServerCall<T, R> extends ServerCall<T, R> {
     private final MethodDescriptor<T, R> methodDescriptor;
+    /** Called when an interceptor closes the call, null if the close is ignored. */
+    private final BiConsumer<Status, Metadata> onClose;
 
-    private SimpleServerCall(MethodDescriptor<T, R> methodDescriptor) {
+    private SimpleServerCall(MethodDescriptor<T, R> methodDescriptor, BiConsumer<Status, Metadata> onClose) {
       this.methodDescriptor = methodDescriptor;
+      this.onClose = onClose;
     }
 
     @Override
@@ -287,7 +855,11 @@ public abstract class BaseGrpcController implements ApplicationContextAware {
     public void sendMessage(R message) {}
 
     @Override
-    public void close(Status status, Metadata trailers) {}
+    public void close(Status status, Metadata trailers) {
+      if (onClose != null) {
+        onClose.accept(status, trailers);
+      }
+    }
 
     @Override
     public boolean isCancelled() {
@@ -300,35 +872,94 @@ public abstract class BaseGrpcController implements ApplicationContextAware {
     }
   }
 
+  /**
+   * Get the simulation of MethodDescriptor of the controller method which calls with a consumer.
+   * <p>
+   *   In a request of spring mvc, it is looked up by the handler method which {@link HandlerMethodBinder} binds to
+   *   the request, not by the consumer, which may be shared by several methods. Out of spring mvc, the caller is
+   *   found in the stack of every call, such a caller should pass {@link #getMethodDescriptor(String)} instead.
+   * </p>
+   * @return  a simulation of MethodDescriptor
+   */
+  private MethodDescriptor getCallerMethodDescriptor() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    Object handler = attributes == null ? null
+            : attributes.getAttribute(HandlerMethodBinder.HANDLER_METHOD_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (handler instanceof HandlerMethod) {
+      Method method = ((HandlerMethod) handler).getMethod();
+      MethodDescriptor descriptor = handlers.get(method);
+      return descriptor != null ? descriptor : handlers.computeIfAbsent(method, this::getMethodDescriptor);
+    }
+    StackTraceElement caller = getCaller();
+    return callers.computeIfAbsent(caller.getClassName(), name -> Maps.newConcurrentMap())
+            .computeIfAbsent(caller.getMethodName(), name -> getMethodDescriptor(caller.getClassName(), name));
+  }
+
+  /**
+   * Get the simulation of MethodDescriptor of a method of this controller, one instance for every method.
+   * A controller can keep it in a field and pass it to the overloads which take a MethodDescriptor.
+   * @param methodName  the name of controller method
+   * @return  a simulation of MethodDescriptor
+   */
+  protected MethodDescriptor getMethodDescriptor(String methodName) {
+    return getMethodDescriptor(ClassUtils.getUserClass(getClass()).getName(), methodName);
+  }
+
+  /**
+   * Get the simulation of MethodDescriptor of a handler method.
+   * @param method  the handler method
+   * @return  a simulation of MethodDescriptor
+   */
+  private MethodDescriptor getMethodDescriptor(Method method) {
+    return getMethodDescriptor(method.getDeclaringClass().getName(), method.getName());
+  }
+
+  /**
+   * Get the simulation of MethodDescriptor of a controller method, one instance for every method.
+   * @param className   the name of controller class
+   * @param methodName  the name of controller method
+   * @return  a simulation of MethodDescriptor
+   */
+  protected MethodDescriptor getMethodDescriptor(String className, String methodName) {
+    String[] classNames = className.split("\\.");
+    String fullMethodName = Joiner.on('/').join(classNames[classNames.length - 1], methodName);
+    return descriptors.computeIfAbsent(fullMethodName, BaseGrpcController::createMethodDescriptor);
+  }
+
   /**
    * Create a simulation of MethodDescriptor, use to unified processing gRPC interceptors.
+   * @param fullMethodName  the full method name
    * @return  a simulation of MethodDescriptor
    * @see MethodDescriptor
    */
   @SuppressWarnings("unchecked")
-  private static MethodDescriptor createMethodDescriptor() {
-    StackTraceElement element = getStack();
-    String[] classNames = element.getClassName().split("\\.");
+  private static MethodDescriptor createMethodDescriptor(String fullMethodName) {
     return MethodDescriptor.newBuilder(NONE_MARSHALLER, NONE_MARSHALLER)
             .setType(MethodDescriptor.MethodType.UNARY)
-            .setFullMethodName(Joiner.on('/').join(classNames[classNames.length - 1], element.getMethodName()))
+            .setFullMethodName(fullMethodName)
             .setSchemaDescriptor(HeadersFilter.newBuilder().build())
             .build();
   }
 
   /**
-   * Get stack of call chain.
-   * @return  stack of call chain
+   * Get the first caller out of BaseGrpcController in stack of call chain.
+   * @return  the caller
    */
-  private static StackTraceElement getStack() {
-    StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-    int index = 0;
-    while (index++ >= stackTrace.length) {
-      StackTraceElement element = stackTrace[index];
-      if (!element.getClassName().startsWith(BaseGrpcController.class.getName())) {
-        return stackTrace[index];
+  private static StackTraceElement getCaller() {
+    for (StackTraceElement element : new Throwable().getStackTrace()) {
+      if (!isInternalClass(element.getClassName())) {
+        return element;
       }
     }
-    return stackTrace[1];
+    throw new IllegalStateException("No caller of BaseGrpcController in stack.");
+  }
+
+  /**
+   * @param className name of a class in stack
+   * @return  true if the class is BaseGrpcController or its inner class
+   */
+  private static boolean isInternalClass(String className) {
+    return className.equals(BaseGrpcController.class.getName())
+            || className.startsWith(BaseGrpcController.class.getName() + "$");
   }
 }
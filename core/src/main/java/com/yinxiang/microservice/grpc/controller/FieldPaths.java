@@ -0,0 +1,129 @@
+package com.yinxiang.microservice.grpc.controller;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+
+import java.util.List;
+
+/**
+ * Helpers of field paths like "a.b.c" in http rules, bind string values of path and query to a message.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+final class FieldPaths {
+  private static final Splitter DOT = Splitter.on('.');
+
+  private FieldPaths() {}
+
+  /**
+   * Resolve a field path from a message descriptor.
+   * @param descriptor  the descriptor of message
+   * @param path        field path, split by '.'
+   * @return  fields of the path, or null if any field does not exist or is not a message except the last one
+   */
+  static List<FieldDescriptor> resolve(Descriptor descriptor, String path) {
+    ImmutableList.Builder<FieldDescriptor> builder = ImmutableList.builder();
+    for (String name : DOT.split(path)) {
+      if (descriptor == null) {
+        return null;
+      }
+      FieldDescriptor field = descriptor.findFieldByName(name);
+      if (field == null) {
+        return null;
+      }
+      builder.add(field);
+      descriptor = field.getJavaType() == FieldDescriptor.JavaType.MESSAGE && !field.isRepeated()
+              ? field.getMessageType()
+              : null;
+    }
+    return builder.build();
+  }
+
+  /**
+   * Get the builder of the message which owns the last field of path.
+   * @param builder the builder of root message
+   * @param fields  fields of path
+   * @return  the builder of the last message
+   */
+  static Message.Builder getOwnerBuilder(Message.Builder builder, List<FieldDescriptor> fields) {
+    for (int i = 0; i < fields.size() - 1; i++) {
+      builder = builder.getFieldBuilder(fields.get(i));
+    }
+    return builder;
+  }
+
+  /**
+   * Bind string values to the last field of path, a repeated field adds all values, else set the last value.
+   * @param builder the builder of root message
+   * @param fields  fields of path
+   * @param values  string values
+   * @throws IllegalArgumentException if a value can not convert to the type of field
+   */
+  static void bind(Message.Builder builder, List<FieldDescriptor> fields, List<String> values) {
+    Message.Builder owner = getOwnerBuilder(builder, fields);
+    FieldDescriptor field = fields.get(fields.size() - 1);
+    if (field.isRepeated()) {
+      for (String value : values) {
+        owner.addRepeatedField(field, parse(field, value));
+      }
+    } else if (!values.isEmpty()) {
+      owner.setField(field, parse(field, values.get(values.size() - 1)));
+    }
+  }
+
+  /**
+   * Convert a string to the value of field.
+   * @param field the field
+   * @param value string value
+   * @return  value of field
+   * @throws IllegalArgumentException if the value can not convert to the type of field
+   */
+  static Object parse(FieldDescriptor field, String value) {
+    switch (field.getType()) {
+      case INT32:
+      case SINT32:
+      case SFIXED32:
+        return Integer.parseInt(value);
+      case UINT32:
+      case FIXED32:
+        return Integer.parseUnsignedInt(value);
+      case INT64:
+      case SINT64:
+      case SFIXED64:
+        return Long.parseLong(value);
+      case UINT64:
+      case FIXED64:
+        return Long.parseUnsignedLong(value);
+      case FLOAT:
+        return Float.parseFloat(value);
+      case DOUBLE:
+        return Double.parseDouble(value);
+      case BOOL:
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+          return Boolean.parseBoolean(value);
+        }
+        throw new IllegalArgumentException("invalid bool value of " + field.getName() + ": " + value);
+      case STRING:
+        return value;
+      case BYTES:
+        return ByteString.copyFrom(BaseEncoding.base64().decode(value));
+      case ENUM:
+        EnumValueDescriptor enumValue = field.getEnumType().findValueByName(value);
+        if (enumValue == null) {
+          enumValue = field.getEnumType().findValueByNumber(Integer.parseInt(value));
+        }
+        if (enumValue == null) {
+          throw new IllegalArgumentException("invalid enum value of " + field.getName() + ": " + value);
+        }
+        return enumValue;
+      default:
+        throw new IllegalArgumentException("unsupported field type of " + field.getName() + ": " + field.getType());
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.yinxiang.microservice.grpc.controller;
+
+import org.springframework.lang.NonNull;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Bind the handler method of spring mvc to its request, the header-only overloads of {@link BaseGrpcController} name
+ * the descriptor by it, without walking the stack.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class HandlerMethodBinder implements HandlerInterceptor {
+  /** The request attribute of the handler method. */
+  public static final String HANDLER_METHOD_ATTRIBUTE = HandlerMethodBinder.class.getName() + ".handlerMethod";
+
+  @Override
+  public boolean preHandle(
+          @NonNull HttpServletRequest request,
+          @NonNull HttpServletResponse response,
+          @NonNull Object handler
+  ) {
+    if (handler instanceof HandlerMethod) {
+      request.setAttribute(HANDLER_METHOD_ATTRIBUTE, handler);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,215 @@
+package com.yinxiang.microservice.grpc.controller;
+
+import com.google.api.HttpRule;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.protobuf.DescriptorProtos.MethodOptions;
+import com.google.protobuf.DescriptorProtos.ServiceOptions;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.yinxiang.microservice.grpc.context.GrpcServerInitializedEvent;
+import com.yinxiang.microservice.grpc.util.GrpcUtils;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.protobuf.ProtoMethodDescriptorSupplier;
+import io.grpc.protobuf.ProtoServiceDescriptorSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Register http routes of all bound gRPC services by their google.api.http options when the gRPC server starts.
+ * The path of service option yinxiang.grpc.http.url is the prefix of all routes of the service.
+ * A rule of post, put or patch without body takes the whole body as the request, the same as generated controllers.
+ * Every route owns a precompiled {@link TranscodingHandler}, and the call processes interceptors of the server.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class HttpTranscodingRegistrar implements ApplicationListener<GrpcServerInitializedEvent>, ApplicationContextAware {
+  private static final Logger log = LoggerFactory.getLogger(HttpTranscodingRegistrar.class);
+  /** The option name of http rule. */
+  private static final String OPTION_HTTP = "google.api.http";
+  /** The option name of service url. */
+  private static final String OPTION_URL = "yinxiang.grpc.http.url";
+  /** The bean name of spring mvc's RequestMappingHandlerMapping. */
+  private static final String HANDLER_MAPPING = "requestMappingHandlerMapping";
+  /** A variable of path template: {field} or {field=pattern}. */
+  private static final Pattern VARIABLE = Pattern.compile("\\{([^=}]+)(?:=([^}]*))?}");
+  /** Request methods with body. */
+  private static final Set<RequestMethod> BODY_METHODS =
+          Sets.immutableEnumSet(RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH);
+
+  /** Registered routes, a service may be bound to more than one server. */
+  private final Set<String> routes = Sets.newConcurrentHashSet();
+  private ApplicationContext applicationContext;
+
+  @Override
+  public void setApplicationContext(@NonNull ApplicationContext applicationContext) throws BeansException {
+    this.applicationContext = applicationContext;
+  }
+
+  @Override
+  public void onApplicationEvent(@NonNull GrpcServerInitializedEvent event) {
+    RequestMappingHandlerMapping mapping = applicationContext.getBean(HANDLER_MAPPING, RequestMappingHandlerMapping.class);
+    event.getServer().getServices().forEach(service -> register(mapping, service));
+  }
+
+  /**
+   * Register all routes of a service.
+   * @param mapping the handler mapping of spring mvc
+   * @param service the bound gRPC service
+   */
+  @SuppressWarnings("unchecked")
+  private void register(RequestMappingHandlerMapping mapping, ServerServiceDefinition service) {
+    Object schemaDescriptor = service.getServiceDescriptor().getSchemaDescriptor();
+    if (!(schemaDescriptor instanceof ProtoServiceDescriptorSupplier)) {
+      return;
+    }
+    ServiceOptions options = ((ProtoServiceDescriptorSupplier) schemaDescriptor).getServiceDescriptor().getOptions();
+    String prefix = GrpcUtils.<String, ServiceOptions>findFirstOptionValue(options, OPTION_URL)
+            .map(url -> UriComponentsBuilder.fromUriString(url).build().getPath())
+            .map(path -> path.endsWith("/") ? path.substring(0, path.length() - 1) : path)
+            .orElse("");
+    for (ServerMethodDefinition<?, ?> method : service.getMethods()) {
+      Object methodSchema = method.getMethodDescriptor().getSchemaDescriptor();
+      if (methodSchema instanceof ProtoMethodDescriptorSupplier) {
+        MethodOptions methodOptions = ((ProtoMethodDescriptorSupplier) methodSchema).getMethodDescriptor().getOptions();
+        GrpcUtils.<HttpRule, MethodOptions>findFirstOptionValue(methodOptions, OPTION_HTTP).ifPresent(rule -> {
+          register(mapping, prefix, (ServerMethodDefinition<Message, Message>) method, rule);
+          rule.getAdditionalBindingsList().forEach(binding ->
+                  register(mapping, prefix, (ServerMethodDefinition<Message, Message>) method, binding));
+        });
+      }
+    }
+  }
+
+  /**
+   * Register a route of a http rule.
+   * @param mapping     the handler mapping of spring mvc
+   * @param prefix      the prefix of path
+   * @param definition  the bound gRPC method
+   * @param rule        http rule
+   */
+  private void register(
+          RequestMappingHandlerMapping mapping,
+          String prefix,
+          ServerMethodDefinition<Message, Message> definition,
+          HttpRule rule
+  ) {
+    MethodDescriptor<Message, Message> method = definition.getMethodDescriptor();
+    Optional<RequestMethod> requestMethod = getRequestMethod(rule);
+    String template = getPathTemplate(rule);
+    if (!requestMethod.isPresent() || Strings.isNullOrEmpty(template)) {
+      log.warn("HttpTranscodingRegistrar ignore the http rule of {}: {}", method.getFullMethodName(), rule);
+      return;
+    }
+    if (!(method.getRequestMarshaller() instanceof MethodDescriptor.PrototypeMarshaller)) {
+      return;
+    }
+    Message prototype = ((MethodDescriptor.PrototypeMarshaller<Message>) method.getRequestMarshaller()).getMessagePrototype();
+    Descriptor descriptor = prototype.getDescriptorForType();
+    // resolve all fields of path variables and body
+    Map<String, List<FieldDescriptor>> variables = Maps.newLinkedHashMap();
+    StringBuffer path = new StringBuffer(prefix);
+    Matcher matcher = VARIABLE.matcher(template);
+    while (matcher.find()) {
+      String field = matcher.group(1).trim();
+      String pattern = matcher.group(2);
+      List<FieldDescriptor> fields = FieldPaths.resolve(descriptor, field);
+      if (fields == null || (pattern != null && !"*".equals(pattern))) {
+        log.warn("HttpTranscodingRegistrar unsupported path variable of {}: {}", method.getFullMethodName(), template);
+        return;
+      }
+      variables.put(field, fields);
+      matcher.appendReplacement(path, Matcher.quoteReplacement("{" + field + "}"));
+    }
+    matcher.appendTail(path);
+    List<FieldDescriptor> body = null;
+    boolean bindParams = !"*".equals(rule.getBody());
+    // the whole body, or a rule of post/put/patch without body takes the whole body as generated controllers do
+    if (!bindParams || (rule.getBody().isEmpty() && BODY_METHODS.contains(requestMethod.get()))) {
+      body = ImmutableList.of();
+    } else if (!rule.getBody().isEmpty()) {
+      body = FieldPaths.resolve(descriptor, rule.getBody());
+      if (body == null || body.get(body.size() - 1).getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+        log.warn("HttpTranscodingRegistrar unsupported body of {}: {}", method.getFullMethodName(), rule.getBody());
+        return;
+      }
+    }
+    // register into spring mvc, only once for a route
+    String route = requestMethod.get() + " " + path;
+    if (routes.add(route)) {
+      try {
+        mapping.registerMapping(
+                RequestMappingInfo.paths(path.toString()).methods(requestMethod.get()).build(),
+                new TranscodingHandler(definition, prototype, variables, body, bindParams),
+                TranscodingHandler.HANDLE_METHOD
+        );
+        log.info("HttpTranscodingRegistrar register {} to {}", route, method.getFullMethodName());
+      } catch (IllegalStateException e) {
+        log.warn("HttpTranscodingRegistrar can not register {}: {}", route, e.getMessage());
+      }
+    }
+  }
+
+  private static Optional<RequestMethod> getRequestMethod(HttpRule rule) {
+    switch (rule.getPatternCase()) {
+      case GET:
+        return Optional.of(RequestMethod.GET);
+      case PUT:
+        return Optional.of(RequestMethod.PUT);
+      case POST:
+        return Optional.of(RequestMethod.POST);
+      case DELETE:
+        return Optional.of(RequestMethod.DELETE);
+      case PATCH:
+        return Optional.of(RequestMethod.PATCH);
+      case CUSTOM:
+        try {
+          return Optional.of(RequestMethod.valueOf(rule.getCustom().getKind().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+          return Optional.empty();
+        }
+      default:
+        return Optional.empty();
+    }
+  }
+
+  private static String getPathTemplate(HttpRule rule) {
+    switch (rule.getPatternCase()) {
+      case GET:
+        return rule.getGet();
+      case PUT:
+        return rule.getPut();
+      case POST:
+        return rule.getPost();
+      case DELETE:
+        return rule.getDelete();
+      case PATCH:
+        return rule.getPatch();
+      case CUSTOM:
+        return rule.getCustom().getPath();
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.yinxiang.microservice.grpc.controller;
+
+import io.grpc.Status;
+
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * The inputs of request body, throw if more than a limit are read, thus a large body fails before it is merged.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+final class LimitedInputs {
+  private LimitedInputs() {}
+
+  /**
+   * Create the exception of a body which exceeds the limit, same as gRPC server.
+   * @param limit the max size
+   * @return  exception with the status of RESOURCE_EXHAUSTED
+   */
+  private static RuntimeException exceeded(long limit) {
+    return Status.RESOURCE_EXHAUSTED
+            .withDescription("Request body is larger than the max inbound message size: " + limit)
+            .asRuntimeException();
+  }
+
+  /** An InputStream throws if more than the limit of bytes are read. */
+  static class LimitedInputStream extends FilterInputStream {
+    /** The max bytes. */
+    private final long limit;
+    /** The read bytes. */
+    private long count;
+
+    LimitedInputStream(InputStream in, long limit) {
+      super(in);
+      this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        count(n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count(skipped);
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    private void count(long n) {
+      count += n;
+      if (count > limit) {
+        throw exceeded(limit);
+      }
+    }
+  }
+
+  /** A Reader throws if more than the limit of chars are read. */
+  static class LimitedReader extends FilterReader {
+    /** The max chars. */
+    private final long limit;
+    /** The read chars. */
+    private long count;
+
+    LimitedReader(Reader in, long limit) {
+      super(in);
+      this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int c = super.read();
+      if (c != -1) {
+        count(1);
+      }
+      return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      int n = super.read(cbuf, off, len);
+      if (n > 0) {
+        count(n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count(skipped);
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    private void count(long n) {
+      count += n;
+      if (count > limit) {
+        throw exceeded(limit);
+      }
+    }
+  }
+}
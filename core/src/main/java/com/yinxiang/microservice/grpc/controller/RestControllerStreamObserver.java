@@ -2,15 +2,19 @@ package com.yinxiang.microservice.grpc.controller;
 
 import com.google.common.collect.Lists;
 import com.google.protobuf.Message;
-import com.googlecode.protobuf.format.JsonFormat;
+import com.yinxiang.microservice.grpc.codec.JsonCodec;
 import io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A StreamObserver of rest controller.
+ * The messages may be added by the thread of gRPC method and read by another, the list is guarded by this.
  * @param <V> message type
  * @author Huiyuan Fu
  * @since 1.0.0
@@ -19,25 +23,54 @@ class RestControllerStreamObserver<V extends Message> implements StreamObserver<
   private static final Logger log = LoggerFactory.getLogger(RestControllerStreamObserver.class);
   /** List of messages. */
   private final List<V> list = Lists.newLinkedList();
-  /** protobuf - json formatter. */
-  private final JsonFormat jsonFormat;
+  /** protobuf - json codec. */
+  private final JsonCodec codec;
+  /** Completed with the json string result by onCompleted, or exceptionally by onError. */
+  private final CompletableFuture<String> future = new CompletableFuture<>();
 
-  RestControllerStreamObserver(JsonFormat jsonFormat) {
-    this.jsonFormat = jsonFormat;
+  RestControllerStreamObserver(JsonCodec codec) {
+    this.codec = codec;
   }
 
   @Override
-  public void onNext(V v) {
+  public synchronized void onNext(V v) {
     list.add(v);
   }
 
   @Override
   public void onError(Throwable throwable) {
     log.error("RestControllerStreamObserver onError: " + throwable.getMessage(), throwable);
+    future.completeExceptionally(throwable);
   }
 
   @Override
-  public void onCompleted() {}
+  public void onCompleted() {
+    future.complete(toString());
+  }
+
+  /**
+   * Get the future of json string result.
+   * @return  a future completed when the stream ends
+   */
+  CompletableFuture<String> getFuture() {
+    return future;
+  }
+
+  /**
+   * Write the protobuf binary result.
+   * @param outputStream  the output stream of response
+   * @param delimited     write every message with a varint length prefix, or write the only one message
+   * @throws IOException  IOException
+   */
+  synchronized void writeTo(OutputStream outputStream, boolean delimited) throws IOException {
+    if (delimited) {
+      for (V message : list) {
+        message.writeDelimitedTo(outputStream);
+      }
+    } else if (list.size() > 0) {
+      list.get(0).writeTo(outputStream);
+    }
+  }
 
   /**
    * Generate the json string result.
@@ -46,19 +79,19 @@ class RestControllerStreamObserver<V extends Message> implements StreamObserver<
    * @return the json string
    */
   @Override
-  public String toString() {
+  public synchronized String toString() {
     // return empty json
     if (list.size() == 0) {
       return "{}";
     }
     // return the json of only one message
     else if (list.size() == 1) {
-      return jsonFormat.printToString(list.get(0));
+      return codec.printToString(list.get(0));
     }
     // return the json array of messages when more then one message
     else {
       StringBuilder builder = new StringBuilder("[");
-      list.forEach(message -> builder.append(jsonFormat.printToString(message)).append(","));
+      list.forEach(message -> builder.append(codec.printToString(message)).append(","));
       builder.setLength(builder.length() - 1);
       return builder.append("]").toString();
     }
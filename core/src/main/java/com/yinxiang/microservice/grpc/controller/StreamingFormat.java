@@ -0,0 +1,93 @@
+package com.yinxiang.microservice.grpc.controller;
+
+import com.google.common.collect.ImmutableMap;
+import com.yinxiang.microservice.grpc.inject.Marshaller;
+import io.grpc.Status;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The formats of streaming http response, every gRPC message is written as a frame.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public enum StreamingFormat {
+  /** Newline delimited json, a json of message per line, and an error is a line of {"error": {...}}. */
+  NDJSON(MediaType.valueOf("application/x-ndjson")) {
+    @Override
+    void beginMessage(Writer writer) {}
+
+    @Override
+    void endMessage(Writer writer) throws IOException {
+      writer.write('\n');
+    }
+
+    @Override
+    void writeError(Writer writer, Status status) throws IOException {
+      writer.write(Marshaller.commonToJson(ImmutableMap.of("error", errorOf(status))));
+      writer.write('\n');
+    }
+  },
+  /** Server-Sent Events, a data event of message, and an error is an event named error. */
+  SSE(MediaType.TEXT_EVENT_STREAM) {
+    @Override
+    void beginMessage(Writer writer) throws IOException {
+      writer.write("data: ");
+    }
+
+    @Override
+    void endMessage(Writer writer) throws IOException {
+      writer.write("\n\n");
+    }
+
+    @Override
+    void writeError(Writer writer, Status status) throws IOException {
+      writer.write("event: error\ndata: ");
+      writer.write(Marshaller.commonToJson(errorOf(status)));
+      writer.write("\n\n");
+    }
+  };
+
+  /** The content type of response. */
+  private final MediaType mediaType;
+
+  StreamingFormat(MediaType mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  /** @see #mediaType */
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+
+  /**
+   * Write the prefix of a message frame.
+   * @param writer  the writer of response
+   * @throws IOException  IOException
+   */
+  abstract void beginMessage(Writer writer) throws IOException;
+
+  /**
+   * Write the suffix of a message frame.
+   * @param writer  the writer of response
+   * @throws IOException  IOException
+   */
+  abstract void endMessage(Writer writer) throws IOException;
+
+  /**
+   * Write an error frame, the http status is already sent so the error can only be a frame.
+   * @param writer  the writer of response
+   * @param status  gRPC status
+   * @throws IOException  IOException
+   */
+  abstract void writeError(Writer writer, Status status) throws IOException;
+
+  private static ImmutableMap<String, Object> errorOf(Status status) {
+    return ImmutableMap.of(
+            "code", status.getCode().value(),
+            "message", status.getDescription() == null ? status.getCode().name() : status.getDescription()
+    );
+  }
+}
@@ -0,0 +1,207 @@
+package com.yinxiang.microservice.grpc.controller;
+
+import com.google.protobuf.Message;
+import com.yinxiang.microservice.grpc.codec.JsonCodec;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A StreamObserver of rest controller, write every message to the response as soon as it arrives.
+ * The writing is blocking, so a producer calling onNext is slowed down to the speed of the client.
+ * A cancelled call is done too, so the thread of response is not held by a producer which never ends.
+ * @param <V> message type
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class StreamingRestControllerStreamObserver<V extends Message> extends ServerCallStreamObserver<V> {
+  private static final Logger log = LoggerFactory.getLogger(StreamingRestControllerStreamObserver.class);
+  /** protobuf - json codec. */
+  private final JsonCodec codec;
+  /** The format of frames. */
+  private final StreamingFormat format;
+  /** Count down when completed or error. */
+  private final CountDownLatch done = new CountDownLatch(1);
+  /** The writer of response, bound when the response starts. */
+  private Writer writer;
+  /** The status of an interceptor which closes the call before the response starts. */
+  private StatusRuntimeException closed;
+  /** True when the client has gone. */
+  private volatile boolean cancelled;
+  /** Run when the client has gone. */
+  private volatile Runnable onCancelHandler;
+  /** Run once after the gRPC method is called. */
+  private volatile Runnable onReadyHandler;
+
+  StreamingRestControllerStreamObserver(JsonCodec codec, StreamingFormat format) {
+    this.codec = codec;
+    this.format = format;
+  }
+
+  /**
+   * Bind the output stream of response.
+   * @param outputStream  the output stream of response
+   */
+  void start(OutputStream outputStream) {
+    writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+  }
+
+  /** Notify the gRPC method that it can write, like the first onReady of a gRPC call. */
+  void ready() {
+    Runnable handler = onReadyHandler;
+    if (handler != null && !cancelled) {
+      handler.run();
+    }
+  }
+
+  /**
+   * Wait until onCompleted, onError or cancelled.
+   * @param timeout the max time to wait
+   * @param unit    the unit of timeout
+   * @return  false if the time is out
+   * @throws InterruptedException InterruptedException
+   */
+  boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+    return done.await(timeout, unit);
+  }
+
+  /**
+   * Close the call by an interceptor, the status is kept for {@link #checkClosed()} if the response has not started.
+   * @param status    the status of call
+   * @param trailers  the trailers of call
+   */
+  synchronized void close(Status status, Metadata trailers) {
+    if (writer != null) {
+      if (status.isOk()) {
+        onCompleted();
+      } else {
+        onError(status.asRuntimeException(trailers));
+      }
+      return;
+    }
+    if (!status.isOk()) {
+      closed = status.asRuntimeException(trailers);
+    }
+    done.countDown();
+  }
+
+  /** Throw the status of an interceptor which closes the call before the response starts. */
+  synchronized void checkClosed() {
+    if (closed != null) {
+      throw closed;
+    }
+  }
+
+  /**
+   * Cancel the call, the gRPC method is notified by the cancel handler and the waiting response ends.
+   * @param reason  the reason of cancel
+   */
+  void cancel(String reason) {
+    if (cancelled) {
+      return;
+    }
+    log.warn("StreamingRestControllerStreamObserver cancelled: " + reason);
+    cancelled = true;
+    try {
+      Runnable handler = onCancelHandler;
+      if (handler != null) {
+        handler.run();
+      }
+    } finally {
+      done.countDown();
+    }
+  }
+
+  @Override
+  public synchronized void onNext(V v) {
+    if (cancelled) {
+      throw Status.CANCELLED.withDescription("client has gone").asRuntimeException();
+    }
+    try {
+      format.beginMessage(writer);
+      codec.print(v, writer);
+      format.endMessage(writer);
+      // flush every message, thus the client can read it immediately
+      writer.flush();
+    } catch (IOException e) {
+      cancel(e);
+      throw Status.CANCELLED.withDescription("client has gone").withCause(e).asRuntimeException();
+    }
+  }
+
+  @Override
+  public synchronized void onError(Throwable throwable) {
+    log.error("StreamingRestControllerStreamObserver onError: " + throwable.getMessage(), throwable);
+    try {
+      if (!cancelled) {
+        format.writeError(writer, Status.fromThrowable(throwable));
+        writer.flush();
+      }
+    } catch (IOException e) {
+      cancel(e);
+    } finally {
+      done.countDown();
+    }
+  }
+
+  @Override
+  public synchronized void onCompleted() {
+    try {
+      if (!cancelled) {
+        writer.flush();
+      }
+    } catch (IOException e) {
+      cancel(e);
+    } finally {
+      done.countDown();
+    }
+  }
+
+  private void cancel(IOException e) {
+    cancel(e.getMessage());
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override
+  public void setOnCancelHandler(Runnable onCancelHandler) {
+    this.onCancelHandler = onCancelHandler;
+  }
+
+  @Override
+  public void setCompression(String compression) {}
+
+  @Override
+  public boolean isReady() {
+    return !cancelled;
+  }
+
+  @Override
+  public void setOnReadyHandler(Runnable onReadyHandler) {
+    this.onReadyHandler = onReadyHandler;
+  }
+
+  @Override
+  public void disableAutoInboundFlowControl() {}
+
+  @Override
+  public void request(int count) {}
+
+  @Override
+  public void setMessageCompression(boolean enable) {}
+}
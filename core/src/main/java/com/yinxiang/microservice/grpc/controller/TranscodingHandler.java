@@ -0,0 +1,239 @@
+package com.yinxiang.microservice.grpc.controller;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.googlecode.protobuf.format.JsonFormat;
+import com.yinxiang.microservice.grpc.codec.JsonCodec;
+import com.yinxiang.microservice.grpc.codec.JsonCodecs;
+import com.yinxiang.microservice.grpc.inject.Marshaller;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.yinxiang.microservice.grpc.inject.header.StubHeadersProcessor.createMetadata;
+
+/**
+ * A precompiled dispatcher of a http rule, transcode a http request to a call of the bound gRPC method.
+ * All fields of path variables and body are resolved at registration, a request only binds values.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class TranscodingHandler {
+  private static final Logger log = LoggerFactory.getLogger(TranscodingHandler.class);
+  /** The method called by spring mvc. */
+  static final Method HANDLE_METHOD;
+  /** gRPC status - http status, same with google.rpc.Code. */
+  private static final Map<Status.Code, HttpStatus> HTTP_STATUSES = new EnumMap<>(Status.Code.class);
+
+  static {
+    try {
+      HANDLE_METHOD = TranscodingHandler.class.getMethod(
+              "handle", Map.class, MultiValueMap.class, MultiValueMap.class, String.class);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+    HTTP_STATUSES.put(Status.Code.OK, HttpStatus.OK);
+    HTTP_STATUSES.put(Status.Code.CANCELLED, HttpStatus.REQUEST_TIMEOUT);
+    HTTP_STATUSES.put(Status.Code.UNKNOWN, HttpStatus.INTERNAL_SERVER_ERROR);
+    HTTP_STATUSES.put(Status.Code.INVALID_ARGUMENT, HttpStatus.BAD_REQUEST);
+    HTTP_STATUSES.put(Status.Code.DEADLINE_EXCEEDED, HttpStatus.GATEWAY_TIMEOUT);
+    HTTP_STATUSES.put(Status.Code.NOT_FOUND, HttpStatus.NOT_FOUND);
+    HTTP_STATUSES.put(Status.Code.ALREADY_EXISTS, HttpStatus.CONFLICT);
+    HTTP_STATUSES.put(Status.Code.PERMISSION_DENIED, HttpStatus.FORBIDDEN);
+    HTTP_STATUSES.put(Status.Code.RESOURCE_EXHAUSTED, HttpStatus.TOO_MANY_REQUESTS);
+    HTTP_STATUSES.put(Status.Code.FAILED_PRECONDITION, HttpStatus.BAD_REQUEST);
+    HTTP_STATUSES.put(Status.Code.ABORTED, HttpStatus.CONFLICT);
+    HTTP_STATUSES.put(Status.Code.OUT_OF_RANGE, HttpStatus.BAD_REQUEST);
+    HTTP_STATUSES.put(Status.Code.UNIMPLEMENTED, HttpStatus.NOT_IMPLEMENTED);
+    HTTP_STATUSES.put(Status.Code.INTERNAL, HttpStatus.INTERNAL_SERVER_ERROR);
+    HTTP_STATUSES.put(Status.Code.UNAVAILABLE, HttpStatus.SERVICE_UNAVAILABLE);
+    HTTP_STATUSES.put(Status.Code.DATA_LOSS, HttpStatus.INTERNAL_SERVER_ERROR);
+    HTTP_STATUSES.put(Status.Code.UNAUTHENTICATED, HttpStatus.UNAUTHORIZED);
+  }
+
+  /** The bound gRPC method, with all interceptors of the server. */
+  private final ServerMethodDefinition<Message, Message> definition;
+  /** The default instance of request. */
+  private final Message prototype;
+  /** Path variable - fields. */
+  private final Map<String, List<FieldDescriptor>> variables;
+  /** The fields of body, empty if the body is the whole request, null if no body. */
+  private final List<FieldDescriptor> body;
+  /** Bind query parameters or not. */
+  private final boolean bindParams;
+
+  TranscodingHandler(
+          ServerMethodDefinition<Message, Message> definition,
+          Message prototype,
+          Map<String, List<FieldDescriptor>> variables,
+          List<FieldDescriptor> body,
+          boolean bindParams
+  ) {
+    this.definition = definition;
+    this.prototype = prototype;
+    this.variables = variables;
+    this.body = body;
+    this.bindParams = bindParams;
+  }
+
+  /**
+   * Handle a http request.
+   * @param pathVariables path variables
+   * @param params        query parameters
+   * @param headers       http headers
+   * @param json          http body
+   * @return  a future of response, a json of message, or a json array of messages for server streaming method
+   */
+  public CompletableFuture<ResponseEntity<String>> handle(
+          @PathVariable Map<String, String> pathVariables,
+          @RequestParam MultiValueMap<String, String> params,
+          @RequestHeader MultiValueMap<String, String> headers,
+          @RequestBody(required = false) String json
+  ) {
+    Message request;
+    try {
+      request = createRequest(pathVariables, params, json);
+    } catch (JsonFormat.ParseException | IllegalArgumentException e) {
+      return CompletableFuture.completedFuture(
+              error(Status.INVALID_ARGUMENT.withDescription(e.getMessage())));
+    }
+    return call(request, createMetadata(headers));
+  }
+
+  /**
+   * Create the request message from path variables, query parameters and body.
+   * @param pathVariables path variables
+   * @param params        query parameters
+   * @param json          http body
+   * @return  request message
+   * @throws JsonFormat.ParseException  Json Exception
+   */
+  private Message createRequest(Map<String, String> pathVariables, MultiValueMap<String, String> params, String json)
+          throws JsonFormat.ParseException {
+    Message.Builder builder = prototype.newBuilderForType();
+    // merge body
+    if (body != null && !Strings.isNullOrEmpty(json)) {
+      Message.Builder target = body.isEmpty() ? builder : FieldPaths.getOwnerBuilder(builder, body)
+              .getFieldBuilder(body.get(body.size() - 1));
+      JsonCodecs.get().merge(json, target);
+    }
+    // bind path variables
+    variables.forEach((name, fields) -> {
+      String value = pathVariables.get(name);
+      if (value != null) {
+        FieldPaths.bind(builder, fields, Collections.singletonList(value));
+      }
+    });
+    // bind query parameters
+    if (bindParams) {
+      params.forEach((name, values) -> {
+        if (!variables.containsKey(name)) {
+          List<FieldDescriptor> fields = FieldPaths.resolve(prototype.getDescriptorForType(), name);
+          if (fields != null) {
+            FieldPaths.bind(builder, fields, values);
+          }
+        }
+      });
+    }
+    return builder.build();
+  }
+
+  /**
+   * Call the gRPC method through the handler of server, thus all interceptors of the service are processed.
+   * @param request   request message
+   * @param metadata  gRPC metadata
+   * @return  a future of response
+   */
+  private CompletableFuture<ResponseEntity<String>> call(Message request, Metadata metadata) {
+    MethodDescriptor<Message, Message> method = definition.getMethodDescriptor();
+    TranscodingServerCall<Message, Message> call = new TranscodingServerCall<>(method);
+    ServerCall.Listener<Message> listener = null;
+    try {
+      listener = definition.getServerCallHandler().startCall(call, metadata);
+      listener.onReady();
+      listener.onMessage(request);
+      listener.onHalfClose();
+    } catch (RuntimeException e) {
+      log.info("TranscodingHandler call {} Exception: {}", method.getFullMethodName(), e.getMessage());
+      call.close(Status.fromThrowable(e), new Metadata());
+    }
+    final ServerCall.Listener<Message> started = listener;
+    return call.getClosed().thenApply(status -> {
+      if (started != null) {
+        if (status.isOk()) {
+          started.onComplete();
+        } else {
+          started.onCancel();
+        }
+      }
+      return status.isOk() ? ok(method, call.getMessages()) : error(status);
+    });
+  }
+
+  /**
+   * Create the response of messages.
+   * @param method    the descriptor of gRPC method
+   * @param messages  response messages
+   * @return  a json of message, or a json array of messages for server streaming method
+   */
+  private static ResponseEntity<String> ok(MethodDescriptor<Message, Message> method, List<Message> messages) {
+    JsonCodec codec = JsonCodecs.get();
+    StringBuilder builder = new StringBuilder();
+    try {
+      if (method.getType().serverSendsOneMessage()) {
+        if (messages.isEmpty()) {
+          builder.append("{}");
+        } else {
+          codec.print(messages.get(0), builder);
+        }
+      } else {
+        builder.append('[');
+        for (int i = 0; i < messages.size(); i++) {
+          if (i > 0) {
+            builder.append(',');
+          }
+          codec.print(messages.get(i), builder);
+        }
+        builder.append(']');
+      }
+    } catch (IOException e) {
+      // StringBuilder never throws
+      throw new IllegalStateException(e);
+    }
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(builder.toString());
+  }
+
+  /**
+   * Create the response of a failed status.
+   * @param status  gRPC status
+   * @return  a json of {"code": gRPC code, "message": description}
+   */
+  private static ResponseEntity<String> error(Status status) {
+    String message = status.getDescription() == null ? status.getCode().name() : status.getDescription();
+    return ResponseEntity.status(HTTP_STATUSES.getOrDefault(status.getCode(), HttpStatus.INTERNAL_SERVER_ERROR))
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .body(Marshaller.commonToJson(ImmutableMap.of("code", status.getCode().value(), "message", message)));
+  }
+}
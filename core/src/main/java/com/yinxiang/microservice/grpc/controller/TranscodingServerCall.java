@@ -0,0 +1,71 @@
+package com.yinxiang.microservice.grpc.controller;
+
+import com.google.common.collect.Lists;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.Status;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A ServerCall of transcoding http request, collects response messages and completes with the status of close.
+ * @param <T> request type
+ * @param <R> response type
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class TranscodingServerCall<T, R> extends ServerCall<T, R> {
+  /** The descriptor of gRPC method. */
+  private final MethodDescriptor<T, R> methodDescriptor;
+  /** List of response messages. */
+  private final List<R> messages = Lists.newArrayList();
+  /** Completed with the status of close. */
+  private final CompletableFuture<Status> closed = new CompletableFuture<>();
+
+  TranscodingServerCall(MethodDescriptor<T, R> methodDescriptor) {
+    this.methodDescriptor = methodDescriptor;
+  }
+
+  /** @see #messages */
+  List<R> getMessages() {
+    return messages;
+  }
+
+  /** @see #closed */
+  CompletableFuture<Status> getClosed() {
+    return closed;
+  }
+
+  @Override
+  public void request(int numMessages) {}
+
+  @Override
+  public void sendHeaders(Metadata headers) {}
+
+  @Override
+  public synchronized void sendMessage(R message) {
+    messages.add(message);
+  }
+
+  @Override
+  public synchronized void close(Status status, Metadata trailers) {
+    closed.complete(status);
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return false;
+  }
+
+  @Override
+  public boolean isReady() {
+    return !closed.isDone();
+  }
+
+  @Override
+  public MethodDescriptor<T, R> getMethodDescriptor() {
+    return methodDescriptor;
+  }
+}
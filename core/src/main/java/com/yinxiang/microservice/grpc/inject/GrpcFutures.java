@@ -0,0 +1,140 @@
+package com.yinxiang.microservice.grpc.inject;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.Message;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ClientCalls;
+import org.slf4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The async calls of the generated clients, which return {@link CompletableFuture} or {@link ListenableFuture}.
+ * <p>
+ *   The call never blocks a thread, the reply is adapted in the callback of gRPC. A {@link Message} is passed as is,
+ *   a json string or a POJO is marshalled on the executor of {@link io.grpc.CallOptions}, or on the
+ *   {@link ForkJoinPool#commonPool()}, never on the event loop.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public final class GrpcFutures {
+  private GrpcFutures() {}
+
+  /**
+   * Start an unary call by the channel and the call options of a stub, whatever the kind of stub is.
+   * @param stub    {@link AbstractStub}
+   * @param method  {@link MethodDescriptor} of the method
+   * @param request request
+   * @param <ReqT>  request type
+   * @param <RespT> reply type
+   * @return  {@link ListenableFuture} of the reply
+   */
+  public static <ReqT, RespT> ListenableFuture<RespT> unaryCall(
+          AbstractStub<?> stub,
+          MethodDescriptor<ReqT, RespT> method,
+          ReqT request
+  ) {
+    return ClientCalls.futureUnaryCall(stub.getChannel().newCall(method, stub.getCallOptions()), request);
+  }
+
+  /**
+   * Adapt the reply to a {@link ListenableFuture} of type.
+   * @param future  {@link ListenableFuture} of the reply
+   * @param type    type of the value, a {@link Message}, {@link String} or a POJO
+   * @param stub    the stub of call
+   * @return  {@link ListenableFuture}
+   */
+  public static ListenableFuture<Object> toListenableFuture(
+          ListenableFuture<? extends Message> future,
+          Class<?> type,
+          AbstractStub<?> stub
+  ) {
+    return Futures.transform(future, reply -> Marshaller.toValue(reply, type), executor(type, stub));
+  }
+
+  /**
+   * Adapt the reply to a {@link CompletableFuture} of type, cancel the {@link CompletableFuture} cancels the call.
+   * @param future  {@link ListenableFuture} of the reply
+   * @param type    type of the value, a {@link Message}, {@link String} or a POJO
+   * @param stub    the stub of call
+   * @return  {@link CompletableFuture}
+   */
+  public static CompletableFuture<Object> toCompletableFuture(
+          ListenableFuture<? extends Message> future,
+          Class<?> type,
+          AbstractStub<?> stub
+  ) {
+    CompletableFuture<Object> completable = new CompletableFuture<Object>() {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+        future.cancel(mayInterruptIfRunning);
+        return super.cancel(mayInterruptIfRunning);
+      }
+    };
+    Futures.addCallback(future, new FutureCallback<Message>() {
+      @Override
+      public void onSuccess(Message reply) {
+        try {
+          completable.complete(Marshaller.toValue(reply, type));
+        } catch (RuntimeException e) {
+          completable.completeExceptionally(e);
+        }
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        completable.completeExceptionally(t);
+      }
+    }, executor(type, stub));
+    return completable;
+  }
+
+  /**
+   * Log the failure of a safe method, and complete with null.
+   * @param future  {@link CompletableFuture}
+   * @param log     {@link Logger} of the client
+   * @param name    name of the method
+   * @return  {@link CompletableFuture}
+   */
+  public static CompletableFuture<Object> safe(CompletableFuture<Object> future, Logger log, String name) {
+    return future.exceptionally(t -> {
+      log.error(name + " Exception: " + t.getMessage(), t);
+      return null;
+    });
+  }
+
+  /**
+   * Log the failure of a safe method, and complete with null.
+   * @param future  {@link ListenableFuture}
+   * @param log     {@link Logger} of the client
+   * @param name    name of the method
+   * @return  {@link ListenableFuture}
+   */
+  public static ListenableFuture<Object> safe(ListenableFuture<Object> future, Logger log, String name) {
+    return Futures.catching(future, Throwable.class, t -> {
+      log.error(name + " Exception: " + t.getMessage(), t);
+      return null;
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Get the executor to adapt the reply, a {@link Message} is adapted in the callback.
+   * @param type  type of the value
+   * @param stub  the stub of call
+   * @return  {@link Executor}
+   */
+  private static Executor executor(Class<?> type, AbstractStub<?> stub) {
+    if (Message.class.isAssignableFrom(type)) {
+      return MoreExecutors.directExecutor();
+    }
+    Executor executor = stub.getCallOptions().getExecutor();
+    return executor == null ? ForkJoinPool.commonPool() : executor;
+  }
+}
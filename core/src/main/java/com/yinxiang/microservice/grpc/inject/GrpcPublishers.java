@@ -0,0 +1,268 @@
+package com.yinxiang.microservice.grpc.inject;
+
+import com.google.protobuf.Message;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The streaming calls of the generated clients, which return or take a reactive-streams {@link Publisher}.
+ * <p>
+ *   A {@link Publisher} of replies is cold, every subscriber starts a new call, and the demand of subscriber is
+ *   requested from gRPC, so a slow subscriber never buffers unbounded replies.
+ *   A {@link Publisher} of requests is requested one by one when the call is ready to send.
+ *   The reactive-streams is an optional dependency, only the clients which use it need it on the classpath.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public final class GrpcPublishers {
+  private GrpcPublishers() {}
+
+  /**
+   * Create a {@link Publisher} of a server streaming call, by the channel and the call options of a stub.
+   * @param stub    {@link AbstractStub}
+   * @param method  {@link MethodDescriptor} of the method
+   * @param request request
+   * @param type    type of the values, a {@link Message}, {@link String} or a POJO
+   * @param <ReqT>  request type
+   * @return  {@link Publisher} of the replies
+   */
+  public static <ReqT> Publisher<Object> serverStreaming(
+          AbstractStub<?> stub,
+          MethodDescriptor<ReqT, ? extends Message> method,
+          ReqT request,
+          Class<?> type
+  ) {
+    return new ReplyPublisher<ReqT>(type, observer -> {
+      ClientCalls.asyncServerStreamingCall(GrpcStreams.newCall(stub, method), request, observer);
+      observer.started();
+    });
+  }
+
+  /**
+   * Create a {@link Publisher} of a bidi streaming call, by the channel and the call options of a stub.
+   * @param stub      {@link AbstractStub}
+   * @param method    {@link MethodDescriptor} of the method
+   * @param requests  {@link Publisher} of the requests, subscribed by every call
+   * @param type      type of the values, a {@link Message}, {@link String} or a POJO
+   * @param <ReqT>    request type
+   * @return  {@link Publisher} of the replies
+   */
+  public static <ReqT> Publisher<Object> bidiStreaming(
+          AbstractStub<?> stub,
+          MethodDescriptor<ReqT, ? extends Message> method,
+          Publisher<ReqT> requests,
+          Class<?> type
+  ) {
+    return new ReplyPublisher<ReqT>(type, bidiStarter(stub, method, requests));
+  }
+
+  /**
+   * Start a bidi streaming call, by the channel and the call options of a stub.
+   * @param stub      {@link AbstractStub}
+   * @param method    {@link MethodDescriptor} of the method
+   * @param requests  {@link Publisher} of the requests
+   * @param type      type of the values, a {@link Message}, {@link String} or a POJO
+   * @param <ReqT>    request type
+   * @return  {@link Stream} of the replies
+   * @see GrpcStreams
+   */
+  public static <ReqT> Stream<Object> bidiStreamingAsStream(
+          AbstractStub<?> stub,
+          MethodDescriptor<ReqT, ? extends Message> method,
+          Publisher<ReqT> requests,
+          Class<?> type
+  ) {
+    return GrpcStreams.toStream(type, bidiStarter(stub, method, requests));
+  }
+
+  /**
+   * Create the starter of a bidi streaming call, the requests are subscribed after the call is started.
+   * @param stub      {@link AbstractStub}
+   * @param method    {@link MethodDescriptor} of the method
+   * @param requests  {@link Publisher} of the requests
+   * @param <ReqT>    request type
+   * @return  starter
+   */
+  private static <ReqT> Consumer<ReplyObserver<ReqT>> bidiStarter(
+          AbstractStub<?> stub,
+          MethodDescriptor<ReqT, ? extends Message> method,
+          Publisher<ReqT> requests
+  ) {
+    checkNotNull(requests, "requests is null.");
+    return observer -> {
+      RequestSubscriber<ReqT> subscriber = new RequestSubscriber<>(observer);
+      observer.setOnReadyHandler(subscriber::onReady);
+      observer.setOnCloseHandler(subscriber::close);
+      ClientCalls.asyncBidiStreamingCall(GrpcStreams.newCall(stub, method), observer);
+      observer.started();
+      requests.subscribe(subscriber);
+    };
+  }
+
+  /**
+   * A {@link Publisher} of replies, every subscriber starts a new call.
+   * @param <ReqT>  request type
+   */
+  private static final class ReplyPublisher<ReqT> implements Publisher<Object> {
+    /** The type of values. */
+    private final Class<?> type;
+    /** Start the call with a {@link ReplyObserver}. */
+    private final Consumer<ReplyObserver<ReqT>> starter;
+
+    private ReplyPublisher(Class<?> type, Consumer<ReplyObserver<ReqT>> starter) {
+      this.type = type;
+      this.starter = starter;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Object> subscriber) {
+      ReplySubscription subscription = new ReplySubscription(checkNotNull(subscriber, "subscriber is null."));
+      ReplyObserver<ReqT> observer = new ReplyObserver<>(type, subscription);
+      subscription.observer = observer;
+      subscriber.onSubscribe(subscription);
+      try {
+        starter.accept(observer);
+      } catch (RuntimeException e) {
+        observer.cancel();
+        subscriber.onError(e);
+      }
+    }
+  }
+
+  /**
+   * The {@link Subscription} of a call, the demand is passed to its {@link ReplyObserver}.
+   */
+  private static final class ReplySubscription implements Subscription, StreamObserver<Object> {
+    /** The subscriber. */
+    private final Subscriber<? super Object> subscriber;
+    /** The observer of call. */
+    private ReplyObserver<?> observer;
+
+    private ReplySubscription(Subscriber<? super Object> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        // rule 3.9, signalled serially with the values by the observer
+        observer.fail(new IllegalArgumentException("request must be positive: " + n));
+      } else {
+        observer.request(n);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      observer.cancel();
+    }
+
+    @Override
+    public void onNext(Object value) {
+      subscriber.onNext(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      subscriber.onError(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      subscriber.onComplete();
+    }
+  }
+
+  /**
+   * The {@link Subscriber} of requests, requests one when the call is ready and no request is pending.
+   * @param <ReqT>  request type
+   */
+  private static final class RequestSubscriber<ReqT> implements Subscriber<ReqT> {
+    /** The observer of call. */
+    private final ReplyObserver<ReqT> observer;
+    /** If a request is requested and not received. */
+    private final AtomicBoolean requested = new AtomicBoolean();
+    /** The subscription of requests. */
+    private volatile Subscription subscription;
+    /** If the requests or the call is terminated. */
+    private volatile boolean done;
+
+    private RequestSubscriber(ReplyObserver<ReqT> observer) {
+      this.observer = observer;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      if (this.subscription != null || done) {
+        subscription.cancel();
+        return;
+      }
+      this.subscription = subscription;
+      // the call may be closed meanwhile
+      if (done) {
+        subscription.cancel();
+        return;
+      }
+      onReady();
+    }
+
+    @Override
+    public void onNext(ReqT request) {
+      if (done) {
+        return;
+      }
+      requested.set(false);
+      observer.getRequestStream().onNext(request);
+      onReady();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      if (done) {
+        return;
+      }
+      done = true;
+      observer.getRequestStream().onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+      if (done) {
+        return;
+      }
+      done = true;
+      observer.getRequestStream().onCompleted();
+    }
+
+    /** Request the next request if the call is ready. */
+    void onReady() {
+      Subscription subscription = this.subscription;
+      ClientCallStreamObserver<ReqT> requestStream = observer.getRequestStream();
+      if (subscription != null && !done && requestStream.isReady() && requested.compareAndSet(false, true)) {
+        subscription.request(1);
+      }
+    }
+
+    /** Cancel the requests when the call is closed. */
+    void close() {
+      done = true;
+      Subscription subscription = this.subscription;
+      if (subscription != null) {
+        subscription.cancel();
+      }
+    }
+  }
+}
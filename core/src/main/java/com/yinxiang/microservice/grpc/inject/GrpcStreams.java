@@ -0,0 +1,148 @@
+package com.yinxiang.microservice.grpc.inject;
+
+import com.google.common.collect.Queues;
+import com.google.protobuf.Message;
+import io.grpc.ClientCall;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The streaming calls of the generated clients, which return {@link Stream}.
+ * <p>
+ *   The stream holds at most {@link #PREFETCH} replies, one more is requested from gRPC when one is consumed.
+ *   Close the stream if it is not consumed to the end, else the call is left open.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public final class GrpcStreams {
+  /** The count of replies which are requested ahead of the consumer. */
+  public static final int PREFETCH = 32;
+
+  private GrpcStreams() {}
+
+  /**
+   * Start a server streaming call by the channel and the call options of a stub, whatever the kind of stub is.
+   * @param stub    {@link AbstractStub}
+   * @param method  {@link MethodDescriptor} of the method
+   * @param request request
+   * @param type    type of the values, a {@link Message}, {@link String} or a POJO
+   * @param <ReqT>  request type
+   * @return  {@link Stream} of the replies
+   */
+  public static <ReqT> Stream<Object> serverStreaming(
+          AbstractStub<?> stub,
+          MethodDescriptor<ReqT, ? extends Message> method,
+          ReqT request,
+          Class<?> type
+  ) {
+    return toStream(type, observer -> {
+      ClientCalls.asyncServerStreamingCall(newCall(stub, method), request, observer);
+      observer.started();
+    });
+  }
+
+  /**
+   * Create a call by the channel and the call options of a stub, the replies are observed as {@link Message}.
+   * @param stub    {@link AbstractStub}
+   * @param method  {@link MethodDescriptor} of the method
+   * @param <ReqT>  request type
+   * @return  {@link ClientCall}
+   */
+  @SuppressWarnings("unchecked")
+  static <ReqT> ClientCall<ReqT, Message> newCall(
+          AbstractStub<?> stub,
+          MethodDescriptor<ReqT, ? extends Message> method
+  ) {
+    return stub.getChannel().newCall((MethodDescriptor<ReqT, Message>) method, stub.getCallOptions());
+  }
+
+  /**
+   * Create a {@link Stream} of the replies of a call.
+   * @param type    type of the values
+   * @param starter start the call with a {@link ReplyObserver}, and call {@link ReplyObserver#started()}
+   * @param <ReqT>  request type
+   * @return  {@link Stream}
+   */
+  static <ReqT> Stream<Object> toStream(Class<?> type, Consumer<ReplyObserver<ReqT>> starter) {
+    BlockingReplyIterator iterator = new BlockingReplyIterator();
+    ReplyObserver<ReqT> observer = new ReplyObserver<>(type, iterator);
+    iterator.observer = observer;
+    starter.accept(observer);
+    observer.request(PREFETCH);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+            .onClose(observer::cancel);
+  }
+
+  /**
+   * An {@link Iterator} of the replies, blocks until the next reply is received.
+   */
+  private static final class BlockingReplyIterator implements Iterator<Object>, StreamObserver<Object> {
+    /** The marker of completion in {@link #queue}. */
+    private static final Object COMPLETED = new Object();
+
+    /** The replies and the terminal signal, bounded by the demand. */
+    private final BlockingQueue<Object> queue = Queues.newLinkedBlockingQueue();
+    /** The observer of call. */
+    private ReplyObserver<?> observer;
+    /** The next element, null if not taken. */
+    private Object next;
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        try {
+          next = queue.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          observer.cancel();
+          throw Status.CANCELLED.withDescription("interrupted").withCause(e).asRuntimeException();
+        }
+      }
+      if (next instanceof Throwable) {
+        Throwable t = (Throwable) next;
+        throw t instanceof RuntimeException ? (RuntimeException) t : Status.fromThrowable(t).asRuntimeException();
+      }
+      return next != COMPLETED;
+    }
+
+    @Override
+    public Object next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object value = next;
+      next = null;
+      // keep the prefetch
+      observer.request(1);
+      return value;
+    }
+
+    @Override
+    public void onNext(Object value) {
+      queue.add(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      queue.add(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      queue.add(COMPLETED);
+    }
+  }
+}
@@ -1,12 +1,14 @@
 package com.yinxiang.microservice.grpc.inject;
 
 import com.google.gson.Gson;
-import com.google.protobuf.ExtensionRegistry;
 import com.google.protobuf.Message;
 import com.googlecode.protobuf.format.JsonFormat;
+import com.yinxiang.microservice.grpc.codec.JsonCodecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
+
 /**
  * A marshaller of {@link Message.Builder} to json string.
  * @author Huiyuan Fu
@@ -14,7 +16,6 @@ import org.slf4j.LoggerFactory;
  */
 public final class Marshaller {
   private static final Logger log = LoggerFactory.getLogger(Marshaller.class);
-  private static final JsonFormat JSON_FORMAT = new JsonFormat();
   private static final Gson GSON = new Gson();
 
   private Marshaller() {}
@@ -28,7 +29,7 @@ public final class Marshaller {
    * @throws JsonFormat.ParseException  ParseException
    */
   public static <T extends Message.Builder> T fromJson(T builder, String json) throws JsonFormat.ParseException {
-    JSON_FORMAT.merge(json, ExtensionRegistry.getEmptyRegistry(), builder);
+    JsonCodecs.get().merge(json, builder);
     return builder;
   }
 
@@ -40,23 +41,45 @@ public final class Marshaller {
    * @return  {@link Message.Builder}
    */
   public static <T extends Message.Builder> T fromJsonButNot(T builder, String json) {
+    tryFromJson(builder, json);
+    return builder;
+  }
+
+  /**
+   * Transform a json string to {@link Message.Builder}, log the {@link JsonFormat.ParseException}.
+   * @param builder {@link Message.Builder}
+   * @param json    json string
+   * @return  false if has any {@link JsonFormat.ParseException}
+   */
+  static boolean tryFromJson(Message.Builder builder, String json) {
     try {
-      return fromJson(builder, json);
+      fromJson(builder, json);
+      return true;
     } catch (JsonFormat.ParseException e) {
       log.warn("Marshaller.fromJsonButNot ParseException: " + e.getMessage(), e);
-      return builder;
+      return false;
     }
   }
 
   /**
    * Transform a object to {@link Message.Builder}.
+   * The fields are mapped directly if the class is supported by {@link MessageObjectMapper}, else by json.
    * @param builder {@link Message.Builder}
    * @param src     object which need transform
    * @param <T>     the sub type of {@link Message.Builder}
    * @return  {@link Message.Builder}
    */
   public static <T extends Message.Builder> T fromObjectButNot(T builder, Object src) {
-    return fromJsonButNot(builder, commonToJson(src));
+    Optional<MessageObjectMapper> mapper = src == null
+            ? Optional.empty()
+            : MessageObjectMapper.get(src.getClass(), builder.getDescriptorForType());
+    if (!mapper.isPresent()) {
+      return fromJsonButNot(builder, commonToJson(src));
+    }
+    if (!mapper.get().merge(src, builder)) {
+      log.warn("Marshaller.fromObjectButNot can not merge a field of {}", src.getClass().getName());
+    }
+    return builder;
   }
 
   /**
@@ -66,7 +89,7 @@ public final class Marshaller {
    * @return  json string
    */
   public static <T extends Message> String toJson(T message) {
-    return JSON_FORMAT.printToString(message);
+    return JsonCodecs.get().printToString(message);
   }
 
   /**
@@ -80,12 +103,39 @@ public final class Marshaller {
 
   /**
    * Transform a {@link Message} to target type T.
+   * The fields are mapped directly if the class is supported by {@link MessageObjectMapper}, else by json.
    * @param message {@link Message}
    * @param clz     the class of target type
    * @param <T>     target type
    * @return  {@link Message.Builder}
    */
   public static <T> T toObject(Message message, Class<T> clz) {
-    return GSON.fromJson(toJson(message), clz);
+    return MessageObjectMapper.get(clz, message.getDescriptorForType())
+            .map(mapper -> clz.cast(mapper.toObject(message)))
+            .orElseGet(() -> commonFromJson(toJson(message), clz));
+  }
+
+  /**
+   * Transform a json string to a object.
+   * @param json  json string
+   * @param clz   the class of target type
+   * @param <T>   target type
+   * @return  object
+   */
+  static <T> T commonFromJson(String json, Class<T> clz) {
+    return GSON.fromJson(json, clz);
+  }
+
+  /**
+   * Transform a reply to the value of an async or streaming method.
+   * @param reply {@link Message}
+   * @param clz   the class of value, a {@link Message}, {@link String}(json) or a POJO
+   * @return  value
+   */
+  static Object toValue(Message reply, Class<?> clz) {
+    if (clz.isInstance(reply)) {
+      return reply;
+    }
+    return String.class.equals(clz) ? toJson(reply) : toObject(reply, clz);
   }
 }
@@ -0,0 +1,385 @@
+package com.yinxiang.microservice.grpc.inject;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Primitives;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A direct mapper between a message and a plain object, the same result as the json round trip of
+ * {@link Marshaller#toObject(Message, Class)} and {@link Marshaller#fromObjectButNot(Message.Builder, Object)}:
+ * a field of object is bound to the field of message with the same name (or {@link SerializedName}).
+ * One mapper is compiled for every (class, descriptor) by MethodHandles of fields at the first time.
+ * A shape which the json round trip may convert differently, e.g. unsigned, bytes, map fields, or types of number
+ * which are not the same, has no mapper and still goes the json round trip.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+final class MessageObjectMapper {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  /** The mapper of a shape which needs the json round trip. */
+  private static final MessageObjectMapper UNSUPPORTED = new MessageObjectMapper(null, ImmutableList.of());
+  /** Class - (message descriptor - mapper), UNSUPPORTED if not supported. */
+  private static final ConcurrentMap<Class<?>, ConcurrentMap<Descriptor, MessageObjectMapper>> MAPPERS =
+          Maps.newConcurrentMap();
+  /** Java type - proto java type of scalar fields. */
+  private static final Map<Class<?>, FieldDescriptor.JavaType> SCALARS = Maps.newHashMap();
+
+  static {
+    SCALARS.put(int.class, FieldDescriptor.JavaType.INT);
+    SCALARS.put(Integer.class, FieldDescriptor.JavaType.INT);
+    SCALARS.put(long.class, FieldDescriptor.JavaType.LONG);
+    SCALARS.put(Long.class, FieldDescriptor.JavaType.LONG);
+    SCALARS.put(float.class, FieldDescriptor.JavaType.FLOAT);
+    SCALARS.put(Float.class, FieldDescriptor.JavaType.FLOAT);
+    SCALARS.put(double.class, FieldDescriptor.JavaType.DOUBLE);
+    SCALARS.put(Double.class, FieldDescriptor.JavaType.DOUBLE);
+    SCALARS.put(boolean.class, FieldDescriptor.JavaType.BOOLEAN);
+    SCALARS.put(Boolean.class, FieldDescriptor.JavaType.BOOLEAN);
+    SCALARS.put(String.class, FieldDescriptor.JavaType.STRING);
+  }
+
+  /** The no-arg constructor of class: ()Object. */
+  private final MethodHandle constructor;
+  /** The bindings of fields. */
+  private final List<Binding> bindings;
+
+  private MessageObjectMapper(MethodHandle constructor, List<Binding> bindings) {
+    this.constructor = constructor;
+    this.bindings = bindings;
+  }
+
+  /**
+   * Get the mapper of a class and a message descriptor, compile it at the first time.
+   * @param clz         the class of object
+   * @param descriptor  the descriptor of message
+   * @return  the mapper, or empty if the json round trip is needed
+   */
+  static Optional<MessageObjectMapper> get(Class<?> clz, Descriptor descriptor) {
+    ConcurrentMap<Descriptor, MessageObjectMapper> mappers = MAPPERS.get(clz);
+    if (mappers == null) {
+      mappers = MAPPERS.computeIfAbsent(clz, key -> Maps.newConcurrentMap());
+    }
+    MessageObjectMapper mapper = mappers.get(descriptor);
+    if (mapper == null) {
+      mapper = mappers.computeIfAbsent(descriptor, key -> compile(clz, descriptor));
+    }
+    return mapper == UNSUPPORTED ? Optional.empty() : Optional.of(mapper);
+  }
+
+  /**
+   * Create an object from a message.
+   * @param message protobuf message
+   * @return  object
+   */
+  Object toObject(Message message) {
+    try {
+      Object object = constructor.invokeExact();
+      for (Binding binding : bindings) {
+        binding.toObject(message, object);
+      }
+      return object;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable throwable) {
+      throw new IllegalStateException(throwable);
+    }
+  }
+
+  /**
+   * Merge an object into a message builder, stop at the first field which can not be merged,
+   * same as {@link Marshaller#fromJsonButNot(Message.Builder, String)}.
+   * @param object  object
+   * @param builder message builder
+   * @return  true if all fields are merged
+   */
+  boolean merge(Object object, Message.Builder builder) {
+    try {
+      for (Binding binding : bindings) {
+        if (!binding.merge(object, builder)) {
+          return false;
+        }
+      }
+      return true;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable throwable) {
+      throw new IllegalStateException(throwable);
+    }
+  }
+
+  /**
+   * Compile the mapper of a class and a message descriptor.
+   * @param clz         the class of object
+   * @param descriptor  the descriptor of message
+   * @return  the mapper, or UNSUPPORTED
+   */
+  private static MessageObjectMapper compile(Class<?> clz, Descriptor descriptor) {
+    if (!isPlainClass(clz) || clz.isAnnotationPresent(JsonAdapter.class)) {
+      return UNSUPPORTED;
+    }
+    try {
+      Constructor<?> declaredConstructor = clz.getDeclaredConstructor();
+      declaredConstructor.setAccessible(true);
+      MethodHandle constructor = LOOKUP.unreflectConstructor(declaredConstructor)
+              .asType(MethodType.methodType(Object.class));
+      // fields of the class and super classes, same as gson
+      List<Binding> bindings = Lists.newArrayList();
+      Set<String> names = Sets.newHashSet();
+      for (Class<?> raw = clz; raw != Object.class; raw = raw.getSuperclass()) {
+        for (Field field : raw.getDeclaredFields()) {
+          if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) != 0 || field.isSynthetic()) {
+            continue;
+          }
+          SerializedName serializedName = field.getAnnotation(SerializedName.class);
+          String name = serializedName == null ? field.getName() : serializedName.value();
+          if (!names.add(name) || field.isAnnotationPresent(JsonAdapter.class)) {
+            return UNSUPPORTED;
+          }
+          FieldDescriptor fieldDescriptor = descriptor.findFieldByName(name);
+          if (fieldDescriptor != null) {
+            Binding binding = Binding.create(field, fieldDescriptor);
+            if (binding == null) {
+              return UNSUPPORTED;
+            }
+            bindings.add(binding);
+          }
+        }
+      }
+      return new MessageObjectMapper(constructor, ImmutableList.copyOf(bindings));
+    } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+      return UNSUPPORTED;
+    }
+  }
+
+  /**
+   * Check a class is a plain object, which gson binds by fields.
+   * @param clz the class
+   * @return  true if plain
+   */
+  private static boolean isPlainClass(Class<?> clz) {
+    String name = clz.getName();
+    return !clz.isInterface()
+            && !clz.isArray()
+            && !clz.isPrimitive()
+            && !clz.isEnum()
+            && !Modifier.isAbstract(clz.getModifiers())
+            && !clz.isAnonymousClass()
+            && !clz.isLocalClass()
+            && !(clz.isMemberClass() && !Modifier.isStatic(clz.getModifiers()))
+            && !Message.class.isAssignableFrom(clz)
+            && !name.startsWith("java.")
+            && !name.startsWith("javax.");
+  }
+
+  /** The binding of a field of object and a field of message. */
+  private static final class Binding {
+    /** The field of message. */
+    private final FieldDescriptor field;
+    /** The getter of object: (Object)Object. */
+    private final MethodHandle getter;
+    /** The setter of object: (Object, Object)void. */
+    private final MethodHandle setter;
+    /** The class of value, the element type of a list. */
+    private final Class<?> valueClass;
+
+    private Binding(FieldDescriptor field, MethodHandle getter, MethodHandle setter, Class<?> valueClass) {
+      this.field = field;
+      this.getter = getter;
+      this.setter = setter;
+      this.valueClass = valueClass;
+    }
+
+    /**
+     * Create the binding of a field.
+     * @param javaField the field of object
+     * @param field     the field of message
+     * @return  binding, or null if the json round trip is needed
+     * @throws IllegalAccessException if the field is not accessible
+     */
+    private static Binding create(Field javaField, FieldDescriptor field) throws IllegalAccessException {
+      if (field.isMapField()) {
+        return null;
+      }
+      Class<?> valueClass;
+      if (field.isRepeated()) {
+        // List<E>, Collection<E> or ArrayList<E>
+        Class<?> type = javaField.getType();
+        Type genericType = javaField.getGenericType();
+        if ((type != List.class && type != Collection.class && type != java.util.ArrayList.class)
+                || !(genericType instanceof ParameterizedType)) {
+          return null;
+        }
+        Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+        if (!(elementType instanceof Class)) {
+          return null;
+        }
+        valueClass = (Class<?>) elementType;
+      } else {
+        valueClass = javaField.getType();
+      }
+      if (!isSupported(valueClass, field)) {
+        return null;
+      }
+      javaField.setAccessible(true);
+      MethodHandle getter = LOOKUP.unreflectGetter(javaField)
+              .asType(MethodType.methodType(Object.class, Object.class));
+      MethodHandle setter = LOOKUP.unreflectSetter(javaField)
+              .asType(MethodType.methodType(void.class, Object.class, Object.class));
+      return new Binding(field, getter, setter, valueClass);
+    }
+
+    /**
+     * Check a class of value can bind a field directly, with the same result of the json round trip.
+     * @param valueClass  the class of value
+     * @param field       the field of message
+     * @return  true if supported
+     */
+    private static boolean isSupported(Class<?> valueClass, FieldDescriptor field) {
+      switch (field.getType()) {
+        case UINT32:
+        case FIXED32:
+        case UINT64:
+        case FIXED64:
+        case BYTES:
+          return false;
+        case ENUM:
+          return valueClass == String.class || (valueClass.isEnum() && !hasSerializedName(valueClass));
+        case MESSAGE:
+        case GROUP:
+          // the class is checked when the mapper is got, else goes the json round trip
+          return isPlainClass(valueClass);
+        default:
+          return SCALARS.get(valueClass) == field.getJavaType();
+      }
+    }
+
+    private static boolean hasSerializedName(Class<?> enumClass) {
+      for (Field constant : enumClass.getFields()) {
+        if (constant.isEnumConstant() && constant.isAnnotationPresent(SerializedName.class)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Set the value of message to the object, if present.
+     * @param message protobuf message
+     * @param object  object
+     * @throws Throwable  the exception of MethodHandle
+     */
+    private void toObject(Message message, Object object) throws Throwable {
+      if (field.isRepeated()) {
+        int count = message.getRepeatedFieldCount(field);
+        if (count > 0) {
+          List<Object> values = Lists.newArrayListWithCapacity(count);
+          for (int i = 0; i < count; i++) {
+            values.add(toValue(message.getRepeatedField(field, i)));
+          }
+          setter.invokeExact(object, (Object) values);
+        }
+      } else if (message.hasField(field)) {
+        setter.invokeExact(object, toValue(message.getField(field)));
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object toValue(Object value) {
+      switch (field.getJavaType()) {
+        case ENUM:
+          String name = ((EnumValueDescriptor) value).getName();
+          if (valueClass == String.class) {
+            return name;
+          }
+          try {
+            return Enum.valueOf((Class<Enum>) valueClass, name);
+          } catch (IllegalArgumentException e) {
+            // gson gives null to an unknown constant
+            return null;
+          }
+        case MESSAGE:
+          Message message = (Message) value;
+          return get(valueClass, message.getDescriptorForType())
+                  .map(mapper -> mapper.toObject(message))
+                  .orElseGet(() -> Marshaller.commonFromJson(Marshaller.toJson(message), valueClass));
+        default:
+          return value;
+      }
+    }
+
+    /**
+     * Merge the value of object into the message builder, if not null.
+     * @param object  object
+     * @param builder message builder
+     * @return  false if the value can not be merged
+     * @throws Throwable  the exception of MethodHandle
+     */
+    private boolean merge(Object object, Message.Builder builder) throws Throwable {
+      Object value = getter.invokeExact(object);
+      if (value == null) {
+        return true;
+      }
+      if (field.isRepeated()) {
+        for (Object element : (Collection<?>) value) {
+          Object fieldValue = element == null ? null : toFieldValue(element, builder);
+          if (fieldValue == null) {
+            return false;
+          }
+          builder.addRepeatedField(field, fieldValue);
+        }
+        return true;
+      }
+      Object fieldValue = toFieldValue(value, builder);
+      if (fieldValue == null) {
+        return false;
+      }
+      builder.setField(field, fieldValue);
+      return true;
+    }
+
+    /**
+     * Convert a value of object to the value of field.
+     * @param value   not null value
+     * @param builder message builder
+     * @return  the value of field, or null if it can not be converted
+     */
+    private Object toFieldValue(Object value, Message.Builder builder) {
+      switch (field.getJavaType()) {
+        case ENUM:
+          String name = value instanceof Enum ? ((Enum<?>) value).name() : (String) value;
+          return field.getEnumType().findValueByName(name);
+        case MESSAGE:
+          Message.Builder fieldBuilder = builder.newBuilderForField(field);
+          boolean merged = get(value.getClass(), fieldBuilder.getDescriptorForType())
+                  .map(mapper -> mapper.merge(value, fieldBuilder))
+                  .orElseGet(() -> Marshaller.tryFromJson(fieldBuilder, Marshaller.commonToJson(value)));
+          return merged ? fieldBuilder.build() : null;
+        default:
+          return Primitives.wrap(valueClass).cast(value);
+      }
+    }
+  }
+}
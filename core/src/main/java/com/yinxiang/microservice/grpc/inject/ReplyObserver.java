@@ -0,0 +1,264 @@
+package com.yinxiang.microservice.grpc.inject;
+
+import com.google.common.collect.Queues;
+import com.google.protobuf.Message;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.Queue;
+
+/**
+ * The observer of replies of a streaming call, delivers the values to a downstream by its demand.
+ * <p>
+ *   The auto inbound flow control of gRPC is disabled, the call only requests the messages which are demanded by
+ *   {@link #request(long)} and not received yet, so a slow downstream never buffers unbounded replies.
+ *   The downstream is signalled serially, never more values than its demand, and never after {@link #cancel()}.
+ * </p>
+ * @param <ReqT>  request type
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+final class ReplyObserver<ReqT> implements ClientResponseObserver<ReqT, Message> {
+  /** The marker of completion in {@link #queue}. */
+  private static final Object COMPLETED = new Object();
+
+  /** The class of values. */
+  private final Class<?> type;
+  /** The downstream. */
+  private final StreamObserver<Object> downstream;
+  /** The values and the terminal signal which are received but not delivered. */
+  private final Queue<Object> queue = Queues.newArrayDeque();
+  /** Run when the call is ready to send more requests, only for bidi streaming. */
+  private Runnable onReadyHandler;
+  /** Run once when the downstream is terminated or cancelled. */
+  private Runnable onCloseHandler;
+  /** The request stream of call, set before start. */
+  private volatile ClientCallStreamObserver<ReqT> requestStream;
+  /** The demand of downstream which is not delivered. */
+  private long demand;
+  /** The count of messages which are requested from gRPC and not received. */
+  private int credit;
+  /** If the call is started. */
+  private boolean started;
+  /** If the downstream is cancelled or terminated. */
+  private boolean closed;
+  /** If a thread is delivering. */
+  private boolean emitting;
+
+  ReplyObserver(Class<?> type, StreamObserver<Object> downstream) {
+    this.type = type;
+    this.downstream = downstream;
+  }
+
+  /** @see #onReadyHandler */
+  void setOnReadyHandler(Runnable onReadyHandler) {
+    this.onReadyHandler = onReadyHandler;
+  }
+
+  /** @see #onCloseHandler */
+  void setOnCloseHandler(Runnable onCloseHandler) {
+    this.onCloseHandler = onCloseHandler;
+  }
+
+  /** @see #requestStream */
+  ClientCallStreamObserver<ReqT> getRequestStream() {
+    return requestStream;
+  }
+
+  @Override
+  public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+    requestStream.disableAutoInboundFlowControl();
+    if (onReadyHandler != null) {
+      requestStream.setOnReadyHandler(onReadyHandler);
+    }
+    synchronized (this) {
+      this.requestStream = requestStream;
+      // gRPC always requests the first message at start
+      credit = 1;
+    }
+  }
+
+  /**
+   * Must be called after the call is started, the demand before is requested now.
+   */
+  void started() {
+    boolean cancel;
+    synchronized (this) {
+      started = true;
+      cancel = closed;
+    }
+    if (cancel) {
+      requestStream.cancel("cancelled before start", null);
+    } else {
+      drain();
+    }
+  }
+
+  /**
+   * Add the demand of downstream.
+   * @param n count of values, positive
+   */
+  void request(long n) {
+    synchronized (this) {
+      demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+    }
+    drain();
+  }
+
+  /**
+   * Cancel the call, the downstream is not signalled any more.
+   */
+  void cancel() {
+    boolean cancel;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      queue.clear();
+      cancel = started;
+    }
+    if (cancel) {
+      requestStream.cancel("cancelled by the downstream", null);
+    }
+    runOnCloseHandler();
+  }
+
+  /**
+   * Fail the downstream by an error of itself, ex: a request which is not positive, and cancel the call.
+   * The error is delivered by the queue like the errors of call, so it is never signalled with a value at once.
+   * @param t error
+   */
+  void fail(Throwable t) {
+    boolean cancel;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      queue.clear();
+      queue.add(new Terminal(t));
+      cancel = started;
+    }
+    drain();
+    if (cancel) {
+      requestStream.cancel("failed by the downstream", t);
+    }
+  }
+
+  @Override
+  public void onNext(Message reply) {
+    Object value;
+    try {
+      value = Marshaller.toValue(reply, type);
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        credit--;
+      }
+      requestStream.cancel("can not marshal the reply", e);
+      return;
+    }
+    synchronized (this) {
+      credit--;
+      queue.add(value);
+    }
+    drain();
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    synchronized (this) {
+      queue.add(new Terminal(t));
+    }
+    drain();
+  }
+
+  @Override
+  public void onCompleted() {
+    synchronized (this) {
+      queue.add(COMPLETED);
+    }
+    drain();
+  }
+
+  /**
+   * Deliver the values by demand, and request more messages from gRPC.
+   * Only one thread delivers at a time, the others only enqueue.
+   */
+  private void drain() {
+    synchronized (this) {
+      if (emitting) {
+        return;
+      }
+      emitting = true;
+    }
+    while (true) {
+      Object item = null;
+      int more = 0;
+      synchronized (this) {
+        Object head = queue.peek();
+        boolean terminal = head == COMPLETED || head instanceof Terminal;
+        if (!closed && head != null && (demand > 0 || terminal)) {
+          item = queue.poll();
+          if (terminal) {
+            closed = true;
+          } else {
+            demand--;
+          }
+        } else {
+          emitting = false;
+          // request the demand which is neither received nor requested
+          if (started && !closed) {
+            more = (int) Math.min(demand - queue.size() - credit, Integer.MAX_VALUE - credit);
+            credit += Math.max(more, 0);
+          }
+        }
+      }
+      if (item == null) {
+        if (more > 0) {
+          requestStream.request(more);
+        }
+        return;
+      }
+      deliver(item);
+    }
+  }
+
+  /**
+   * Signal the downstream.
+   * @param item  a value or a terminal signal
+   */
+  private void deliver(Object item) {
+    if (item == COMPLETED) {
+      downstream.onCompleted();
+      runOnCloseHandler();
+    } else if (item instanceof Terminal) {
+      downstream.onError(((Terminal) item).error);
+      runOnCloseHandler();
+    } else {
+      downstream.onNext(item);
+    }
+  }
+
+  /** Run {@link #onCloseHandler} once. */
+  private void runOnCloseHandler() {
+    Runnable handler;
+    synchronized (this) {
+      handler = onCloseHandler;
+      onCloseHandler = null;
+    }
+    if (handler != null) {
+      handler.run();
+    }
+  }
+
+  /** The error of call in {@link #queue}. */
+  private static final class Terminal {
+    /** The error. */
+    private final Throwable error;
+
+    private Terminal(Throwable error) {
+      this.error = error;
+    }
+  }
+}
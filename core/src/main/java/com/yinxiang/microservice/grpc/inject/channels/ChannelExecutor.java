@@ -0,0 +1,13 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+/**
+ * The executor of a channel, which runs the callbacks of calls.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public enum ChannelExecutor {
+  /** The executor of the shared transport resources, or the cached thread pool of gRPC if not shared. */
+  SHARED,
+  /** The transport thread, only for services whose callbacks never block. */
+  DIRECT
+}
@@ -0,0 +1,159 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+import io.grpc.*;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A pool of channels to one service, every channel owns its connection.
+ * <p>
+ *   One HTTP/2 connection limits the calls to the max concurrent streams of server and to one event loop,
+ *   the pool spreads calls to the connections of all channels by {@link ChannelPoolPolicy}.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class ChannelPool extends ManagedChannel {
+  /** The channels. */
+  private final ManagedChannel[] channels;
+  /** The policy to pick a channel. */
+  private final ChannelPoolPolicy policy;
+  /** The count of calls which are started but not closed, by the index of channel. */
+  private final AtomicIntegerArray activeCalls;
+  /** The turn of next call. */
+  private final AtomicInteger next = new AtomicInteger();
+
+  public ChannelPool(ChannelPoolPolicy policy, ManagedChannel... channels) {
+    checkArgument(channels.length > 0, "channels is empty.");
+    this.policy = checkNotNull(policy, "policy is null.");
+    this.channels = channels.clone();
+    this.activeCalls = new AtomicIntegerArray(channels.length);
+  }
+
+  /**
+   * Get the index of channel for a call.
+   * @return  index of {@link #channels}
+   */
+  private int pick() {
+    // the turn is always not negative
+    int turn = next.getAndIncrement() & Integer.MAX_VALUE;
+    int length = channels.length;
+    if (policy == ChannelPoolPolicy.ROUND_ROBIN) {
+      return turn % length;
+    }
+    // scan from the turn, so the ties are taken in turn
+    int index = turn % length;
+    int least = activeCalls.get(index);
+    for (int i = 1; i < length && least > 0; i++) {
+      int current = (turn + i) % length;
+      int calls = activeCalls.get(current);
+      if (calls < least) {
+        index = current;
+        least = calls;
+      }
+    }
+    return index;
+  }
+
+  @Override
+  public <RequestT, ResponseT> ClientCall<RequestT, ResponseT> newCall(
+          MethodDescriptor<RequestT, ResponseT> methodDescriptor,
+          CallOptions callOptions
+  ) {
+    int index = pick();
+    ClientCall<RequestT, ResponseT> call = channels[index].newCall(methodDescriptor, callOptions);
+    return policy == ChannelPoolPolicy.ROUND_ROBIN ? call : new CountingCall<>(call, index);
+  }
+
+  @Override
+  public String authority() {
+    return channels[0].authority();
+  }
+
+  @Override
+  public ManagedChannel shutdown() {
+    for (ManagedChannel channel : channels) {
+      channel.shutdown();
+    }
+    return this;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    for (ManagedChannel channel : channels) {
+      if (!channel.isShutdown()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    for (ManagedChannel channel : channels) {
+      if (!channel.isTerminated()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public ManagedChannel shutdownNow() {
+    for (ManagedChannel channel : channels) {
+      channel.shutdownNow();
+    }
+    return this;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (ManagedChannel channel : channels) {
+      if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A call which is counted in {@link #activeCalls} from start to close.
+   * @param <ReqT>  request type
+   * @param <RespT> response type
+   */
+  private class CountingCall<ReqT, RespT> extends SimpleForwardingClientCall<ReqT, RespT> {
+    /** The index of channel. */
+    private final int index;
+
+    private CountingCall(ClientCall<ReqT, RespT> delegate, int index) {
+      super(delegate);
+      this.index = index;
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      activeCalls.incrementAndGet(index);
+      try {
+        super.start(new SimpleForwardingClientCallListener<RespT>(responseListener) {
+          @Override
+          public void onClose(Status status, Metadata trailers) {
+            activeCalls.decrementAndGet(index);
+            super.onClose(status, trailers);
+          }
+        }, headers);
+      } catch (RuntimeException | Error e) {
+        // the listener is never closed if start fails
+        activeCalls.decrementAndGet(index);
+        throw e;
+      }
+    }
+  }
+}
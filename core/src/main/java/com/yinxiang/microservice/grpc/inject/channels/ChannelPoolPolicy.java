@@ -0,0 +1,13 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+/**
+ * The policy of {@link ChannelPool} to pick a channel for a call.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public enum ChannelPoolPolicy {
+  /** Every call takes the next channel. */
+  ROUND_ROBIN,
+  /** Every call takes the channel with the least calls which are not closed, ties are taken in turn. */
+  LEAST_CALLS
+}
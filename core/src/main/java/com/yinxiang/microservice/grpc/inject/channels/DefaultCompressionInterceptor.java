@@ -0,0 +1,31 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+import io.grpc.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Compress the requests of all calls by a compressor, unless a call has its own.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class DefaultCompressionInterceptor implements ClientInterceptor {
+  /** The name of compressor, ex: gzip. */
+  private final String compressor;
+
+  public DefaultCompressionInterceptor(String compressor) {
+    checkArgument(CompressorRegistry.getDefaultInstance().lookupCompressor(compressor) != null,
+            "Unknown compressor: " + compressor);
+    this.compressor = compressor;
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+          MethodDescriptor<ReqT, RespT> method,
+          CallOptions callOptions,
+          Channel next
+  ) {
+    return next.newCall(method, callOptions.getCompressor() == null ?
+            callOptions.withCompression(compressor) : callOptions);
+  }
+}
@@ -0,0 +1,205 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+import com.google.common.collect.Maps;
+import io.grpc.NameResolver;
+import io.grpc.Status;
+import io.grpc.SynchronizationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * A {@link NameResolver} of the addresses in a file, which is watched and resolved again when it is changed.
+ * <p>
+ *   The file has one address per line, in the format of {@link StaticNameResolver}, blank lines and lines
+ *   starting with # are ignored. A new list of addresses is pushed to the load balancer of the live channel:
+ *   subchannels of new addresses are connected, and those of removed addresses are shutdown gracefully,
+ *   so the calls in flight are not dropped.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class FileNameResolver extends NameResolver {
+  private static final Logger log = LoggerFactory.getLogger(FileNameResolver.class);
+  /** The scheme of targets. */
+  public static final String SCHEME = "file";
+
+  /** The file of addresses. */
+  private final Path file;
+  /** The authority, the name of service in target. */
+  private final String authority;
+  /** The context which serializes the resolutions. */
+  private final SynchronizationContext syncContext;
+  /** The task to resolve again when the file is changed. */
+  private final Runnable onChange = this::refresh;
+  /** The listener, null before start. */
+  private Listener2 listener;
+
+  FileNameResolver(Path file, String authority, SynchronizationContext syncContext) {
+    this.file = file.toAbsolutePath().normalize();
+    this.authority = authority;
+    this.syncContext = syncContext;
+  }
+
+  @Override
+  public String getServiceAuthority() {
+    return authority;
+  }
+
+  @Override
+  public void start(Listener2 listener) {
+    this.listener = listener;
+    Watcher.INSTANCE.watch(file, onChange);
+    resolve();
+  }
+
+  @Override
+  public void refresh() {
+    syncContext.execute(() -> {
+      if (listener != null) {
+        resolve();
+      }
+    });
+  }
+
+  @Override
+  public void shutdown() {
+    Watcher.INSTANCE.unwatch(file, onChange);
+    listener = null;
+  }
+
+  /** Read and resolve the addresses, and notify the listener. */
+  private void resolve() {
+    List<String> addresses;
+    try {
+      addresses = Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+              .map(String::trim)
+              .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+              .collect(Collectors.toList());
+    } catch (IOException e) {
+      listener.onError(Status.UNAVAILABLE.withDescription("Unable to read " + file).withCause(e));
+      return;
+    }
+    if (addresses.isEmpty()) {
+      listener.onError(Status.UNAVAILABLE.withDescription("No address in " + file));
+      return;
+    }
+    try {
+      StaticNameResolver.resolve(addresses, listener);
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      // a wrong line, keep the last addresses
+      listener.onError(Status.UNAVAILABLE.withDescription("Wrong address in " + file).withCause(e));
+    }
+  }
+
+  /** The factory of {@link FileNameResolver}, one for every file. */
+  public static class Factory extends NameResolver.Factory {
+    /** The file of addresses. */
+    private final Path file;
+
+    public Factory(Path file) {
+      this.file = file;
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, Args args) {
+      if (!SCHEME.equals(targetUri.getScheme())) {
+        return null;
+      }
+      // file:///name
+      String authority = targetUri.getPath().substring(1);
+      return new FileNameResolver(file, authority, args.getSynchronizationContext());
+    }
+
+    @Override
+    public String getDefaultScheme() {
+      return SCHEME;
+    }
+  }
+
+  /**
+   * The only watcher of files, one daemon thread watches the directories of all files with a {@link WatchService}.
+   */
+  private enum Watcher {
+    INSTANCE;
+
+    /** Map of tasks[key=file, value=tasks to run when the file is changed]. */
+    private final Map<Path, Set<Runnable>> tasks = Maps.newConcurrentMap();
+    /** Map of watched directories[key=directory, value={@link WatchKey}]. */
+    private final Map<Path, WatchKey> directories = Maps.newConcurrentMap();
+    /** The watch service, null before the first file. */
+    private WatchService watchService;
+
+    /**
+     * Run a task whenever a file is created or modified.
+     * @param file  the file
+     * @param task  the task
+     */
+    synchronized void watch(Path file, Runnable task) {
+      tasks.computeIfAbsent(file, key -> new CopyOnWriteArraySet<>()).add(task);
+      try {
+        if (watchService == null) {
+          watchService = FileSystems.getDefault().newWatchService();
+          Thread thread = new Thread(this::run, "grpc-file-name-resolver");
+          thread.setDaemon(true);
+          thread.start();
+        }
+        Path directory = file.getParent();
+        if (!directories.containsKey(directory)) {
+          directories.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+        }
+      } catch (IOException e) {
+        // the file is still resolved at start and refresh
+        log.error("watch " + file + " failed", e);
+      }
+    }
+
+    /**
+     * Remove a task of a file.
+     * @param file  the file
+     * @param task  the task
+     */
+    synchronized void unwatch(Path file, Runnable task) {
+      Set<Runnable> fileTasks = tasks.get(file);
+      if (fileTasks != null && fileTasks.remove(task) && fileTasks.isEmpty()) {
+        tasks.remove(file);
+      }
+    }
+
+    /** Take the events of directories, and run the tasks of changed files. */
+    private void run() {
+      while (true) {
+        WatchKey key;
+        try {
+          key = watchService.take();
+        } catch (InterruptedException e) {
+          return;
+        }
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.context() instanceof Path) {
+            Set<Runnable> fileTasks = tasks.get(directory.resolve((Path) event.context()));
+            if (fileTasks != null) {
+              fileTasks.forEach(Runnable::run);
+            }
+          }
+        }
+        if (!key.reset()) {
+          directories.remove(directory);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+import io.grpc.Attributes;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Metadata;
+import io.grpc.Status;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The balancer of {@link LoadBalancingPolicy#LEAST_REQUEST}, power of two choices.
+ * <p>
+ *   Every call picks two random ready subchannels, and takes the one with less active calls.
+ *   The active calls of a subchannel are counted by a {@link ClientStreamTracer} from stream created to closed.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class LeastRequestLoadBalancer extends SubchannelsLoadBalancer {
+  /** The count of active calls of a subchannel. */
+  private static final Attributes.Key<AtomicInteger> ACTIVE_CALLS = Attributes.Key.create("active-calls");
+
+  LeastRequestLoadBalancer(Helper helper) {
+    super(helper);
+  }
+
+  @Override
+  void initAttributes(Attributes.Builder builder) {
+    builder.set(ACTIVE_CALLS, new AtomicInteger());
+  }
+
+  @Override
+  SubchannelPicker createPicker(List<Subchannel> ready) {
+    Subchannel[] subchannels = ready.toArray(new Subchannel[0]);
+    return new SubchannelPicker() {
+      @Override
+      public PickResult pickSubchannel(PickSubchannelArgs args) {
+        Subchannel subchannel = choose(subchannels);
+        return PickResult.withSubchannel(subchannel, new CountingFactory(subchannel.getAttributes().get(ACTIVE_CALLS)));
+      }
+    };
+  }
+
+  /**
+   * Choose the one with less active calls of two random subchannels.
+   * @param subchannels the ready subchannels
+   * @return  {@link Subchannel}
+   */
+  private static Subchannel choose(Subchannel[] subchannels) {
+    int length = subchannels.length;
+    if (length == 1) {
+      return subchannels[0];
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(length);
+    // the second is never the first
+    int second = (first + 1 + random.nextInt(length - 1)) % length;
+    return getActiveCalls(subchannels[second]) < getActiveCalls(subchannels[first]) ?
+            subchannels[second] : subchannels[first];
+  }
+
+  /**
+   * Get the count of active calls of a subchannel.
+   * @param subchannel  {@link Subchannel}
+   * @return  count of active calls
+   */
+  private static int getActiveCalls(Subchannel subchannel) {
+    return subchannel.getAttributes().get(ACTIVE_CALLS).get();
+  }
+
+  /** The factory of tracers which count a stream in the active calls until it is closed. */
+  private static final class CountingFactory extends ClientStreamTracer.Factory {
+    /** The count of active calls. */
+    private final AtomicInteger activeCalls;
+
+    private CountingFactory(AtomicInteger activeCalls) {
+      this.activeCalls = activeCalls;
+    }
+
+    @Override
+    public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+      activeCalls.incrementAndGet();
+      AtomicBoolean closed = new AtomicBoolean();
+      return new ClientStreamTracer() {
+        @Override
+        public void streamClosed(Status status) {
+          if (closed.compareAndSet(false, true)) {
+            activeCalls.decrementAndGet();
+          }
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+import io.grpc.LoadBalancerRegistry;
+
+/**
+ * The policy to balance calls over the addresses of a service, see {@link StaticNameResolver}.
+ * <p>
+ *   The policies of least-request and weighted are registered to the default {@link LoadBalancerRegistry}
+ *   when this class is initialized.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public enum LoadBalancingPolicy {
+  /** All calls take the first address which can connect. */
+  PICK_FIRST("pick_first"),
+  /** Every call takes the next ready address. */
+  ROUND_ROBIN("round_robin"),
+  /** Every call takes the one with less active calls of two random ready addresses. */
+  LEAST_REQUEST("least_request"),
+  /** Every call takes a random ready address by weight. */
+  WEIGHTED("weighted");
+
+  static {
+    LoadBalancerRegistry registry = LoadBalancerRegistry.getDefaultRegistry();
+    registry.register(new SubchannelsLoadBalancer.Provider(LEAST_REQUEST.policyName, LeastRequestLoadBalancer::new));
+    registry.register(new SubchannelsLoadBalancer.Provider(WEIGHTED.policyName, WeightedLoadBalancer::new));
+  }
+
+  /** The name of policy in {@link LoadBalancerRegistry}. */
+  private final String policyName;
+
+  LoadBalancingPolicy(String policyName) {
+    this.policyName = policyName;
+  }
+
+  /** @see #policyName */
+  public String getPolicyName() {
+    return policyName;
+  }
+}
@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * A channel can reusable when server was restarted.
@@ -14,15 +15,34 @@ import java.util.concurrent.TimeUnit;
 public class ReusableChannel extends ManagedChannel {
   private static final Logger log = LoggerFactory.getLogger(ReusableChannel.class);
 
-  /** Server's address. */
+  /** Server's address or the target of channel. */
   private final String address;
+  /** The supplier of builders, every rebuilding takes a new builder. */
+  private final Supplier<? extends ManagedChannelBuilder<?>> builders;
   /** Array of ClientInterceptor. */
   private final ClientInterceptor[] clientInterceptors;
   /** The real {@link ManagedChannel}. */
-  private ManagedChannel delegate;
+  private volatile ManagedChannel delegate;
+  /** Taken only to rebuild the dead delegate, the live one is read without it. */
+  private final Object rebuildLock = new Object();
 
   public ReusableChannel(String address, ClientInterceptor... clientInterceptors) {
-    this.address = address;
+    this(address, () -> ManagedChannelBuilder.forTarget(address).usePlaintext(), clientInterceptors);
+  }
+
+  /**
+   * Create a channel by the builders of a target, ex: a target of {@link StaticNameResolver} with a load balancer.
+   * @param target              the target of channel, only for log
+   * @param builders            the supplier of builders
+   * @param clientInterceptors  array of ClientInterceptor
+   */
+  public ReusableChannel(
+          String target,
+          Supplier<? extends ManagedChannelBuilder<?>> builders,
+          ClientInterceptor... clientInterceptors
+  ) {
+    this.address = target;
+    this.builders = builders;
     this.clientInterceptors = clientInterceptors;
     delegate = createChannel();
   }
@@ -32,16 +52,38 @@ public class ReusableChannel extends ManagedChannel {
   }
 
   /**
-   * Get the real {@link ManagedChannel}, and create if not exists.
+   * Get the real {@link ManagedChannel}, and create if it was shutdown or terminated.
+   * <p>
+   *   The live delegate is read without lock. When it is dead, the first thread which takes {@link #rebuildLock}
+   *   creates the new one, the others wait on the lock and take it. Building a channel does not connect, so the
+   *   wait is short.
+   * </p>
    * @return  {@link ManagedChannel}
    */
-  private synchronized ManagedChannel getDelegate() {
-    if (delegate.isShutdown() || delegate.isTerminated()) {
-      log.error(String.format("channel(%s) was shutdown(%s) or terminated(%s)",
-              address, delegate.isShutdown(), delegate.isTerminated()));
-      delegate = createChannel();
+  private ManagedChannel getDelegate() {
+    ManagedChannel channel = delegate;
+    if (isAlive(channel)) {
+      return channel;
     }
-    return delegate;
+    synchronized (rebuildLock) {
+      // check again, another thread may have rebuilt it
+      channel = delegate;
+      if (!isAlive(channel)) {
+        log.error(String.format("channel(%s) was shutdown(%s) or terminated(%s)",
+                address, channel.isShutdown(), channel.isTerminated()));
+        delegate = channel = createChannel();
+      }
+      return channel;
+    }
+  }
+
+  /**
+   * Check a channel is neither shutdown nor terminated.
+   * @param channel {@link ManagedChannel}
+   * @return  true if alive
+   */
+  private static boolean isAlive(ManagedChannel channel) {
+    return !channel.isShutdown() && !channel.isTerminated();
   }
 
   /**
@@ -49,7 +91,7 @@ public class ReusableChannel extends ManagedChannel {
    * @return  {@link ManagedChannel}
    */
   private ManagedChannel createChannel() {
-    return ManagedChannelBuilder.forTarget(address).intercept(clientInterceptors).usePlaintext().build();
+    return builders.get().intercept(clientInterceptors).build();
   }
 
   @Override
@@ -74,7 +116,8 @@ public class ReusableChannel extends ManagedChannel {
 
   @Override
   public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
-    return getDelegate().awaitTermination(timeout, unit);
+    // the delegate which is shut down, not a rebuilt one
+    return delegate.awaitTermination(timeout, unit);
   }
 
   @Override
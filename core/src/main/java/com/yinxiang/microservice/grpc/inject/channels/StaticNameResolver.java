@@ -0,0 +1,144 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.net.HostAndPort;
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.Status;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A {@link NameResolver} of a fixed list of addresses, every address is an {@link EquivalentAddressGroup}.
+ * <p>
+ *   An address is host:port, and may have a weight for {@link LoadBalancingPolicy#WEIGHTED}: host:port;weight=3.
+ *   Hosts are resolved at start and at every refresh, a host which can not be resolved fails the resolution.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class StaticNameResolver extends NameResolver {
+  /** The scheme of targets. */
+  public static final String SCHEME = "static";
+  /** The weight of an address, 1 if absent. */
+  public static final Attributes.Key<Integer> WEIGHT = Attributes.Key.create("weight");
+  /** The prefix of weight in an address. */
+  private static final String WEIGHT_PREFIX = ";weight=";
+
+  /** The addresses. */
+  private final List<String> addresses;
+  /** The authority, the first address. */
+  private final String authority;
+  /** The listener, null before start. */
+  private Listener2 listener;
+
+  StaticNameResolver(List<String> addresses) {
+    checkArgument(addresses != null && !addresses.isEmpty(), "addresses is empty.");
+    this.addresses = ImmutableList.copyOf(addresses);
+    this.authority = HostAndPort.fromString(trimWeight(addresses.get(0))).toString();
+  }
+
+  @Override
+  public String getServiceAuthority() {
+    return authority;
+  }
+
+  @Override
+  public void start(Listener2 listener) {
+    this.listener = listener;
+    resolve(addresses, listener);
+  }
+
+  @Override
+  public void refresh() {
+    if (listener != null) {
+      resolve(addresses, listener);
+    }
+  }
+
+  @Override
+  public void shutdown() {}
+
+  /**
+   * Resolve all addresses, and notify the listener.
+   * @param addresses the addresses
+   * @param listener  the listener of resolver
+   */
+  static void resolve(List<String> addresses, Listener2 listener) {
+    List<EquivalentAddressGroup> groups = Lists.newArrayListWithCapacity(addresses.size());
+    for (String address : addresses) {
+      HostAndPort hostAndPort = HostAndPort.fromString(trimWeight(address));
+      InetSocketAddress socketAddress = new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort());
+      if (socketAddress.isUnresolved()) {
+        listener.onError(Status.UNAVAILABLE.withDescription("Unable to resolve host " + hostAndPort.getHost()));
+        return;
+      }
+      groups.add(new EquivalentAddressGroup(socketAddress, Attributes.newBuilder().set(WEIGHT, getWeight(address)).build()));
+    }
+    listener.onResult(ResolutionResult.newBuilder().setAddresses(groups).build());
+  }
+
+  /**
+   * Remove the weight of an address.
+   * @param address an address
+   * @return  host:port
+   */
+  static String trimWeight(String address) {
+    int index = address.indexOf(WEIGHT_PREFIX);
+    return (index < 0 ? address : address.substring(0, index)).trim();
+  }
+
+  /**
+   * Get the weight of an address.
+   * @param address an address
+   * @return  the weight, 1 if absent
+   */
+  static int getWeight(String address) {
+    int index = address.indexOf(WEIGHT_PREFIX);
+    if (index < 0) {
+      return 1;
+    }
+    int weight = Integer.parseInt(address.substring(index + WEIGHT_PREFIX.length()).trim());
+    checkArgument(weight > 0, "weight must be positive: " + address);
+    return weight;
+  }
+
+  /**
+   * Create the target of a channel to the addresses of a factory.
+   * @param name  the name of service
+   * @return  target
+   */
+  public static String target(String name) {
+    return SCHEME + ":///" + name;
+  }
+
+  /** The factory of {@link StaticNameResolver}, one for every list of addresses. */
+  public static class Factory extends NameResolver.Factory {
+    /** The addresses. */
+    private final List<String> addresses;
+
+    public Factory(List<String> addresses) {
+      checkArgument(addresses != null && !addresses.isEmpty(), "addresses is empty.");
+      // fail fast on a wrong address, not at the first call
+      addresses.forEach(address -> HostAndPort.fromString(trimWeight(address)).getPort());
+      addresses.forEach(StaticNameResolver::getWeight);
+      this.addresses = ImmutableList.copyOf(addresses);
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, Args args) {
+      return SCHEME.equals(targetUri.getScheme()) ? new StaticNameResolver(addresses) : null;
+    }
+
+    @Override
+    public String getDefaultScheme() {
+      return SCHEME;
+    }
+  }
+}
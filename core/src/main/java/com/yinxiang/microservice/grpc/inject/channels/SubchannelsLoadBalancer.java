@@ -0,0 +1,200 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.grpc.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static io.grpc.ConnectivityState.*;
+
+/**
+ * A {@link LoadBalancer} which connects every address, and picks from the ready subchannels by
+ * {@link #createPicker(List)}. The subchannel of an idle address is reconnected at once.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+abstract class SubchannelsLoadBalancer extends LoadBalancer {
+  /** The latest state of a subchannel. */
+  private static final Attributes.Key<ConnectivityStateInfo[]> STATE_INFO = Attributes.Key.create("state-info");
+
+  /** The helper of channel. */
+  private final Helper helper;
+  /** Map of subchannels[key=addresses without attributes, value=subchannel]. */
+  private final Map<EquivalentAddressGroup, Subchannel> subchannels = Maps.newLinkedHashMap();
+
+  SubchannelsLoadBalancer(Helper helper) {
+    this.helper = helper;
+  }
+
+  /**
+   * Create the picker of ready subchannels.
+   * @param ready the ready subchannels, not empty
+   * @return  {@link SubchannelPicker}
+   */
+  abstract SubchannelPicker createPicker(List<Subchannel> ready);
+
+  /**
+   * Add the attributes of a new subchannel.
+   * @param builder the builder of attributes
+   */
+  void initAttributes(Attributes.Builder builder) {}
+
+  @Override
+  public void handleResolvedAddresses(ResolvedAddresses resolvedAddresses) {
+    Map<EquivalentAddressGroup, EquivalentAddressGroup> latest = Maps.newLinkedHashMap();
+    resolvedAddresses.getAddresses().forEach(group -> latest.put(stripAttributes(group), group));
+    // shutdown the subchannels of removed addresses
+    subchannels.entrySet().removeIf(entry -> {
+      if (latest.containsKey(entry.getKey())) {
+        return false;
+      }
+      getStateInfo(entry.getValue())[0] = ConnectivityStateInfo.forNonError(SHUTDOWN);
+      entry.getValue().shutdown();
+      return true;
+    });
+    latest.forEach((key, group) -> {
+      Subchannel subchannel = subchannels.get(key);
+      if (subchannel != null) {
+        // keep the attributes of address fresh, the weight may be changed
+        subchannel.updateAddresses(Collections.singletonList(group));
+        return;
+      }
+      Attributes.Builder attributes = Attributes.newBuilder()
+              .set(STATE_INFO, new ConnectivityStateInfo[]{ConnectivityStateInfo.forNonError(IDLE)});
+      initAttributes(attributes);
+      Subchannel created = helper.createSubchannel(CreateSubchannelArgs.newBuilder()
+              .setAddresses(group)
+              .setAttributes(attributes.build())
+              .build());
+      created.start(stateInfo -> processSubchannelState(created, stateInfo));
+      subchannels.put(key, created);
+      created.requestConnection();
+    });
+    updateBalancingState();
+  }
+
+  @Override
+  public void handleNameResolutionError(Status error) {
+    // keep calling the ready subchannels
+    if (subchannels.isEmpty()) {
+      helper.updateBalancingState(TRANSIENT_FAILURE, new FixedPicker(PickResult.withError(error)));
+    }
+  }
+
+  /**
+   * Record the state of a subchannel, and update the state of balancer.
+   * @param subchannel  {@link Subchannel}
+   * @param stateInfo   the new state
+   */
+  private void processSubchannelState(Subchannel subchannel, ConnectivityStateInfo stateInfo) {
+    if (subchannels.get(stripAttributes(subchannel.getAddresses())) != subchannel) {
+      return;
+    }
+    if (stateInfo.getState() == IDLE) {
+      subchannel.requestConnection();
+    }
+    getStateInfo(subchannel)[0] = stateInfo;
+    updateBalancingState();
+  }
+
+  /** Update the state of balancer by the states of subchannels. */
+  private void updateBalancingState() {
+    List<Subchannel> ready = Lists.newArrayListWithCapacity(subchannels.size());
+    boolean connecting = false;
+    Status error = null;
+    for (Subchannel subchannel : subchannels.values()) {
+      ConnectivityStateInfo stateInfo = getStateInfo(subchannel)[0];
+      if (stateInfo.getState() == READY) {
+        ready.add(subchannel);
+      } else if (stateInfo.getState() == TRANSIENT_FAILURE) {
+        error = stateInfo.getStatus();
+      } else {
+        connecting = true;
+      }
+    }
+    if (!ready.isEmpty()) {
+      helper.updateBalancingState(READY, createPicker(ready));
+    } else if (connecting || error == null) {
+      // wait for the connections
+      helper.updateBalancingState(CONNECTING, new FixedPicker(PickResult.withNoResult()));
+    } else {
+      helper.updateBalancingState(TRANSIENT_FAILURE, new FixedPicker(PickResult.withError(error)));
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    subchannels.values().forEach(Subchannel::shutdown);
+    subchannels.clear();
+  }
+
+  /**
+   * Get the holder of state of a subchannel.
+   * @param subchannel  {@link Subchannel}
+   * @return  the holder of state
+   */
+  private static ConnectivityStateInfo[] getStateInfo(Subchannel subchannel) {
+    return subchannel.getAttributes().get(STATE_INFO);
+  }
+
+  /**
+   * Remove the attributes of addresses, they are the key of subchannel.
+   * @param group {@link EquivalentAddressGroup}
+   * @return  {@link EquivalentAddressGroup} without attributes
+   */
+  private static EquivalentAddressGroup stripAttributes(EquivalentAddressGroup group) {
+    return new EquivalentAddressGroup(group.getAddresses());
+  }
+
+  /** A picker which always returns one result. */
+  private static final class FixedPicker extends SubchannelPicker {
+    /** The result. */
+    private final PickResult result;
+
+    private FixedPicker(PickResult result) {
+      this.result = result;
+    }
+
+    @Override
+    public PickResult pickSubchannel(PickSubchannelArgs args) {
+      return result;
+    }
+  }
+
+  /** The provider of a {@link SubchannelsLoadBalancer}. */
+  static final class Provider extends LoadBalancerProvider {
+    /** The name of policy. */
+    private final String policyName;
+    /** The constructor of balancer. */
+    private final Function<Helper, LoadBalancer> constructor;
+
+    Provider(String policyName, Function<Helper, LoadBalancer> constructor) {
+      this.policyName = policyName;
+      this.constructor = constructor;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return true;
+    }
+
+    @Override
+    public int getPriority() {
+      return 5;
+    }
+
+    @Override
+    public String getPolicyName() {
+      return policyName;
+    }
+
+    @Override
+    public LoadBalancer newLoadBalancer(Helper helper) {
+      return constructor.apply(helper);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.yinxiang.microservice.grpc.inject.channels;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The balancer of {@link LoadBalancingPolicy#WEIGHTED}, every call takes a random ready subchannel by the
+ * {@link StaticNameResolver#WEIGHT} of its address.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class WeightedLoadBalancer extends SubchannelsLoadBalancer {
+  WeightedLoadBalancer(Helper helper) {
+    super(helper);
+  }
+
+  @Override
+  SubchannelPicker createPicker(List<Subchannel> ready) {
+    Subchannel[] subchannels = ready.toArray(new Subchannel[0]);
+    // the sum of weights from the first to every subchannel
+    int[] sums = new int[subchannels.length];
+    int total = 0;
+    for (int i = 0; i < subchannels.length; i++) {
+      Integer weight = subchannels[i].getAddresses().getAttributes().get(StaticNameResolver.WEIGHT);
+      total += weight == null ? 1 : weight;
+      sums[i] = total;
+    }
+    int bound = total;
+    return new SubchannelPicker() {
+      @Override
+      public PickResult pickSubchannel(PickSubchannelArgs args) {
+        // take the first subchannel whose sum is greater than the random
+        int index = Arrays.binarySearch(sums, ThreadLocalRandom.current().nextInt(bound) + 1);
+        return PickResult.withSubchannel(subchannels[index < 0 ? -index - 1 : index]);
+      }
+    };
+  }
+}
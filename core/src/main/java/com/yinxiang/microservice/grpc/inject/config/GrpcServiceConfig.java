@@ -1,5 +1,12 @@
 package com.yinxiang.microservice.grpc.inject.config;
 
+import com.yinxiang.microservice.grpc.inject.channels.ChannelExecutor;
+import com.yinxiang.microservice.grpc.inject.channels.ChannelPoolPolicy;
+import com.yinxiang.microservice.grpc.inject.channels.LoadBalancingPolicy;
+
+import java.time.Duration;
+import java.util.List;
+
 /**
  * Config of gRPC server.
  * @author Huiyuan Fu
@@ -10,8 +17,46 @@ public class GrpcServiceConfig {
   private String host;
   /** Server port */
   private int port;
+  /** The target of channel, ex: unix:///var/run/grpc.sock, used instead of all addresses if not empty. */
+  private String target;
+  /** The service is served by this application, call it by the in-process server of grpc.inProcessServerName. */
+  private boolean local;
   /** Unique alias of stub's package. */
   private String name;
+  /** The count of channels(connections) to server, more than 1 is a pool. */
+  private int channels = 1;
+  /** The policy of pool to pick a channel. */
+  private ChannelPoolPolicy poolPolicy = ChannelPoolPolicy.ROUND_ROBIN;
+  /** The addresses of servers(host:port or host:port;weight=N), used instead of host and port if not empty. */
+  private List<String> addresses;
+  /** The file of addresses(one per line), watched and used instead of addresses if not empty. */
+  private String addressesFile;
+  /** The policy to balance calls over the addresses. */
+  private LoadBalancingPolicy loadBalancingPolicy = LoadBalancingPolicy.PICK_FIRST;
+  /** The time without read to ping the server, null is never. */
+  private Duration keepAliveTime;
+  /** The time to wait the ack of ping before close the connection, null is the default of gRPC. */
+  private Duration keepAliveTimeout;
+  /** Ping the server even if there is no call. */
+  private boolean keepAliveWithoutCalls;
+  /** The time without call to release the connections, null is the default of gRPC. */
+  private Duration idleTimeout;
+  /** The max size of response, null is the default of gRPC. */
+  private Integer maxInboundMessageSize;
+  /** The max size of response headers and trailers, null is the default of gRPC. */
+  private Integer maxInboundMetadataSize;
+  /** The initial HTTP/2 flow-control window of a stream, null is the default of gRPC. */
+  private Integer flowControlWindow;
+  /** The compressor of requests, ex: gzip, null is not compress. */
+  private String compression;
+  /** Send the calls in plaintext, false to use TLS. */
+  private boolean plaintext = true;
+  /** The executor of callbacks. */
+  private ChannelExecutor executor = ChannelExecutor.SHARED;
+  /** Use the event loops shared by all channels and the server, else the service has its own. */
+  private boolean shareEventLoopGroup = true;
+  /** The count of threads of own event loops, 0 is the default of netty. */
+  private int eventLoopThreads;
 
   /** @see #host */
   public String getHost() {
@@ -33,6 +78,26 @@ public class GrpcServiceConfig {
     this.port = port;
   }
 
+  /** @see #target */
+  public String getTarget() {
+    return target;
+  }
+
+  /** @see #target */
+  public void setTarget(String target) {
+    this.target = target;
+  }
+
+  /** @see #local */
+  public boolean isLocal() {
+    return local;
+  }
+
+  /** @see #local */
+  public void setLocal(boolean local) {
+    this.local = local;
+  }
+
   /** @see #name */
   public String getName() {
     return name;
@@ -42,4 +107,174 @@ public class GrpcServiceConfig {
   public void setName(String name) {
     this.name = name;
   }
+
+  /** @see #channels */
+  public int getChannels() {
+    return channels;
+  }
+
+  /** @see #channels */
+  public void setChannels(int channels) {
+    this.channels = channels;
+  }
+
+  /** @see #poolPolicy */
+  public ChannelPoolPolicy getPoolPolicy() {
+    return poolPolicy;
+  }
+
+  /** @see #poolPolicy */
+  public void setPoolPolicy(ChannelPoolPolicy poolPolicy) {
+    this.poolPolicy = poolPolicy;
+  }
+
+  /** @see #addresses */
+  public List<String> getAddresses() {
+    return addresses;
+  }
+
+  /** @see #addresses */
+  public void setAddresses(List<String> addresses) {
+    this.addresses = addresses;
+  }
+
+  /** @see #addressesFile */
+  public String getAddressesFile() {
+    return addressesFile;
+  }
+
+  /** @see #addressesFile */
+  public void setAddressesFile(String addressesFile) {
+    this.addressesFile = addressesFile;
+  }
+
+  /** @see #loadBalancingPolicy */
+  public LoadBalancingPolicy getLoadBalancingPolicy() {
+    return loadBalancingPolicy;
+  }
+
+  /** @see #loadBalancingPolicy */
+  public void setLoadBalancingPolicy(LoadBalancingPolicy loadBalancingPolicy) {
+    this.loadBalancingPolicy = loadBalancingPolicy;
+  }
+
+  /** @see #keepAliveTime */
+  public Duration getKeepAliveTime() {
+    return keepAliveTime;
+  }
+
+  /** @see #keepAliveTime */
+  public void setKeepAliveTime(Duration keepAliveTime) {
+    this.keepAliveTime = keepAliveTime;
+  }
+
+  /** @see #keepAliveTimeout */
+  public Duration getKeepAliveTimeout() {
+    return keepAliveTimeout;
+  }
+
+  /** @see #keepAliveTimeout */
+  public void setKeepAliveTimeout(Duration keepAliveTimeout) {
+    this.keepAliveTimeout = keepAliveTimeout;
+  }
+
+  /** @see #keepAliveWithoutCalls */
+  public boolean isKeepAliveWithoutCalls() {
+    return keepAliveWithoutCalls;
+  }
+
+  /** @see #keepAliveWithoutCalls */
+  public void setKeepAliveWithoutCalls(boolean keepAliveWithoutCalls) {
+    this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+  }
+
+  /** @see #idleTimeout */
+  public Duration getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /** @see #idleTimeout */
+  public void setIdleTimeout(Duration idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  /** @see #maxInboundMessageSize */
+  public Integer getMaxInboundMessageSize() {
+    return maxInboundMessageSize;
+  }
+
+  /** @see #maxInboundMessageSize */
+  public void setMaxInboundMessageSize(Integer maxInboundMessageSize) {
+    this.maxInboundMessageSize = maxInboundMessageSize;
+  }
+
+  /** @see #maxInboundMetadataSize */
+  public Integer getMaxInboundMetadataSize() {
+    return maxInboundMetadataSize;
+  }
+
+  /** @see #maxInboundMetadataSize */
+  public void setMaxInboundMetadataSize(Integer maxInboundMetadataSize) {
+    this.maxInboundMetadataSize = maxInboundMetadataSize;
+  }
+
+  /** @see #flowControlWindow */
+  public Integer getFlowControlWindow() {
+    return flowControlWindow;
+  }
+
+  /** @see #flowControlWindow */
+  public void setFlowControlWindow(Integer flowControlWindow) {
+    this.flowControlWindow = flowControlWindow;
+  }
+
+  /** @see #compression */
+  public String getCompression() {
+    return compression;
+  }
+
+  /** @see #compression */
+  public void setCompression(String compression) {
+    this.compression = compression;
+  }
+
+  /** @see #plaintext */
+  public boolean isPlaintext() {
+    return plaintext;
+  }
+
+  /** @see #plaintext */
+  public void setPlaintext(boolean plaintext) {
+    this.plaintext = plaintext;
+  }
+
+  /** @see #executor */
+  public ChannelExecutor getExecutor() {
+    return executor;
+  }
+
+  /** @see #executor */
+  public void setExecutor(ChannelExecutor executor) {
+    this.executor = executor;
+  }
+
+  /** @see #shareEventLoopGroup */
+  public boolean isShareEventLoopGroup() {
+    return shareEventLoopGroup;
+  }
+
+  /** @see #shareEventLoopGroup */
+  public void setShareEventLoopGroup(boolean shareEventLoopGroup) {
+    this.shareEventLoopGroup = shareEventLoopGroup;
+  }
+
+  /** @see #eventLoopThreads */
+  public int getEventLoopThreads() {
+    return eventLoopThreads;
+  }
+
+  /** @see #eventLoopThreads */
+  public void setEventLoopThreads(int eventLoopThreads) {
+    this.eventLoopThreads = eventLoopThreads;
+  }
 }
@@ -0,0 +1,40 @@
+package com.yinxiang.microservice.grpc.inject.factories;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+/**
+ * A method to implement in the custom interface, by reflection at runtime, or by the mirror of annotation processor
+ * at build time, both are generated by the same {@link MethodParametersProcessor}.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public interface ClientMethodInfo {
+  /**
+   * @return  name of method
+   */
+  String getName();
+
+  /**
+   * @return  return type of method
+   */
+  ClientTypeInfo getReturnType();
+
+  /**
+   * Get the type of value of an async or streaming method, ex: String of {@code CompletableFuture<String>}.
+   * @return  type of value, com.google.protobuf.Message if it is raw or a wildcard
+   */
+  ClientTypeInfo getValueType();
+
+  /**
+   * @return  all parameters of method
+   */
+  List<ClientParameterInfo> getParameters();
+
+  /**
+   * @param annotationClass class of annotation
+   * @param <A> type of annotation
+   * @return  annotation, null if not present
+   */
+  <A extends Annotation> A getAnnotation(Class<A> annotationClass);
+}
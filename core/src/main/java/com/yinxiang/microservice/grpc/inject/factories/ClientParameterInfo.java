@@ -0,0 +1,34 @@
+package com.yinxiang.microservice.grpc.inject.factories;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * A parameter of a method in the custom interface.
+ * @see ClientMethodInfo
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public interface ClientParameterInfo {
+  /**
+   * @return  name of parameter
+   */
+  String getName();
+
+  /**
+   * @return  type of parameter
+   */
+  ClientTypeInfo getType();
+
+  /**
+   * Get an annotation of parameter, the members of {@link Class} type are not readable, ex: GrpcHeader#type().
+   * @param annotationClass class of annotation
+   * @param <A> type of annotation
+   * @return  annotation, null if not present
+   */
+  <A extends Annotation> A getAnnotation(Class<A> annotationClass);
+
+  /**
+   * @return  the type of GrpcHeader#type(), null if the parameter is not a header
+   */
+  ClientTypeInfo getHeaderType();
+}
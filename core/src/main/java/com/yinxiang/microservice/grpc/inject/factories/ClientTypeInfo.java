@@ -0,0 +1,40 @@
+package com.yinxiang.microservice.grpc.inject.factories;
+
+/**
+ * A type in the custom interface, by reflection at runtime, or by the mirror of annotation processor at build time.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public interface ClientTypeInfo {
+  /**
+   * The binary name of erasure, same as {@link Class#getName()}, ex: com.example.Outer$Inner, int.
+   * @return  binary name
+   */
+  String getName();
+
+  /**
+   * The canonical name of erasure, which is used in the generated code, ex: com.example.Outer.Inner.
+   * @return  canonical name
+   */
+  String getCanonicalName();
+
+  /**
+   * The name with type arguments, which is used in the declarations of generated source.
+   * @return  generic name
+   */
+  String getGenericName();
+
+  /**
+   * @param type  a class
+   * @return  true if this type is type or a sub type of it
+   */
+  boolean isSubtypeOf(Class<?> type);
+
+  /**
+   * @param type  a class
+   * @return  true if the erasure of this type is type
+   */
+  default boolean is(Class<?> type) {
+    return getName().equals(type.getName());
+  }
+}
@@ -2,19 +2,39 @@ package com.yinxiang.microservice.grpc.inject.factories;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.ObjectArrays;
 import com.yinxiang.microservice.grpc.autoconfigure.GrpcServerProperties;
+import com.yinxiang.microservice.grpc.inject.channels.ChannelExecutor;
+import com.yinxiang.microservice.grpc.inject.channels.ChannelPool;
+import com.yinxiang.microservice.grpc.inject.channels.DefaultCompressionInterceptor;
+import com.yinxiang.microservice.grpc.inject.channels.FileNameResolver;
 import com.yinxiang.microservice.grpc.inject.channels.ReusableChannel;
+import com.yinxiang.microservice.grpc.inject.channels.StaticNameResolver;
 import com.yinxiang.microservice.grpc.inject.config.GrpcServiceConfig;
+import com.yinxiang.microservice.grpc.transport.DomainSockets;
+import com.yinxiang.microservice.grpc.transport.GrpcTransportResources;
+import com.yinxiang.microservice.grpc.transport.NettyTransport;
 import io.grpc.Channel;
 import io.grpc.ClientInterceptor;
 import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.NameResolver;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.netty.NettyChannelBuilder;
 import io.grpc.stub.AbstractStub;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -30,6 +50,7 @@ import static com.google.common.base.Preconditions.checkArgument;
  *   and record in {@link #stubs}.
  *   Third, create a new {@link GrpcClientProxyFactory} and call
  *   {@link GrpcClientProxyFactory#newInstance(AbstractStub)} to create a implement of the custom interface.
+ *   The clients may be created in parallel, the stubs and channels are created once in concurrent maps.
  * </p>
  * @param <T> the custom interface which with annotation which support inject
  * @author Huiyuan Fu
@@ -38,15 +59,19 @@ import static com.google.common.base.Preconditions.checkArgument;
 public abstract class GrpcClientCreator<T> {
   private static final Logger log = LoggerFactory.getLogger(GrpcClientCreator.class);
   /** Map of {@link Channel}[key=name, value={@link Channel}]. */
-  private static Map<String, Channel> channels = Maps.newHashMap();
+  private static Map<String, Channel> channels = Maps.newConcurrentMap();
   /** Map of {@link AbstractStub}[key=sub class of {@link AbstractStub}, value={@link AbstractStub}]. */
-  private static Map<Class<? extends AbstractStub>, AbstractStub> stubs = Maps.newHashMap();
+  private static Map<Class<? extends AbstractStub>, AbstractStub> stubs = Maps.newConcurrentMap();
+  /** Map of own event loops[key=name of service, value={@link EventLoopGroup}], shut down after the channels. */
+  private static Map<String, EventLoopGroup> eventLoopGroups = Maps.newConcurrentMap();
   /** Map of aliases[key=alias, value=service]. */
   private static Map<String, String> aliases;
   /** The custom interface which need inject. */
   protected Class<T> mapperInterface;
   /** Config of gRPC. */
   private GrpcServerProperties grpcServerProperties;
+  /** The transport resources shared with the server, null if not shared. */
+  private GrpcTransportResources grpcTransportResources;
 
   protected GrpcClientCreator() {}
 
@@ -63,14 +88,10 @@ public abstract class GrpcClientCreator<T> {
     // get a subClass which is a specific class of AbstractStub
     @SuppressWarnings("unchecked")
     Class<? extends AbstractStub> subClass = getStubClass();
-    // check {@link #stubs} contains subClass
-    if (!stubs.containsKey(subClass)) {
-      // to create stub and record in stubs
-      stubs.put(subClass, newStub(subClass));
-    }
+    // get the stub of subClass, create and record in stubs if absent
+    AbstractStub stub = stubs.computeIfAbsent(subClass, this::newStub);
     // create a new GrpcClientProxyFactory and call newInstance to create a implement of the custom interface
-    return new GrpcClientProxyFactory<>(mapperInterface, subClass, getLogMethod())
-            .newInstance(subClass.cast(stubs.get(subClass)));
+    return new GrpcClientProxyFactory<>(mapperInterface, subClass, getLogMethod()).newInstance(subClass.cast(stub));
   }
 
   /**
@@ -86,15 +107,215 @@ public abstract class GrpcClientCreator<T> {
   protected abstract String getLogMethod();
 
   /**
-   * Create a {@link ManagedChannel}.
+   * Create a {@link ManagedChannel} with the defaults of gRPC.
    * @param host  host of server
    * @param port  port of server
    * @return  {@link ManagedChannel}
+   * @deprecated since 1.0.8 the channels of services are built by
+   *   {@link #newChannelBuilder(String, GrpcServiceConfig)}, override it instead.
+   *   An override is still called for a service of plain host and port with one channel, without the tuning of
+   *   its config, and a warning is logged.
    */
+  @Deprecated
   protected ManagedChannel createChannel(String host, int port) {
     return new ReusableChannel(host, port, createClientInterceptors());
   }
 
+  /**
+   * Create a builder of channel to a target, tuned by the config of service.
+   * <p>
+   *   Every channel of a remote service, single, pooled or balanced, is built by this hook, which replaced
+   *   {@link #createChannel(String, int)}. Override it to add TLS, credentials or return another builder.
+   *   A target of unix domain socket(unix:///path) is dialed by the epoll transport, on the shared event loops
+   *   if they are epoll, else on the own event loops of the service.
+   * </p>
+   * @param target  the target of channel, host:port, unix:///path or a target of name resolver
+   * @param config  config of service
+   * @return  {@link ManagedChannelBuilder}
+   */
+  protected ManagedChannelBuilder<?> newChannelBuilder(String target, GrpcServiceConfig config) {
+    boolean domainSocket = target.startsWith(DomainSockets.TARGET_PREFIX);
+    NettyChannelBuilder builder = domainSocket ?
+            NettyChannelBuilder.forAddress(DomainSockets.fromTarget(target)) : NettyChannelBuilder.forTarget(target);
+    if (config.isPlaintext()) {
+      builder.usePlaintext();
+    } else {
+      builder.useTransportSecurity();
+    }
+    if (config.getKeepAliveTime() != null) {
+      builder.keepAliveTime(config.getKeepAliveTime().toNanos(), TimeUnit.NANOSECONDS);
+    }
+    if (config.getKeepAliveTimeout() != null) {
+      builder.keepAliveTimeout(config.getKeepAliveTimeout().toNanos(), TimeUnit.NANOSECONDS);
+    }
+    builder.keepAliveWithoutCalls(config.isKeepAliveWithoutCalls());
+    if (config.getIdleTimeout() != null) {
+      builder.idleTimeout(config.getIdleTimeout().toNanos(), TimeUnit.NANOSECONDS);
+    }
+    if (config.getMaxInboundMessageSize() != null) {
+      builder.maxInboundMessageSize(config.getMaxInboundMessageSize());
+    }
+    if (config.getMaxInboundMetadataSize() != null) {
+      builder.maxInboundMetadataSize(config.getMaxInboundMetadataSize());
+    }
+    if (config.getFlowControlWindow() != null) {
+      builder.flowControlWindow(config.getFlowControlWindow());
+    }
+    if (config.getExecutor() == ChannelExecutor.DIRECT) {
+      builder.directExecutor();
+    } else if (grpcTransportResources != null) {
+      builder.executor(grpcTransportResources.getExecutor());
+    }
+    NettyTransport sharedTransport = grpcTransportResources == null ? null : grpcTransportResources.getTransport();
+    NettyTransport transport;
+    EventLoopGroup group;
+    if (config.isShareEventLoopGroup() && sharedTransport != null &&
+            (!domainSocket || sharedTransport == NettyTransport.EPOLL)) {
+      transport = sharedTransport;
+      group = grpcTransportResources.getWorkerGroup();
+    } else if (!config.isShareEventLoopGroup() || domainSocket) {
+      // the own event loops of a service are kept for all of its channels, and the rebuilt ones
+      NettyTransport own = domainSocket ? NettyTransport.EPOLL :
+              sharedTransport == null ? NettyTransport.NIO : sharedTransport;
+      transport = own;
+      group = eventLoopGroups.computeIfAbsent(config.getName(), name ->
+              own.newEventLoopGroup(config.getEventLoopThreads(), new DefaultThreadFactory("grpc-" + name, true)));
+    } else {
+      // the default event loops of gRPC
+      return builder;
+    }
+    return builder.eventLoopGroup(group)
+            .channelType(domainSocket ? DomainSockets.getChannelType() : transport.getChannelType());
+  }
+
+  /**
+   * Create a {@link ManagedChannel} which balances calls over the addresses of a service.
+   * <p>
+   *   The addresses are read from the file if it is configured, and changes of the file are pushed to
+   *   the live channel, else the addresses of config are used.
+   * </p>
+   * @param config  config of service
+   * @return  {@link ManagedChannel}
+   */
+  protected ManagedChannel createBalancedChannel(GrpcServiceConfig config) {
+    NameResolver.Factory nameResolverFactory = Strings.isNullOrEmpty(config.getAddressesFile()) ?
+            new StaticNameResolver.Factory(config.getAddresses()) :
+            new FileNameResolver.Factory(Paths.get(config.getAddressesFile()));
+    String target = nameResolverFactory.getDefaultScheme() + ":///" + config.getName();
+    String policyName = config.getLoadBalancingPolicy().getPolicyName();
+    return new ReusableChannel(target, () -> newChannelBuilder(target, config)
+            .nameResolverFactory(nameResolverFactory)
+            .defaultLoadBalancingPolicy(policyName), createClientInterceptors(config));
+  }
+
+  /**
+   * Create a builder of channel to the in-process server of this application, for a local service.
+   * <p>
+   *   The messages of in-process calls are passed as they are, a protobuf message is not serialized when
+   *   the client and server share its class.
+   * </p>
+   * @param serverName  the name of in-process server
+   * @param config      config of service
+   * @return  {@link ManagedChannelBuilder}
+   */
+  protected ManagedChannelBuilder<?> newLocalChannelBuilder(String serverName, GrpcServiceConfig config) {
+    InProcessChannelBuilder builder = InProcessChannelBuilder.forName(serverName);
+    if (config.getMaxInboundMetadataSize() != null) {
+      builder.maxInboundMetadataSize(config.getMaxInboundMetadataSize());
+    }
+    if (config.getExecutor() == ChannelExecutor.DIRECT) {
+      builder.directExecutor();
+    } else if (grpcTransportResources != null) {
+      builder.executor(grpcTransportResources.getExecutor());
+    }
+    return builder;
+  }
+
+  /**
+   * Create a {@link ManagedChannel} of a service, a {@link ChannelPool} if the config has more than one channel.
+   * A local service always has one channel to the in-process server.
+   * @param config  config of service
+   * @return  {@link ManagedChannel}
+   */
+  protected ManagedChannel createChannel(GrpcServiceConfig config) {
+    if (config.isLocal()) {
+      return createLocalChannel(config);
+    }
+    if (overridesCreateChannel(getClass())) {
+      // the old hook only knows host and port
+      if (config.getChannels() <= 1 && isPlainAddress(config)) {
+        log.warn("{} overrides the deprecated createChannel(String, int), the service {} is not tuned by its config, " +
+                "override newChannelBuilder(String, GrpcServiceConfig) instead", getClass().getName(), config.getName());
+        return createChannel(config.getHost(), config.getPort());
+      }
+      log.warn("{} overrides the deprecated createChannel(String, int), which is not called for the service {} " +
+              "of a target, addresses or channels, override newChannelBuilder(String, GrpcServiceConfig) instead",
+              getClass().getName(), config.getName());
+    }
+    if (config.getChannels() <= 1) {
+      return createSingleChannel(config);
+    }
+    ManagedChannel[] channels = new ManagedChannel[config.getChannels()];
+    for (int i = 0; i < channels.length; i++) {
+      channels[i] = createSingleChannel(config);
+    }
+    return new ChannelPool(config.getPoolPolicy(), channels);
+  }
+
+  /**
+   * Create the channel of a local service, which is served by the in-process server of this application.
+   * @param config  config of service
+   * @return  {@link ManagedChannel}
+   */
+  private ManagedChannel createLocalChannel(GrpcServiceConfig config) {
+    String serverName = grpcServerProperties.getInProcessServerName();
+    checkArgument(!Strings.isNullOrEmpty(serverName),
+            "grpc.inProcessServerName is needed by the local service: " + config.getName());
+    // no compression in process
+    return new ReusableChannel("in-process:" + serverName, () -> newLocalChannelBuilder(serverName, config),
+            createClientInterceptors());
+  }
+
+  /**
+   * Create one channel of a service to its target or host and port, balanced if the config has any address
+   * or a file of addresses.
+   * @param config  config of service
+   * @return  {@link ManagedChannel}
+   */
+  private ManagedChannel createSingleChannel(GrpcServiceConfig config) {
+    if (Strings.isNullOrEmpty(config.getTarget()) && !isPlainAddress(config)) {
+      return createBalancedChannel(config);
+    }
+    String target = Strings.isNullOrEmpty(config.getTarget()) ?
+            String.format("%s:%d", config.getHost(), config.getPort()) : config.getTarget();
+    return new ReusableChannel(target, () -> newChannelBuilder(target, config), createClientInterceptors(config));
+  }
+
+  /**
+   * Check a service is addressed by its host and port only, without a target, addresses or a file of addresses.
+   * @param config  config of service
+   * @return  true if plain
+   */
+  private static boolean isPlainAddress(GrpcServiceConfig config) {
+    List<String> addresses = config.getAddresses();
+    return Strings.isNullOrEmpty(config.getTarget()) && (addresses == null || addresses.isEmpty()) &&
+            Strings.isNullOrEmpty(config.getAddressesFile());
+  }
+
+  /**
+   * Create the array of {@link ClientInterceptor} of a service, the default compression is the first.
+   * @param config  config of service
+   * @return  array of {@link ClientInterceptor}
+   */
+  private ClientInterceptor[] createClientInterceptors(GrpcServiceConfig config) {
+    ClientInterceptor[] interceptors = createClientInterceptors();
+    if (Strings.isNullOrEmpty(config.getCompression())) {
+      return interceptors;
+    }
+    // the last interceptor is called first, so the compression of others wins
+    return ObjectArrays.concat(new DefaultCompressionInterceptor(config.getCompression()), interceptors);
+  }
+
   /**
    * Create the array of {@link ClientInterceptor}, if have any {@link ClientInterceptor} please
    * add a setter method.
@@ -107,10 +328,9 @@ public abstract class GrpcClientCreator<T> {
   /**
    * Create a {@link AbstractStub} according to the class name.
    * <p>
-   *   Call {@link #getGrpcClassNames(Class)} to split the class name to double parts.
-   *   The left part use to get the class of [serviceGrpc], the right part use to call {@link #getStubName(String)}
-   *   match a stub.
-   *   At last get the method which can create stub and invoke the method to create the {@link AbstractStub}.
+   *   The class of [serviceGrpc] is the enclosing class of stub, call {@link #getStubFactoryName(Class)} to match
+   *   the method which can create stub, and invoke the method to create the {@link AbstractStub}.
+   *   No class is loaded by name, so the method is the only reflection which a native image need to register.
    * </p>
    * @param tClass  sub class of {@link AbstractStub}
    * @param name    alias of channel
@@ -118,33 +338,23 @@ public abstract class GrpcClientCreator<T> {
    * @throws Exception  Exception
    */
   private AbstractStub newStub(Class<?> tClass, String name) throws Exception {
-    // split the class name to double parts
-    String[] classNames = getGrpcClassNames(tClass);
     // get the class of [serviceGrpc]
-    return (AbstractStub) Class.forName(classNames[0])
+    return (AbstractStub) tClass.getEnclosingClass()
             // get the method which can create stub
-            .getMethod("new" + getStubName(classNames[1]), Channel.class)
+            .getMethod(getStubFactoryName(tClass), Channel.class)
             // create the AbstractStub
             .invoke(null, getOrCreateChannel(name));
   }
 
   /**
-   * To split the class name to double parts.
+   * Match the name of the static method of [serviceGrpc] which creates a stub, ex: newBlockingStub.
    * @param stubClass sub class of {@link AbstractStub}
-   * @return  double parts
-   */
-  private static String[] getGrpcClassNames(Class<?> stubClass) {
-    return stubClass.getName().split("\\$");
-  }
-
-  /**
-   * Match a stub name.
-   * @param className the stub class name
-   * @return  stub name
+   * @return  name of method
    */
-  private String getStubName(String className) {
-    return className.endsWith("BlockingStub") ?
-            "BlockingStub" : className.endsWith("FutureStub") ? "FutureStub" : "Stub";
+  static String getStubFactoryName(Class<?> stubClass) {
+    String className = stubClass.getSimpleName();
+    return "new" + (className.endsWith("BlockingStub") ?
+            "BlockingStub" : className.endsWith("FutureStub") ? "FutureStub" : "Stub");
   }
 
   /**
@@ -198,20 +408,82 @@ public abstract class GrpcClientCreator<T> {
    * @return  {@link Channel}
    */
   private Channel getOrCreateChannel(String name) {
-    // try to get a channel
-    Channel channel = channels.get(name);
-    // create a new channel when not exists and record it
-    if (channel == null) {
+    // create a new channel when not exists and record it, once even the clients are created in parallel
+    return channels.computeIfAbsent(name, key -> {
       // get channel config
-      GrpcServiceConfig grpcServiceConfig = grpcServerProperties.getServices().get(aliases.get(name));
+      GrpcServiceConfig grpcServiceConfig = grpcServerProperties.getServices().get(aliases.get(key));
       // create channel
-      channel = createChannel(grpcServiceConfig.getHost(), grpcServiceConfig.getPort());
-      // record
-      channels.put(name, channel);
+      Channel channel = createChannel(grpcServiceConfig);
       // log
-      log.info("createChannel: {}:{}", grpcServiceConfig.getHost(), grpcServiceConfig.getPort());
+      log.info("createChannel: {}:{}, target: {}, addresses: {}, addressesFile: {}, local: {} x {}",
+              grpcServiceConfig.getHost(), grpcServiceConfig.getPort(), grpcServiceConfig.getTarget(),
+              grpcServiceConfig.getAddresses(), grpcServiceConfig.getAddressesFile(), grpcServiceConfig.isLocal(),
+              grpcServiceConfig.getChannels());
+      return channel;
+    });
+  }
+
+  /**
+   * Check a subclass overrides the deprecated {@link #createChannel(String, int)}, checked once per channel.
+   * @param type  the class of creator
+   * @return  true if overrides
+   */
+  private static boolean overridesCreateChannel(Class<?> type) {
+    for (Class<?> c = type; c != null && c != GrpcClientCreator.class; c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod("createChannel", String.class, int.class);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // check the super class
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Shut down the channels of all services, then the own event loops of services when the channels are terminated.
+   * The stubs are dropped with their channels, the next client creates them again.
+   * @param timeout the time to wait for the channels, and then for the event loops
+   * @param unit    the unit of timeout
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public static void shutdownChannels(long timeout, TimeUnit unit) throws InterruptedException {
+    stubs.clear();
+    List<ManagedChannel> managedChannels = Lists.newArrayList();
+    for (String name : channels.keySet()) {
+      Channel channel = channels.remove(name);
+      if (channel instanceof ManagedChannel) {
+        managedChannels.add(((ManagedChannel) channel).shutdown());
+      }
     }
-    return channel;
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (ManagedChannel channel : managedChannels) {
+      if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        channel.shutdownNow();
+      }
+    }
+    // no channel runs on the own event loops now
+    List<Future<?>> terminations = Lists.newArrayList();
+    for (String name : eventLoopGroups.keySet()) {
+      EventLoopGroup group = eventLoopGroups.remove(name);
+      if (group != null) {
+        terminations.add(group.shutdownGracefully());
+      }
+    }
+    deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Future<?> termination : terminations) {
+      if (!termination.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        log.warn("the own event loops of a service are not terminated in {} {}", timeout, unit);
+      }
+    }
+  }
+
+  /**
+   * Support to autowire method.
+   * @param grpcTransportResources  {@link GrpcTransportResources}
+   */
+  public void setGrpcTransportResources(GrpcTransportResources grpcTransportResources) {
+    this.grpcTransportResources = grpcTransportResources;
   }
 
   /**
@@ -5,22 +5,26 @@ import io.grpc.MethodDescriptor;
 import io.grpc.stub.AbstractStub;
 import io.grpc.stub.StreamObserver;
 import javassist.*;
+import javassist.bytecode.ClassFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
-import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkArgument;
 import static io.grpc.MethodDescriptor.MethodType.*;
 
 /**
  * The factory of gRPC client proxy.
  * <p>
- *   Generate implement class from custom interface by javassist, only in JVM.
+ *   Use the implement class which is generated by GrpcClientProcessor at build time if present,
+ *   else generate implement class from custom interface by javassist, only in JVM.
  * </p>
  * @param <T> the type of custom interface which with GrpcClient annotation
  * @author Huiyuan Fu
@@ -28,6 +32,16 @@ import static io.grpc.MethodDescriptor.MethodType.*;
  */
 class GrpcClientProxyFactory<T> {
   private static final Logger log = LoggerFactory.getLogger(GrpcClientProxyFactory.class);
+  /** The constructors of the classes generated by javassist, held by custom interface[key=stub class]. */
+  private static final ClassValue<Map<Class<?>, Constructor<?>>> PROXY_CONSTRUCTORS =
+          new ClassValue<Map<Class<?>, Constructor<?>>>() {
+            @Override
+            protected Map<Class<?>, Constructor<?>> computeValue(Class<?> type) {
+              return Maps.newConcurrentMap();
+            }
+          };
+  /** The counter of the classes generated by javassist, makes the names unique. */
+  private static final AtomicInteger PROXY_COUNTER = new AtomicInteger();
   /** The custom interface which with {@link com.yinxiang.microservice.grpc.inject.annotations.GrpcClient} annotation. */
   private final Class<T> grpcInterface;
   /** The sub type of {@link AbstractStub} which in custom interface's annotation. */
@@ -37,10 +51,10 @@ class GrpcClientProxyFactory<T> {
 
   /**
    * Create the {@link MethodParametersProcessor}.
-   * @param safe  is safe method, if true will has {@link CatchableParametersGenerator}
+   * @param context ParametersContext, if safe will has {@link CatchableParametersGenerator}
    * @return  {@link MethodParametersProcessor}
    */
-  private static MethodParametersProcessor createMethodParameterProcessor(boolean safe) {
+  private static MethodParametersProcessor createMethodParameterProcessor(ParametersContext context) {
     CacheParametersProcessor processor = new CacheParametersProcessor();
     // create collectors
     processor.addParametersCollector(collector -> new FillParametersCollector(processor, collector));
@@ -53,8 +67,8 @@ class GrpcClientProxyFactory<T> {
     // create generator
     processor.addParametersGenerator(new InterceptorParametersGenerator(processor::getGeneratorCache));
     processor.addParametersGenerator(new HeaderParametersGenerator(processor::getGeneratorCache));
-    MethodParametersGenerator generator = createNormalParametersGenerator(processor::getGeneratorCache);
-    if (safe) {
+    MethodParametersGenerator generator = createNormalParametersGenerator(processor::getGeneratorCache, context);
+    if (context.isSafe()) {
       generator = new CatchableParametersGenerator(generator);
     }
     processor.addParametersGenerator(generator);
@@ -65,16 +79,24 @@ class GrpcClientProxyFactory<T> {
   /**
    * Create the NormalParametersGenerator which contains Request/Request.Builder/parameter generator.
    * @param cacheSupplier the cache supplier
+   * @param context       ParametersContext, an async or streaming method has its own generator
    * @return  {@link MethodParametersGenerator}
    */
   private static MethodParametersGenerator createNormalParametersGenerator(
-          Function<CacheType, ParametersGeneratorCache> cacheSupplier
+          Function<CacheType, ParametersGeneratorCache> cacheSupplier,
+          ParametersContext context
   ) {
     ParameterGenerators generator = new ParameterGenerators();
     MethodParametersGenerator generatorChain = createUseBuilderParametersGenerator(cacheSupplier);
     generatorChain = new RequestParametersGenerator(cacheSupplier, generatorChain);
     generator.addParametersGenerator(new StubParameterGeneratorDecorator(generatorChain));
     generator.addParametersGenerator(new StreamParametersGenerator(cacheSupplier));
+    if (context.isFuture()) {
+      return new FutureParametersGenerator(generator);
+    }
+    if (context.isStreaming()) {
+      return new StreamingParametersGenerator(generator);
+    }
     return new NormalParametersGenerator(generator);
   }
 
@@ -97,7 +119,7 @@ class GrpcClientProxyFactory<T> {
   }
 
   /**
-   * Create a new instance.
+   * Create a new instance, by the class which is generated at build time if present, else by javassist.
    * @param stub  stub
    * @param <S> sub class of AbstractStub
    * @return  the object which implement custom interface
@@ -105,78 +127,143 @@ class GrpcClientProxyFactory<T> {
    */
   @SuppressWarnings("unchecked")
   <S extends AbstractStub> T newInstance(S stub) throws Exception {
-    // create ClassPool
-    ClassPool pool = ClassPool.getDefault();
-    // insert exact classpath
-    pool.insertClassPath(new ClassClassPath(this.getClass()));
+    // use the class which is generated by GrpcClientProcessor
+    Constructor<?> constructor = getGeneratedConstructor();
+    if (constructor == null) {
+      // a native image can not define class at runtime
+      if (GrpcClientSources.inNativeImage()) {
+        throw new InjectGrpcException(grpcInterface.getName() + " is not generated at build time, " +
+                "add grpc-starter-processor to the annotation processors of the module.");
+      }
+      // the class generated by javassist is reused by the same interface and stub
+      constructor = PROXY_CONSTRUCTORS.get(grpcInterface).computeIfAbsent(stubClass, key -> generateProxyClass());
+    }
+    return (T) constructor.newInstance(stub, log);
+  }
+
+  /**
+   * Generate the implement class by javassist, in the package and the class loader of custom interface.
+   * <p>
+   *   The {@link ClassPool} only lives during the generation, it can find the classes of custom interface and
+   *   this module, the compiled {@link CtClass} are released with it.
+   * </p>
+   * @return  the constructor of implement class, the parameters are stub and log
+   */
+  private Constructor<?> generateProxyClass() {
+    // create ClassPool of this generation
+    ClassPool pool = new ClassPool(false);
+    pool.appendClassPath(new LoaderClassPath(grpcInterface.getClassLoader()));
+    pool.appendClassPath(new ClassClassPath(GrpcClientProxyFactory.class));
     // get the name of custom interface
     String interfaceName = grpcInterface.getName();
-    // create the proxy which implement the custom interface
-    CtClass proxyClass = pool.makeClass(interfaceName + "Impl");
-    // add implemented interface
-    proxyClass.addInterface(pool.get(interfaceName));
-    // get stub class
-    CtClass stubClass = pool.get(this.stubClass.getName());
-    // add stub field
-    proxyClass.addField(new CtField(stubClass, "stub", proxyClass));
-    // get log class
-    CtClass logClass = pool.get(Logger.class.getName());
-    // add log field
-    proxyClass.addField(new CtField(logClass, "log", proxyClass));
-    // create the constructor
-    CtConstructor constructor = new CtConstructor(new CtClass[]{stubClass, logClass}, proxyClass);
-    // set constructor body
-    constructor.setBody("{this.stub = $1;this.log = $2;}");
-    // add constructor to proxy
-    proxyClass.addConstructor(constructor);
-    // add all implement methods
-    addMethods(pool, proxyClass, stub.getClass().getMethods());
-    // create impl
-    return (T) proxyClass.toClass().getConstructor(stub.getClass(), Logger.class).newInstance(stub, log);
+    // create the proxy which implement the custom interface, the name is unique in class loader
+    CtClass proxyClass = pool.makeClass(interfaceName + "$$Impl" + PROXY_COUNTER.incrementAndGet());
+    try {
+      // add implemented interface
+      proxyClass.addInterface(pool.get(interfaceName));
+      // get stub class
+      CtClass stubClass = pool.get(this.stubClass.getName());
+      // add stub field
+      proxyClass.addField(new CtField(stubClass, "stub", proxyClass));
+      // get log class
+      CtClass logClass = pool.get(Logger.class.getName());
+      // add log field
+      proxyClass.addField(new CtField(logClass, "log", proxyClass));
+      // create the constructor
+      CtConstructor constructor = new CtConstructor(new CtClass[]{stubClass, logClass}, proxyClass);
+      // set constructor body
+      constructor.setBody("{this.stub = $1;this.log = $2;}");
+      // add constructor to proxy
+      proxyClass.addConstructor(constructor);
+      // add all implement methods
+      StringBuilder classInitializer = new StringBuilder();
+      Map<ClientMethodInfo, String> methods =
+              generateMethods(interfaceName, ReflectTypeInfo.getMethods(grpcInterface), this.stubClass, logMethod,
+                      classInitializer);
+      for (Map.Entry<ClientMethodInfo, String> entry : methods.entrySet()) {
+        addMethod(pool, proxyClass, entry.getKey(), entry.getValue());
+      }
+      // register the header keys
+      if (classInitializer.length() > 0) {
+        proxyClass.makeClassInitializer().setBody("{" + classInitializer + "}");
+      }
+      // define the class next to custom interface, by its lookup since java 9
+      Class<?> implClass = ClassFile.MAJOR_VERSION >= ClassFile.JAVA_9 ? proxyClass.toClass(grpcInterface) :
+              proxyClass.toClass(grpcInterface.getClassLoader(), grpcInterface.getProtectionDomain());
+      return implClass.getConstructor(this.stubClass, Logger.class);
+    } catch (CannotCompileException | NotFoundException | NoSuchMethodException e) {
+      throw new InjectGrpcException("Can not generate the implement of " + interfaceName + ": " + e.getMessage(), e);
+    } finally {
+      // release the compiled metadata
+      proxyClass.detach();
+    }
   }
 
   /**
-   * Add all implement methods.
-   * @param pool        ClassPool
-   * @param proxyClass  the proxyClass
-   * @param stubMethods all methods of stub
-   * @throws CannotCompileException Exception
-   * @throws NotFoundException      Exception
+   * Get the constructor of the class which is generated by GrpcClientProcessor.
+   * @return  constructor, null if the class is not generated or generated by another stub
    */
-  private void addMethods(ClassPool pool, CtClass proxyClass, Method[] stubMethods)
-          throws CannotCompileException, NotFoundException {
+  private Constructor<?> getGeneratedConstructor() {
+    String className = GrpcClientSources.getClassName(grpcInterface.getName());
+    try {
+      return Class.forName(className, false, grpcInterface.getClassLoader()).getConstructor(stubClass, Logger.class);
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (NoSuchMethodException e) {
+      log.warn("GrpcClientProxyFactory {} is not generated by {}, use javassist.", className, stubClass.getName());
+      return null;
+    }
+  }
+
+  /**
+   * Generate the bodies of all methods to implement, the bodies are compiled by javassist at runtime,
+   * or written to the java source by {@link GrpcClientSources} at build time.
+   * @param interfaceName     name of custom interface
+   * @param methods           all methods to implement of custom interface
+   * @param stubClass         the stubClass of custom interface
+   * @param logMethod         the custom interface's name of log getter
+   * @param classInitializer  the code which runs when the implement class is initialized
+   * @return  {@link Map}[key=method, value=body], in the order of methods
+   */
+  static Map<ClientMethodInfo, String> generateMethods(
+          String interfaceName,
+          List<ClientMethodInfo> methods,
+          Class<? extends AbstractStub> stubClass,
+          String logMethod,
+          StringBuilder classInitializer
+  ) {
     // record all method
     Map<String, Method> grpcMethods = Maps.newHashMap();
-    for (Method method : stubMethods) {
+    for (Method method : stubClass.getMethods()) {
       if (method.isBridge()) {
         continue;
       }
       grpcMethods.put(method.getName(), method);
     }
     // implement all methods
+    Map<ClientMethodInfo, String> bodies = Maps.newLinkedHashMap();
     boolean hasLogMethod = false;
-    for (Method method : grpcInterface.getMethods()) {
-      // do not implement default method
-      if (!method.isDefault()) {
-        // create the log method
-        if (method.getName().equals(logMethod)) {
-          if (hasLogMethod) {
-            log.warn("GrpcClientProxyFactory addMethods {} has repeated log method: ", grpcInterface, logMethod);
-          } else {
-            addLogMethod(pool, proxyClass, method);
-            hasLogMethod = true;
-          }
-        }
-        // create the stub's method
-        else {
-          // create context
-          ParametersContext context = new ParametersContext(method,
-                  name -> createGrpcMethodInfo(checkNotNull(grpcMethods.get(name))), stubClass);
-          // implement and add method
-          addMethod(pool, proxyClass, context, method);
+    for (ClientMethodInfo method : methods) {
+      // create the log method
+      if (method.getName().equals(logMethod)) {
+        if (hasLogMethod) {
+          log.warn("GrpcClientProxyFactory addMethods {} has repeated log method: ", interfaceName, logMethod);
+        } else {
+          bodies.put(method, "{return log;}");
+          hasLogMethod = true;
         }
       }
+      // create the stub's method
+      else {
+        // create context
+        ParametersContext context = new ParametersContext(method, name -> grpcMethods.containsKey(name) ?
+                createGrpcMethodInfo(grpcMethods.get(name)) : createGrpcMethodInfo(stubClass, name), stubClass,
+                classInitializer);
+        // implement method
+        bodies.put(method, createMethodBody(context, method));
+      }
     }
+    return bodies;
   }
 
   /**
@@ -184,7 +271,7 @@ class GrpcClientProxyFactory<T> {
    * @param stubMethod  a stub's {@link Method}
    * @return  {@link GrpcMethodInfo}
    */
-  private GrpcMethodInfo createGrpcMethodInfo(Method stubMethod) {
+  private static GrpcMethodInfo createGrpcMethodInfo(Method stubMethod) {
     MethodDescriptor.MethodType methodType = UNARY;
     int paramCount = stubMethod.getParameterTypes().length;
     Class requestType = stubMethod.getParameterTypes()[0];
@@ -199,65 +286,71 @@ class GrpcClientProxyFactory<T> {
   }
 
   /**
-   * Add the log getter.
-   * @param pool        {@link ClassPool}
-   * @param proxyClass  proxyClass
-   * @param method      custom interface's log method
-   * @throws CannotCompileException CannotCompileException
-   * @throws NotFoundException      NotFoundException
+   * Create the {@link GrpcMethodInfo} of a method which is not in the stub.
+   * The blocking and future stubs have no client or bidi streaming method, which has no request parameter.
+   * @param stubClass   the stubClass of custom interface
+   * @param methodName  name of gRPC method
+   * @return  {@link GrpcMethodInfo}
    */
-  private void addLogMethod(ClassPool pool, CtClass proxyClass, Method method)
-          throws CannotCompileException, NotFoundException {
-    // get return type
-    CtClass returnCtClass = pool.get(method.getReturnType().getName());
-    // create ctMethod
-    CtMethod ctMethod = new CtMethod(returnCtClass, method.getName(), new CtClass[0], proxyClass);
-    // set public
-    ctMethod.setModifiers(Modifier.PUBLIC);
-    // set content
-    ctMethod.setBody("{return log;}");
-    // add to ctClass
-    proxyClass.addMethod(ctMethod);
+  private static GrpcMethodInfo createGrpcMethodInfo(Class<? extends AbstractStub> stubClass, String methodName) {
+    MethodDescriptor.MethodType methodType = ParametersContext.getMethodDescriptor(stubClass, methodName).getType();
+    checkArgument(methodType == CLIENT_STREAMING || methodType == BIDI_STREAMING,
+            "%s has no method %s", stubClass.getName(), methodName);
+    return new GrpcMethodInfo(null, methodType, 1);
+  }
+
+  /**
+   * Create the body of an implement method.
+   * @param context ParametersContext
+   * @param method  the method which need implement
+   * @return  body of method
+   */
+  private static String createMethodBody(ParametersContext context, ClientMethodInfo method) {
+    // process all parameters
+    MethodParametersProcessor parameterProcessor = createMethodParameterProcessor(context);
+    // get all parameters
+    List<ClientParameterInfo> parameters = method.getParameters();
+    for (int i = 0;i < parameters.size();i++) {
+      // collector parameter
+      parameterProcessor.collect(i, parameters.get(i), context);
+    }
+    // create method content builder
+    StringBuilder methodBody = new StringBuilder("{");
+    // the local stub which the interceptors and the headers are applied to
+    methodBody.append(context.getStubClass().getCanonicalName()).append(" stub = this.stub;");
+    // append body
+    parameterProcessor.fillBody(methodBody, context);
+    // end
+    methodBody.append("}");
+    return methodBody.toString();
   }
 
   /**
    * Add the implement method.
    * @param pool        ClassPool
    * @param proxyClass  the proxyClass
-   * @param context     ParametersContext
    * @param method      the method which need implement
+   * @param body        body of method
    * @throws CannotCompileException Exception
    * @throws NotFoundException      Exception
    */
-  private void addMethod(ClassPool pool, CtClass proxyClass, ParametersContext context, Method method)
+  private void addMethod(ClassPool pool, CtClass proxyClass, ClientMethodInfo method, String body)
           throws CannotCompileException, NotFoundException {
-    // process all parameters and get ctClasses array of parameters
-    MethodParametersProcessor parameterProcessor = createMethodParameterProcessor(context.isSafe());
     // get all parameters
-    Parameter[] parameters = method.getParameters();
+    List<ClientParameterInfo> parameters = method.getParameters();
     // create ctClasses array of parameters
-    CtClass[] paramClasses = new CtClass[parameters.length];
-    // parameters
-    for (int i = 0;i < parameters.length;i++) {
-      // fill paramClasses
-      paramClasses[i] = pool.get(parameters[i].getType().getName());
-      // collector parameter
-      parameterProcessor.collect(i, parameters[i], context);
+    CtClass[] paramClasses = new CtClass[parameters.size()];
+    for (int i = 0;i < parameters.size();i++) {
+      paramClasses[i] = pool.get(parameters.get(i).getType().getName());
     }
-    // create method content builder
-    StringBuilder methodBody = new StringBuilder("{");
-    // append body
-    parameterProcessor.fillBody(methodBody, context);
-    // end
-    methodBody.append("}");
     // create return class
-    CtClass returnCtClass = context.isVoid() ? CtClass.voidType : pool.get(context.getReturnType().getName());
+    CtClass returnCtClass = pool.get(method.getReturnType().getName());
     // create ctMethod
     CtMethod ctMethod = new CtMethod(returnCtClass, method.getName(), paramClasses, proxyClass);
     // set public
     ctMethod.setModifiers(Modifier.PUBLIC);
     // set content
-    ctMethod.setBody(methodBody.toString());
+    ctMethod.setBody(body);
     // add to ctClass
     proxyClass.addMethod(ctMethod);
   }
@@ -0,0 +1,138 @@
+package com.yinxiang.microservice.grpc.inject.factories;
+
+import io.grpc.Channel;
+import io.grpc.stub.AbstractStub;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generate the java source of the implement class of a custom interface, by the same code which javassist compiles.
+ * <p>
+ *   The source is written by GrpcClientProcessor at build time, the class is named by {@link #getClassName(String)}
+ *   and loaded by {@link GrpcClientProxyFactory} instead of javassist, so no class is generated at runtime.
+ *   The parameters are named $1, $2..., the same as the generated code of javassist.
+ * </p>
+ * <p>
+ *   For GraalVM native image, GrpcClientProcessor also writes the {@link #CLIENTS_INDEX} which replaces the scanning
+ *   of classpath, and a reflect-config.json of each client by {@link #generateReflectConfig(String, Class)}.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public final class GrpcClientSources {
+  /** The suffix of the name of generated class. */
+  private static final String SUFFIX = "_GrpcClient";
+  /** The resource which lists the binary names of custom interfaces, one per line. */
+  public static final String CLIENTS_INDEX = "META-INF/grpc-starter/clients";
+  /** The directory of the reflect-config.json of custom interfaces. */
+  private static final String NATIVE_IMAGE_DIR = "META-INF/native-image/grpc-starter-clients/";
+
+  private GrpcClientSources() {}
+
+  /**
+   * Get the name of generated class, in the package of custom interface, ex: com.example.Outer_Client_GrpcClient.
+   * @param interfaceName binary name of custom interface, ex: com.example.Outer$Client
+   * @return  binary name of generated class
+   */
+  public static String getClassName(String interfaceName) {
+    int index = interfaceName.lastIndexOf('.');
+    return interfaceName.substring(0, index + 1) + interfaceName.substring(index + 1).replace('$', '_') + SUFFIX;
+  }
+
+  /**
+   * @return  true if running in a GraalVM native image, where no class can be generated or scanned at runtime
+   */
+  public static boolean inNativeImage() {
+    return System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+  }
+
+  /**
+   * Get the name of reflect-config.json of a custom interface, it is found by native-image in META-INF/native-image.
+   * @param interfaceName binary name of custom interface
+   * @return  name of resource
+   */
+  public static String getReflectConfigName(String interfaceName) {
+    return NATIVE_IMAGE_DIR + interfaceName + "/reflect-config.json";
+  }
+
+  /**
+   * Generate the reflect-config.json of a custom interface, which registers the reflection at runtime:
+   * the custom interface for Spring, the constructor of generated class and the method of [serviceGrpc]
+   * which creates the stub.
+   * @param interfaceName binary name of custom interface
+   * @param stubClass     the stubClass of custom interface
+   * @return  json
+   */
+  public static String generateReflectConfig(String interfaceName, Class<? extends AbstractStub> stubClass) {
+    return "[\n" +
+            "  {\"name\": \"" + interfaceName + "\", \"allPublicMethods\": true},\n" +
+            "  {\"name\": \"" + getClassName(interfaceName) + "\", \"methods\": [" +
+            "{\"name\": \"<init>\", \"parameterTypes\": [\"" + stubClass.getName() + "\", \"" +
+            Logger.class.getName() + "\"]}]},\n" +
+            "  {\"name\": \"" + stubClass.getName() + "\"},\n" +
+            "  {\"name\": \"" + stubClass.getEnclosingClass().getName() + "\", \"methods\": [" +
+            "{\"name\": \"" + GrpcClientCreator.getStubFactoryName(stubClass) + "\", \"parameterTypes\": [\"" +
+            Channel.class.getName() + "\"]}]}\n" +
+            "]\n";
+  }
+
+  /**
+   * Generate the java source of the implement class.
+   * @param grpcInterface the custom interface
+   * @param methods       all methods to implement of custom interface
+   * @param stubClass     the stubClass of custom interface
+   * @param logMethod     the custom interface's name of log getter
+   * @return  java source
+   */
+  public static String generate(
+          ClientTypeInfo grpcInterface,
+          List<ClientMethodInfo> methods,
+          Class<? extends AbstractStub> stubClass,
+          String logMethod
+  ) {
+    String className = getClassName(grpcInterface.getName());
+    int index = className.lastIndexOf('.');
+    String simpleName = className.substring(index + 1);
+    String stubName = stubClass.getCanonicalName();
+    StringBuilder classInitializer = new StringBuilder();
+    Map<ClientMethodInfo, String> bodies = GrpcClientProxyFactory.generateMethods(
+            grpcInterface.getName(), methods, stubClass, logMethod, classInitializer);
+    StringBuilder source = new StringBuilder();
+    if (index > 0) {
+      source.append("package ").append(className, 0, index).append(";\n\n");
+    }
+    source.append("/** The implement of {@link ").append(grpcInterface.getCanonicalName())
+            .append("}, generated by GrpcClientProcessor. */\n")
+            .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+            .append("public final class ").append(simpleName)
+            .append(" implements ").append(grpcInterface.getCanonicalName()).append(" {\n");
+    // register the header keys
+    if (classInitializer.length() > 0) {
+      source.append("  static {").append(classInitializer).append("}\n\n");
+    }
+    // fields and constructor
+    source.append("  private final ").append(stubName).append(" stub;\n")
+            .append("  private final ").append(Logger.class.getName()).append(" log;\n\n")
+            .append("  public ").append(simpleName).append("(").append(stubName).append(" stub, ")
+            .append(Logger.class.getName()).append(" log) {\n")
+            .append("    this.stub = stub;\n")
+            .append("    this.log = log;\n")
+            .append("  }\n");
+    // methods
+    bodies.forEach((method, body) -> {
+      source.append("\n  @Override\n  public ").append(method.getReturnType().getGenericName())
+              .append(" ").append(method.getName()).append("(");
+      List<ClientParameterInfo> parameters = method.getParameters();
+      for (int i = 0;i < parameters.size();i++) {
+        source.append(i > 0 ? ", " : "")
+                .append(parameters.get(i).getType().getGenericName())
+                .append(" $")
+                .append(i + 1);
+      }
+      source.append(") ").append(body).append("\n");
+    });
+    return source.append("}\n").toString();
+  }
+}
@@ -6,7 +6,6 @@ import com.yinxiang.microservice.grpc.inject.annotations.GrpcHeader;
 import com.yinxiang.microservice.grpc.inject.annotations.GrpcParam;
 import io.grpc.stub.StreamObserver;
 
-import java.lang.reflect.Parameter;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -25,7 +24,7 @@ interface MethodParametersCollector {
    * @param context   context of this parameter
    * @return  if record return true, else false
    */
-  boolean collect(int index, Parameter parameter, ParametersContext context);
+  boolean collect(int index, ClientParameterInfo parameter, ParametersContext context);
 }
 
 /**
@@ -34,7 +33,7 @@ interface MethodParametersCollector {
  * @author Huiyuan Fu
  * @since 1.0.0
  */
-interface CacheSupplier extends Function<CacheType, BiConsumer<Integer, Parameter>> {}
+interface CacheSupplier extends Function<CacheType, BiConsumer<Integer, ClientParameterInfo>> {}
 
 /**
  * An abstract {@link MethodParametersCollector}, has a cache and the standard collect process.
@@ -43,9 +42,9 @@ interface CacheSupplier extends Function<CacheType, BiConsumer<Integer, Paramete
  */
 abstract class AbstractParametersCollector implements MethodParametersCollector {
   /** The parameter's cache. */
-  private final BiConsumer<Integer, Parameter> parameterCache;
+  private final BiConsumer<Integer, ClientParameterInfo> parameterCache;
 
-  AbstractParametersCollector(Function<CacheType, BiConsumer<Integer, Parameter>> cacheSupplier) {
+  AbstractParametersCollector(Function<CacheType, BiConsumer<Integer, ClientParameterInfo>> cacheSupplier) {
     this.parameterCache = cacheSupplier.apply(getCacheType());
   }
 
@@ -56,7 +55,7 @@ abstract class AbstractParametersCollector implements MethodParametersCollector
   abstract CacheType getCacheType();
 
   @Override
-  public boolean collect(int index, Parameter parameter, ParametersContext context) {
+  public boolean collect(int index, ClientParameterInfo parameter, ParametersContext context) {
     if (check(index, parameter, context)) {
       parameterCache.accept(index, parameter);
       return true;
@@ -71,7 +70,7 @@ abstract class AbstractParametersCollector implements MethodParametersCollector
    * @param context   context of this parameter
    * @return  if need record return true, else false
    */
-  abstract boolean check(int index, Parameter parameter, ParametersContext context);
+  abstract boolean check(int index, ClientParameterInfo parameter, ParametersContext context);
 }
 
 /**
@@ -89,7 +88,7 @@ abstract class ParametersCollectorChain extends AbstractParametersCollector {
   }
 
   @Override
-  public boolean collect(int index, Parameter parameter, ParametersContext context) {
+  public boolean collect(int index, ClientParameterInfo parameter, ParametersContext context) {
     return super.collect(index, parameter, context) || next.collect(index, parameter, context);
   }
 }
@@ -106,11 +105,11 @@ class FillParametersCollector extends ParametersCollectorChain {
   }
 
   /**
-   * Get the name from {@link Parameter}.
-   * @param parameter {@link Parameter}
-   * @return  the name from {@link Parameter}
+   * Get the name from {@link ClientParameterInfo}.
+   * @param parameter {@link ClientParameterInfo}
+   * @return  the name from {@link ClientParameterInfo}
    */
-  static String getParamName(Parameter parameter) {
+  static String getParamName(ClientParameterInfo parameter) {
     // get @GrpcParam
     GrpcParam grpcParam = parameter.getAnnotation(GrpcParam.class);
     // get name of gRPC method parameter
@@ -123,7 +122,7 @@ class FillParametersCollector extends ParametersCollectorChain {
   }
 
   @Override
-  boolean check(int index, Parameter parameter, ParametersContext context) {
+  boolean check(int index, ClientParameterInfo parameter, ParametersContext context) {
     // get @GrpcParam
     GrpcParam grpcParam = parameter.getAnnotation(GrpcParam.class);
     if (grpcParam != null && grpcParam.isJson()) {
@@ -155,8 +154,10 @@ class StreamParametersCollector extends ParametersCollectorChain {
   }
 
   @Override
-  boolean check(int index, Parameter parameter, ParametersContext context) {
-    return StreamObserver.class.isAssignableFrom(parameter.getType());
+  boolean check(int index, ClientParameterInfo parameter, ParametersContext context) {
+    ClientTypeInfo type = parameter.getType();
+    // the Publisher of requests of a bidi streaming method
+    return type.isSubtypeOf(StreamObserver.class) || context.isStreaming() && ParametersContext.isPublisher(type);
   }
 }
 
@@ -177,7 +178,7 @@ class JsonParametersCollector extends ParametersCollectorChain {
   }
 
   @Override
-  boolean check(int index, Parameter parameter, ParametersContext context) {
+  boolean check(int index, ClientParameterInfo parameter, ParametersContext context) {
     GrpcParam annotation = parameter.getAnnotation(GrpcParam.class);
     return annotation != null && annotation.isJson();
   }
@@ -200,7 +201,7 @@ class BuilderParametersCollector extends ParametersCollectorChain {
   }
 
   @Override
-  boolean check(int index, Parameter parameter, ParametersContext context) {
+  boolean check(int index, ClientParameterInfo parameter, ParametersContext context) {
     Class requestType = context.getRequestType();
     return requestType != null && parameter.getType().getName().equals(requestType.getName() + "$Builder");
   }
@@ -223,8 +224,9 @@ class RequestParametersCollector extends ParametersCollectorChain {
   }
 
   @Override
-  boolean check(int index, Parameter parameter, ParametersContext context) {
-    return parameter.getType().equals(context.getRequestType());
+  boolean check(int index, ClientParameterInfo parameter, ParametersContext context) {
+    Class requestType = context.getRequestType();
+    return requestType != null && parameter.getType().is(requestType);
   }
 }
 
@@ -245,7 +247,7 @@ class HeaderParametersCollector extends ParametersCollectorChain {
   }
 
   @Override
-  boolean check(int index, Parameter parameter, ParametersContext context) {
+  boolean check(int index, ClientParameterInfo parameter, ParametersContext context) {
     return parameter.getAnnotation(GrpcHeader.class) != null;
   }
 }
@@ -267,8 +269,8 @@ class InterceptorParametersCollector extends ParametersCollectorChain {
   }
 
   @Override
-  boolean check(int index, Parameter parameter, ParametersContext context) {
-    return StubInterceptor.class.equals(parameter.getType());
+  boolean check(int index, ClientParameterInfo parameter, ParametersContext context) {
+    return parameter.getType().is(StubInterceptor.class);
   }
 }
 
@@ -279,7 +281,7 @@ class InterceptorParametersCollector extends ParametersCollectorChain {
  * @since 1.0.0
  */
 class DeadParametersCollector extends AbstractParametersCollector {
-  DeadParametersCollector(Function<CacheType, BiConsumer<Integer, Parameter>> cacheSupplier) {
+  DeadParametersCollector(Function<CacheType, BiConsumer<Integer, ClientParameterInfo>> cacheSupplier) {
     super(cacheSupplier);
   }
 
@@ -289,7 +291,7 @@ class DeadParametersCollector extends AbstractParametersCollector {
   }
 
   @Override
-  boolean check(int index, Parameter parameter, ParametersContext context) {
+  boolean check(int index, ClientParameterInfo parameter, ParametersContext context) {
     return true;
   }
 }
@@ -5,11 +5,9 @@ import com.yinxiang.microservice.grpc.inject.StubInterceptor;
 import com.yinxiang.microservice.grpc.inject.header.StubHeadersProcessor;
 import com.yinxiang.microservice.grpc.inject.annotations.GrpcHeader;
 import com.yinxiang.microservice.grpc.util.StringUtils;
-import io.grpc.stub.AbstractStub;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Parameter;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -36,12 +34,12 @@ interface MethodParametersGenerator {
  * @author Huiyuan Fu
  * @since 1.0.0
  */
-interface ParametersGeneratorCache extends IntFunction<Parameter> {
+interface ParametersGeneratorCache extends IntFunction<ClientParameterInfo> {
   /**
    * Traverse all parameters in the cache.
    * @param parameterConsumer  consumer of parameter
    */
-  void forEachParameters(BiConsumer<Integer, Parameter> parameterConsumer);
+  void forEachParameters(BiConsumer<Integer, ClientParameterInfo> parameterConsumer);
 
   /**
    * Visit the first parameter's index.
@@ -71,7 +69,7 @@ abstract class AbstractParameterGenerator implements MethodParametersGenerator,
   abstract CacheType getCacheType();
 
   @Override
-  public void forEachParameters(BiConsumer<Integer, Parameter> parameterVisitor) {
+  public void forEachParameters(BiConsumer<Integer, ClientParameterInfo> parameterVisitor) {
     cache.forEachParameters(parameterVisitor);
   }
 
@@ -81,7 +79,7 @@ abstract class AbstractParameterGenerator implements MethodParametersGenerator,
   }
 
   @Override
-  public Parameter apply(int value) {
+  public ClientParameterInfo apply(int value) {
     return cache.apply(value);
   }
 }
@@ -133,14 +131,14 @@ class FillParametersGenerator extends AbstractParameterGenerator {
   @Override
   public boolean fillBody(StringBuilder bodyBuilder, ParametersContext context) {
     // create request builder
-    bodyBuilder.append(context.getRequestType().getName()).append(".newBuilder()");
+    bodyBuilder.append(context.getRequestType().getCanonicalName()).append(".newBuilder()");
     // append setter
     forEachParameters((index, parameter) -> {
       // get type of parameter
-      Class type = parameter.getType();
+      ClientTypeInfo type = parameter.getType();
       // fill request parameter
       bodyBuilder.append(".")
-              .append(Iterable.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type) ? "addAll" : "set")
+              .append(type.isSubtypeOf(Iterable.class) || type.isSubtypeOf(Map.class) ? "addAll" : "set")
               .append(StringUtils.firstUpper(FillParametersCollector.getParamName(parameter)))
               .append("($")
               .append(index + 1)
@@ -242,7 +240,7 @@ class HeaderParametersGenerator extends AbstractParameterGenerator {
 
   @Override
   public boolean fillBody(StringBuilder bodyBuilder, ParametersContext context) {
-    Class<? extends AbstractStub> stubClass = context.getStubClass();
+    String stubName = context.getStubClass().getCanonicalName();
     forEachParameters((index, parameter) -> {
       // header
       GrpcHeader grpcHeader = parameter.getAnnotation(GrpcHeader.class);
@@ -251,15 +249,14 @@ class HeaderParametersGenerator extends AbstractParameterGenerator {
       if (Strings.isNullOrEmpty(name)) {
         name = parameter.getName();
       }
-      // register header key
-      StubHeadersProcessor.registerKey(stubClass, name, grpcHeader.type());
-      // add header code
-      bodyBuilder.append(stubClass.getName())
-              .append(" stub = (")
-              .append(stubClass.getName())
+      // register header key when the class is initialized
+      context.registerHeader(name, parameter.getHeaderType());
+      // add header code, the local stub has the headers and the interceptors before
+      bodyBuilder.append("stub = (")
+              .append(stubName)
               .append(")")
               .append(_HEADER_PROCESSOR)
-              .append(".withHeader(this.stub, \"")
+              .append(".withHeader(stub, \"")
               .append(name)
               .append("\", $")
               .append((index + 1))
@@ -287,10 +284,9 @@ class InterceptorParametersGenerator extends AbstractParameterGenerator {
 
   @Override
   public boolean fillBody(StringBuilder bodyBuilder, ParametersContext context) {
-    Class<? extends AbstractStub> stubClass = context.getStubClass();
-    forEachParameters((index, parameter) -> bodyBuilder.append(stubClass.getName())
-            .append(" stub = (")
-            .append(stubClass.getName())
+    String stubName = context.getStubClass().getCanonicalName();
+    forEachParameters((index, parameter) -> bodyBuilder.append("stub = (")
+            .append(stubName)
             .append(")$")
             .append((index + 1))
             .append(".apply(stub);"));
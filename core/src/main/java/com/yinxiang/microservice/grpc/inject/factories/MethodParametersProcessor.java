@@ -2,7 +2,6 @@ package com.yinxiang.microservice.grpc.inject.factories;
 
 import com.google.common.collect.Maps;
 
-import java.lang.reflect.Parameter;
 import java.util.EnumMap;
 import java.util.SortedMap;
 import java.util.function.BiConsumer;
@@ -27,7 +26,7 @@ class CacheParametersProcessor extends ParameterGenerators implements
    * {@link EnumMap} of parameters caches, key is {@link CacheType} value is {@link SortedMap}.
    * The {@link SortedMap} will sorted by parameter's index.
    */
-  private final EnumMap<CacheType, SortedMap<Integer, Parameter>> caches = new EnumMap<>(CacheType.class);
+  private final EnumMap<CacheType, SortedMap<Integer, ClientParameterInfo>> caches = new EnumMap<>(CacheType.class);
   /**
    * The top {@link MethodParametersCollector}, please call {@link #addParametersCollector(Function)} to add
    * new {@link MethodParametersCollector}, the last default is {@link DeadParametersCollector}.
@@ -39,7 +38,7 @@ class CacheParametersProcessor extends ParameterGenerators implements
    * @param cacheType {@link CacheType}
    * @return  a cache
    */
-  private SortedMap<Integer, Parameter> getCache(CacheType cacheType) {
+  private SortedMap<Integer, ClientParameterInfo> getCache(CacheType cacheType) {
     return caches.computeIfAbsent(cacheType, key -> Maps.newTreeMap());
   }
 
@@ -57,15 +56,15 @@ class CacheParametersProcessor extends ParameterGenerators implements
    * @return  a cache
    */
   ParametersGeneratorCache getGeneratorCache(CacheType cacheType) {
-    SortedMap<Integer, Parameter> cache = getCache(cacheType);
+    SortedMap<Integer, ClientParameterInfo> cache = getCache(cacheType);
     return new ParametersGeneratorCache() {
       @Override
-      public Parameter apply(int value) {
+      public ClientParameterInfo apply(int value) {
         return cache.get(value);
       }
 
       @Override
-      public void forEachParameters(BiConsumer<Integer, Parameter> parameterVisitor) {
+      public void forEachParameters(BiConsumer<Integer, ClientParameterInfo> parameterVisitor) {
         cache.forEach(parameterVisitor);
       }
 
@@ -81,12 +80,12 @@ class CacheParametersProcessor extends ParameterGenerators implements
   }
 
   @Override
-  public boolean collect(int index, Parameter parameter, ParametersContext context) {
+  public boolean collect(int index, ClientParameterInfo parameter, ParametersContext context) {
     return collector.collect(index, parameter, context);
   }
 
   @Override
-  public BiConsumer<Integer, Parameter> apply(CacheType cacheType) {
+  public BiConsumer<Integer, ClientParameterInfo> apply(CacheType cacheType) {
     return getCache(cacheType)::put;
   }
 }
@@ -1,13 +1,17 @@
 package com.yinxiang.microservice.grpc.inject.factories;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
 import com.google.protobuf.Message;
+import com.yinxiang.microservice.grpc.inject.GrpcFutures;
+import com.yinxiang.microservice.grpc.inject.GrpcPublishers;
+import com.yinxiang.microservice.grpc.inject.GrpcStreams;
 import com.yinxiang.microservice.grpc.inject.Marshaller;
 import com.yinxiang.microservice.grpc.inject.annotations.GrpcParam;
 import io.grpc.MethodDescriptor;
 
-import java.lang.reflect.Parameter;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static io.grpc.MethodDescriptor.MethodType.*;
@@ -43,10 +47,24 @@ class CatchableParametersGenerator extends ParameterGeneratorDecorator {
     bodyBuilder.append("} catch (Exception e) { log.error(getClass().getName() + \".")
             .append(context.getMethodName())
             .append(" Exception: \" + e.getMessage(), e);")
-            .append(context.isVoid() ? "" : "return null;")
+            .append(context.isVoid() ? "" : "return " + nullValue(context) + ";")
             .append("}");
     return true;
   }
+
+  /**
+   * The value when catch an exception, a completed future of null if the method is async.
+   * @param context context of this parameter
+   * @return  code of value
+   */
+  private static String nullValue(ParametersContext context) {
+    if (!context.isFuture()) {
+      return "null";
+    }
+    return context.getReturnType().is(CompletableFuture.class) ?
+            CompletableFuture.class.getName() + ".completedFuture(null)" :
+            Futures.class.getName() + ".immediateFuture(null)";
+  }
 }
 
 /**
@@ -62,15 +80,15 @@ class NormalParametersGenerator extends ParameterGeneratorDecorator {
   @Override
   public boolean fillBody(StringBuilder bodyBuilder, ParametersContext context) {
     bodyBuilder.append(context.isVoid() ? "" : "return ");
-    Class returnType = context.getReturnType();
-    if (String.class.equals(returnType)) {
+    ClientTypeInfo returnType = context.getReturnType();
+    if (returnType.is(String.class)) {
       bodyBuilder.append(Marshaller.class.getName()).append(".toJson(");
       fill(bodyBuilder, context).append(");");
-    } else if (Message.class.isAssignableFrom(returnType)) {
+    } else if (returnType.isSubtypeOf(Message.class)) {
       fill(bodyBuilder, context).append(";");
     } else {
       bodyBuilder.append(Marshaller.class.getName()).append(".toObject(");
-      fill(bodyBuilder, context).append(", ").append(returnType.getName()).append(".class);");
+      fill(bodyBuilder, context).append(", ").append(returnType.getCanonicalName()).append(".class);");
     }
     return true;
   }
@@ -89,6 +107,77 @@ class NormalParametersGenerator extends ParameterGeneratorDecorator {
   }
 }
 
+/**
+ * Generate {@code return} of an async method, the unary call is started by {@link GrpcFutures} without block.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class FutureParametersGenerator extends ParameterGeneratorDecorator {
+  private static final String _FUTURES = GrpcFutures.class.getName();
+
+  FutureParametersGenerator(MethodParametersGenerator delegate) {
+    super(delegate);
+  }
+
+  @Override
+  public boolean fillBody(StringBuilder bodyBuilder, ParametersContext context) {
+    MethodDescriptor.MethodType methodType = context.getMethodDescriptor().getType();
+    if (methodType != UNARY) {
+      throw new InjectGrpcException(context.getMethodName() + " is " + methodType + ", only unary can be async.");
+    }
+    boolean completable = context.getReturnType().is(CompletableFuture.class);
+    // the value is Object, cast to the raw type of method
+    bodyBuilder.append("return (").append(context.getReturnType().getCanonicalName()).append(")");
+    if (context.isSafe()) {
+      bodyBuilder.append(_FUTURES).append(".safe(");
+    }
+    // adapt the reply
+    bodyBuilder.append(_FUTURES).append(completable ? ".toCompletableFuture(" : ".toListenableFuture(");
+    // start the call
+    bodyBuilder.append(_FUTURES).append(".unaryCall(stub, ").append(context.getMethodDescriptorGetter()).append("(), ");
+    delegate.fillBody(bodyBuilder, context);
+    bodyBuilder.append("), ").append(context.getValueType().getCanonicalName()).append(".class, stub)");
+    if (context.isSafe()) {
+      bodyBuilder.append(", log, getClass().getName() + \".").append(context.getMethodName()).append("\")");
+    }
+    bodyBuilder.append(";");
+    return true;
+  }
+}
+
+/**
+ * Generate {@code return} of a streaming method, the server or bidi streaming call is started by {@link GrpcStreams}
+ * or {@link GrpcPublishers}, the replies are requested by the demand of consumer.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class StreamingParametersGenerator extends ParameterGeneratorDecorator {
+  StreamingParametersGenerator(MethodParametersGenerator delegate) {
+    super(delegate);
+  }
+
+  @Override
+  public boolean fillBody(StringBuilder bodyBuilder, ParametersContext context) {
+    MethodDescriptor.MethodType methodType = context.getMethodDescriptor().getType();
+    boolean publisher = ParametersContext.isPublisher(context.getReturnType());
+    bodyBuilder.append("return (").append(context.getReturnType().getCanonicalName()).append(")");
+    // the Publisher is only referred by the clients which use it, reactive-streams is optional
+    if (methodType == SERVER_STREAMING) {
+      bodyBuilder.append(publisher ? GrpcPublishers.class.getName() : GrpcStreams.class.getName())
+              .append(".serverStreaming(");
+    } else if (methodType == BIDI_STREAMING) {
+      bodyBuilder.append(GrpcPublishers.class.getName())
+              .append(publisher ? ".bidiStreaming(" : ".bidiStreamingAsStream(");
+    } else {
+      throw new InjectGrpcException(context.getMethodName() + " is " + methodType + ", can not be streaming.");
+    }
+    bodyBuilder.append("stub, ").append(context.getMethodDescriptorGetter()).append("(), ");
+    delegate.fillBody(bodyBuilder, context);
+    bodyBuilder.append(", ").append(context.getValueType().getCanonicalName()).append(".class);");
+    return true;
+  }
+}
+
 /**
  * Generate {@code .build()}.
  * @author Huiyuan Fu
@@ -124,10 +213,10 @@ class JsonParametersGenerator extends ParameterGeneratorDecorator {
   @Override
   public boolean fillBody(StringBuilder bodyBuilder, ParametersContext context) {
     cache.visitorFirstKey(index -> {
-      Parameter parameter = cache.apply(index);
-      String marshallerMethod = String.class.equals(parameter.getType()) ? "fromJsonButNot" : "fromObjectButNot";
+      ClientParameterInfo parameter = cache.apply(index);
+      String marshallerMethod = parameter.getType().is(String.class) ? "fromJsonButNot" : "fromObjectButNot";
       bodyBuilder.append("(")
-              .append(context.getRequestType().getName())
+              .append(context.getRequestType().getCanonicalName())
               .append(")")
               .append(Marshaller.class.getName())
               .append(".")
@@ -175,6 +264,10 @@ class StubParameterGeneratorDecorator extends ParameterGeneratorDecorator {
     if (methodType == BIDI_STREAMING || methodType == CLIENT_STREAMING) {
       return true;
     }
+    // an async or streaming method always calls by the request
+    if (context.isFuture() || context.isStreaming()) {
+      return delegate.fillBody(bodyBuilder, context);
+    }
     String className = context.getStubClass().getSimpleName();
     if (className.endsWith("BlockingStub") || className.endsWith("FutureStub")) {
       boolean ret = delegate.fillBody(bodyBuilder, context);
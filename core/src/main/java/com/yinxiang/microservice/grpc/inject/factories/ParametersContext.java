@@ -1,12 +1,16 @@
 package com.yinxiang.microservice.grpc.inject.factories;
 
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.yinxiang.microservice.grpc.inject.annotations.GrpcMethod;
+import com.yinxiang.microservice.grpc.inject.header.StubHeadersProcessor;
+import com.yinxiang.microservice.grpc.util.StringUtils;
 import io.grpc.MethodDescriptor;
 import io.grpc.stub.AbstractStub;
 
-import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * A context which contains some info to help process generate method.
@@ -14,25 +18,36 @@ import java.util.function.Function;
  * @since 1.0.0
  */
 class ParametersContext {
+  /** The name of reactive-streams Publisher, compared by name because reactive-streams is optional. */
+  private static final String PUBLISHER = "org.reactivestreams.Publisher";
+
   /** The info of stub's method. */
   private final GrpcMethodInfo grpcMethodInfo;
   /** The class of custom interface's method. */
-  private final Class returnType;
+  private final ClientTypeInfo returnType;
+  /** The class of value if the method is async or streaming, else null. */
+  private final ClientTypeInfo valueType;
   /** The stubClass of custom interface. */
   private final Class<? extends AbstractStub> stubClass;
   /** If need safe. */
   private final boolean safe;
   /** The name of gRPC method. */
   private final String methodName;
+  /** The code which runs when the implement class is initialized, shared by all methods. */
+  private final StringBuilder classInitializer;
 
   ParametersContext(
-          Method method,
+          ClientMethodInfo method,
           Function<String, GrpcMethodInfo> grpcMethodInfoGetter,
-          Class<? extends AbstractStub> stubClass
+          Class<? extends AbstractStub> stubClass,
+          StringBuilder classInitializer
   ) {
     this.stubClass = stubClass;
+    this.classInitializer = classInitializer;
     // get return type
     returnType = method.getReturnType();
+    // get the value type of async or streaming method
+    valueType = isFuture() || isStreaming() ? method.getValueType() : null;
     // get @GrpcMethod
     GrpcMethod methodAnnotation = method.getAnnotation(GrpcMethod.class);
     // get name of gRPC method
@@ -54,20 +69,69 @@ class ParametersContext {
   }
 
   /** {@link #returnType} */
-  Class getReturnType() {
+  ClientTypeInfo getReturnType() {
     return returnType;
   }
 
+  /** {@link #valueType} */
+  ClientTypeInfo getValueType() {
+    return valueType;
+  }
+
+  /**
+   * @return true if returnType is {@link CompletableFuture} or {@link ListenableFuture}
+   */
+  boolean isFuture() {
+    return returnType.is(CompletableFuture.class) || returnType.is(ListenableFuture.class);
+  }
+
+  /**
+   * @return true if returnType is {@link Stream} or reactive-streams Publisher
+   */
+  boolean isStreaming() {
+    return returnType.is(Stream.class) || isPublisher(returnType);
+  }
+
+  /**
+   * Register the key of a header when the implement class is initialized.
+   * @param name  name of header
+   * @param type  type of header
+   * @see StubHeadersProcessor#registerKey(Class, String, Class)
+   */
+  void registerHeader(String name, ClientTypeInfo type) {
+    classInitializer.append(StubHeadersProcessor.class.getName())
+            .append(".registerKey(")
+            .append(stubClass.getCanonicalName())
+            .append(".class, \"")
+            .append(name)
+            .append("\", ")
+            .append(type.getCanonicalName())
+            .append(".class);");
+  }
+
+  /**
+   * Get the static getter of {@link MethodDescriptor} in the gRPC class of stub.
+   * @return  code of the getter, ex: TestServiceGrpc.getSearchMethod
+   */
+  String getMethodDescriptorGetter() {
+    return stubClass.getEnclosingClass().getName() + "." + getMethodDescriptorGetterName(methodName);
+  }
+
+  /** {@link #getMethodDescriptor(Class, String)} */
+  MethodDescriptor getMethodDescriptor() {
+    return getMethodDescriptor(stubClass, methodName);
+  }
+
   /** {@link #stubClass} */
   Class<? extends AbstractStub> getStubClass() {
     return stubClass;
   }
 
   /**
-   * @return true if returnType is null or is {@link Void}
+   * @return true if returnType is void or is {@link Void}
    */
   boolean isVoid() {
-    return returnType == null || returnType.equals(Void.class);
+    return returnType.is(void.class) || returnType.is(Void.class);
   }
 
   /** {@link #methodName} */
@@ -84,6 +148,38 @@ class ParametersContext {
   int getParamCount() {
     return grpcMethodInfo.getParamCount();
   }
+
+  /**
+   * @param type  a type
+   * @return  true if type is reactive-streams Publisher
+   */
+  static boolean isPublisher(ClientTypeInfo type) {
+    return PUBLISHER.equals(type.getName());
+  }
+
+  /**
+   * Get the name of static getter of {@link MethodDescriptor} in the gRPC class.
+   * @param methodName  name of gRPC method
+   * @return  name of getter
+   */
+  private static String getMethodDescriptorGetterName(String methodName) {
+    return "get" + StringUtils.firstUpper(methodName) + "Method";
+  }
+
+  /**
+   * Get the {@link MethodDescriptor} from the static getter in the gRPC class of stub.
+   * @param stubClass   the stubClass of custom interface
+   * @param methodName  name of gRPC method
+   * @return  {@link MethodDescriptor}
+   */
+  static MethodDescriptor getMethodDescriptor(Class<? extends AbstractStub> stubClass, String methodName) {
+    String getter = getMethodDescriptorGetterName(methodName);
+    try {
+      return (MethodDescriptor) stubClass.getEnclosingClass().getMethod(getter).invoke(null);
+    } catch (Exception e) {
+      throw new InjectGrpcException("can not find " + getter + " of " + stubClass.getName(), e);
+    }
+  }
 }
 
 /**
@@ -0,0 +1,137 @@
+package com.yinxiang.microservice.grpc.inject.factories;
+
+import com.google.common.reflect.TypeToken;
+import com.google.protobuf.Message;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcHeader;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link ClientTypeInfo} by reflection.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class ReflectTypeInfo implements ClientTypeInfo {
+  /** The class. */
+  private final Class<?> type;
+
+  ReflectTypeInfo(Class<?> type) {
+    this.type = type;
+  }
+
+  /**
+   * Get all methods to implement of the custom interface, the default methods are not implemented.
+   * @param grpcInterface the custom interface
+   * @return  list of {@link ClientMethodInfo}
+   */
+  static List<ClientMethodInfo> getMethods(Class<?> grpcInterface) {
+    return Arrays.stream(grpcInterface.getMethods())
+            .filter(method -> Modifier.isAbstract(method.getModifiers()))
+            .map(ReflectMethodInfo::new)
+            .collect(Collectors.toList());
+  }
+
+  @Override
+  public String getName() {
+    return type.getName();
+  }
+
+  @Override
+  public String getCanonicalName() {
+    return type.getCanonicalName();
+  }
+
+  @Override
+  public String getGenericName() {
+    // the erasure is enough for the generated code by javassist
+    return getCanonicalName();
+  }
+
+  @Override
+  public boolean isSubtypeOf(Class<?> type) {
+    return type.isAssignableFrom(this.type);
+  }
+}
+
+/**
+ * A {@link ClientParameterInfo} by reflection.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class ReflectParameterInfo implements ClientParameterInfo {
+  /** The parameter. */
+  private final Parameter parameter;
+
+  ReflectParameterInfo(Parameter parameter) {
+    this.parameter = parameter;
+  }
+
+  @Override
+  public String getName() {
+    return parameter.getName();
+  }
+
+  @Override
+  public ClientTypeInfo getType() {
+    return new ReflectTypeInfo(parameter.getType());
+  }
+
+  @Override
+  public <A extends Annotation> A getAnnotation(Class<A> annotationClass) {
+    return parameter.getAnnotation(annotationClass);
+  }
+
+  @Override
+  public ClientTypeInfo getHeaderType() {
+    GrpcHeader grpcHeader = parameter.getAnnotation(GrpcHeader.class);
+    return grpcHeader == null ? null : new ReflectTypeInfo(grpcHeader.type());
+  }
+}
+
+/**
+ * A {@link ClientMethodInfo} by reflection.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class ReflectMethodInfo implements ClientMethodInfo {
+  /** The method. */
+  private final Method method;
+
+  ReflectMethodInfo(Method method) {
+    this.method = method;
+  }
+
+  @Override
+  public String getName() {
+    return method.getName();
+  }
+
+  @Override
+  public ClientTypeInfo getReturnType() {
+    return new ReflectTypeInfo(method.getReturnType());
+  }
+
+  @Override
+  public ClientTypeInfo getValueType() {
+    Class type = TypeToken.of(method.getGenericReturnType())
+            .resolveType(method.getReturnType().getTypeParameters()[0])
+            .getRawType();
+    return new ReflectTypeInfo(Object.class.equals(type) ? Message.class : type);
+  }
+
+  @Override
+  public List<ClientParameterInfo> getParameters() {
+    return Arrays.stream(method.getParameters()).map(ReflectParameterInfo::new).collect(Collectors.toList());
+  }
+
+  @Override
+  public <A extends Annotation> A getAnnotation(Class<A> annotationClass) {
+    return method.getAnnotation(annotationClass);
+  }
+}
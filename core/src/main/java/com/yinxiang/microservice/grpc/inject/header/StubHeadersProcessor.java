@@ -1,7 +1,8 @@
 package com.yinxiang.microservice.grpc.inject.header;
 
-import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
 import io.grpc.Metadata;
 import io.grpc.stub.AbstractStub;
 import io.grpc.stub.MetadataUtils;
@@ -20,8 +21,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public final class StubHeadersProcessor {
   private static final Logger log = LoggerFactory.getLogger(StubHeadersProcessor.class);
-  /** The register keys, row key is a class of stub, column key is header name. */
-  private static final Table<Class, String, Metadata.Key> HEADER_KEYS = HashBasedTable.create();
+  /**
+   * The register keys, row key is a class of stub, column key is header name.
+   * The clients are created in parallel, the keys are registered one by one and read without lock.
+   */
+  private static final Table<Class, String, Metadata.Key> HEADER_KEYS =
+          Tables.newCustomTable(Maps.newConcurrentMap(), Maps::newConcurrentMap);
   @Deprecated
   public static final String PROTO_HEADER = "yinxiang.grpc.http.header";
   /** Headers of proto */
@@ -35,7 +40,7 @@ public final class StubHeadersProcessor {
    * @param name  header name
    * @param type  type of header value
    */
-  public static void registerKey(Class clz, String name, Class type) {
+  public static synchronized void registerKey(Class clz, String name, Class type) {
     Metadata.Key key = HEADER_KEYS.get(clz, name);
     if (key == null) {
       key = type.equals(String.class) ?
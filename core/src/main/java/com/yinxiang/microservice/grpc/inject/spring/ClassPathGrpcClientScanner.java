@@ -1,19 +1,34 @@
 package com.yinxiang.microservice.grpc.inject.spring;
 
+import com.google.common.collect.Lists;
 import com.yinxiang.microservice.grpc.inject.factories.GrpcClientCreator;
+import com.yinxiang.microservice.grpc.inject.factories.GrpcClientSources;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.GenericBeanDefinition;
 import org.springframework.context.annotation.ClassPathBeanDefinitionScanner;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -24,6 +39,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * interfaces will be disabled).
  * <p>
  * This functionality was previously a private class of
+ * <p>
+ * A native image has no class files to scan, so the interfaces are read from
+ * {@link GrpcClientSources#CLIENTS_INDEX} which is written by GrpcClientProcessor at build time.
  *
  * @see GrpcClientFactoryBean
  * @author Huiyuan Fu
@@ -32,6 +50,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class ClassPathGrpcClientScanner extends ClassPathBeanDefinitionScanner {
   /** The class of {@link GrpcClientCreator}, can use {@link #setGrpcClientCreatorClass(Class)} to set custom class. */
   private static Class<? extends GrpcClientCreator> GRPC_CLIENT_CREATOR_CLASS = GrpcClientFactoryBean.class;
+  /** The name of the bean of {@link GrpcClientsInitializer}. */
+  private static final String INITIALIZER_BEAN_NAME = GrpcClientsInitializer.class.getName();
   /** The class of annotation which use to scan with. */
   private Class<? extends Annotation> annotationClass;
 
@@ -89,11 +109,33 @@ public class ClassPathGrpcClientScanner extends ClassPathBeanDefinitionScanner {
               "' package. Please check your configuration.");
     } else {
       processBeanDefinitions(beanDefinitions);
+      registerClientsInitializer(beanDefinitions);
     }
 
     return beanDefinitions;
   }
 
+  /**
+   * Register the {@link GrpcClientsInitializer} which creates the clients in parallel, or add the clients to it.
+   * @param beanDefinitions the bean definitions of clients
+   */
+  @SuppressWarnings("unchecked")
+  private void registerClientsInitializer(Set<BeanDefinitionHolder> beanDefinitions) {
+    List<String> beanNames =
+            beanDefinitions.stream().map(BeanDefinitionHolder::getBeanName).collect(Collectors.toList());
+    BeanDefinitionRegistry registry = getRegistry();
+    if (registry.containsBeanDefinition(INITIALIZER_BEAN_NAME)) {
+      ConstructorArgumentValues.ValueHolder names = registry.getBeanDefinition(INITIALIZER_BEAN_NAME)
+              .getConstructorArgumentValues().getIndexedArgumentValue(0, List.class);
+      ((List<String>) checkNotNull(names).getValue()).addAll(beanNames);
+    } else {
+      GenericBeanDefinition definition = new GenericBeanDefinition();
+      definition.setBeanClass(GrpcClientsInitializer.class);
+      definition.getConstructorArgumentValues().addIndexedArgumentValue(0, Lists.newArrayList(beanNames));
+      registry.registerBeanDefinition(INITIALIZER_BEAN_NAME, definition);
+    }
+  }
+
   private void processBeanDefinitions(Set<BeanDefinitionHolder> beanDefinitions) {
     GenericBeanDefinition definition;
     for (BeanDefinitionHolder holder : beanDefinitions) {
@@ -114,6 +156,43 @@ public class ClassPathGrpcClientScanner extends ClassPathBeanDefinitionScanner {
     }
   }
 
+  /**
+   * Find the candidates by scanning the classpath, or by {@link GrpcClientSources#CLIENTS_INDEX} in a native image.
+   */
+  @Override
+  @NonNull
+  public Set<BeanDefinition> findCandidateComponents(@NonNull String basePackage) {
+    if (!GrpcClientSources.inNativeImage()) {
+      return super.findCandidateComponents(basePackage);
+    }
+    Set<BeanDefinition> candidates = new LinkedHashSet<>();
+    ClassLoader classLoader = getResourceLoader().getClassLoader();
+    try {
+      Enumeration<URL> indexes = checkNotNull(classLoader).getResources(GrpcClientSources.CLIENTS_INDEX);
+      while (indexes.hasMoreElements()) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+          String className;
+          while ((className = reader.readLine()) != null) {
+            if (!className.startsWith(basePackage + ".")) {
+              continue;
+            }
+            AnnotatedGenericBeanDefinition candidate =
+                    new AnnotatedGenericBeanDefinition(ClassUtils.forName(className, classLoader));
+            boolean annotated =
+                    this.annotationClass == null || candidate.getMetadata().hasAnnotation(annotationClass.getName());
+            if (annotated && isCandidateComponent(candidate)) {
+              candidates.add(candidate);
+            }
+          }
+        }
+      }
+    } catch (IOException | ClassNotFoundException e) {
+      throw new BeanDefinitionStoreException("Failed to read " + GrpcClientSources.CLIENTS_INDEX, e);
+    }
+    return candidates;
+  }
+
   /**
    * {@inheritDoc}
    */
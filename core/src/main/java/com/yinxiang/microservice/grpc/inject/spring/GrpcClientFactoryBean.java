@@ -3,6 +3,8 @@ package com.yinxiang.microservice.grpc.inject.spring;
 import com.yinxiang.microservice.grpc.inject.annotations.GrpcClient;
 import com.yinxiang.microservice.grpc.inject.factories.GrpcClientCreator;
 import io.grpc.stub.AbstractStub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.FactoryBean;
 
 /**
@@ -13,6 +15,12 @@ import org.springframework.beans.factory.FactoryBean;
  * @since 1.0.0
  */
 public class GrpcClientFactoryBean<T> extends GrpcClientCreator<T> implements FactoryBean<T> {
+  private static final Logger log = LoggerFactory.getLogger(GrpcClientFactoryBean.class);
+  /** The object which is created ahead by {@link GrpcClientsInitializer}, null if not created. */
+  private volatile T object;
+  /** Creates all clients in parallel, null if the clients are not scanned. */
+  private GrpcClientsInitializer grpcClientsInitializer;
+
   public GrpcClientFactoryBean() {}
 
   public GrpcClientFactoryBean(Class<T> mapperInterface) {
@@ -29,13 +37,36 @@ public class GrpcClientFactoryBean<T> extends GrpcClientCreator<T> implements Fa
     return mapperInterface.getAnnotation(GrpcClient.class).logMethod();
   }
 
+  /**
+   * Create the object ahead, called by {@link GrpcClientsInitializer} in parallel with other clients.
+   */
+  void prepare() {
+    try {
+      object = create();
+    } catch (Exception e) {
+      log.debug("GrpcClientFactoryBean can not create {} ahead: {}", mapperInterface.getName(), e.getMessage());
+    }
+  }
+
   @Override
   public T getObject() throws Exception {
-    return create();
+    if (grpcClientsInitializer != null) {
+      grpcClientsInitializer.initialize();
+    }
+    T object = this.object;
+    return object != null ? object : create();
   }
 
   @Override
   public Class<?> getObjectType() {
     return mapperInterface;
   }
+
+  /**
+   * Support to autowire method.
+   * @param grpcClientsInitializer  {@link GrpcClientsInitializer}
+   */
+  public void setGrpcClientsInitializer(GrpcClientsInitializer grpcClientsInitializer) {
+    this.grpcClientsInitializer = grpcClientsInitializer;
+  }
 }
@@ -0,0 +1,107 @@
+package com.yinxiang.microservice.grpc.inject.spring;
+
+import com.google.common.collect.Lists;
+import com.yinxiang.microservice.grpc.inject.factories.GrpcClientCreator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Create all gRPC clients which are registered by {@link ClassPathGrpcClientScanner} in parallel.
+ * <p>
+ *   Each {@link GrpcClientFactoryBean} calls {@link #initialize()} before creating its object, the first call gets
+ *   all factory beans on the thread of spring, then creates their proxies and channels on a {@link ForkJoinPool},
+ *   one task per client, so the clients are not created one by one on the startup.
+ *   A client which fails is created again by its own factory bean, to throw the exception of its bean.
+ *   Every factory bean depends on it, so it is destroyed after them, and shuts down the channels of all clients,
+ *   then the own event loops of services.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class GrpcClientsInitializer implements BeanFactoryAware, DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(GrpcClientsInitializer.class);
+  /** The time to wait for the channels, and then for the event loops at destroy. */
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+  /** The names of the beans of clients. */
+  private final List<String> beanNames;
+  /** Spring's {@link ConfigurableBeanFactory}. */
+  private ConfigurableBeanFactory beanFactory;
+  /** Whether the clients are initialized. */
+  private boolean initialized;
+
+  public GrpcClientsInitializer(List<String> beanNames) {
+    this.beanNames = beanNames;
+  }
+
+  @Override
+  public void setBeanFactory(@NonNull BeanFactory beanFactory) throws BeansException {
+    this.beanFactory = (ConfigurableBeanFactory) beanFactory;
+  }
+
+  /**
+   * Create the objects of all factory beans in parallel, only the first call works.
+   */
+  synchronized void initialize() {
+    if (initialized) {
+      return;
+    }
+    initialized = true;
+    // get the factory beans on the thread of spring, a bean in creation is created by itself
+    List<GrpcClientFactoryBean<?>> factoryBeans = Lists.newArrayListWithCapacity(beanNames.size());
+    for (String beanName : beanNames) {
+      if (beanFactory.isCurrentlyInCreation(beanName)) {
+        continue;
+      }
+      try {
+        Object factoryBean = beanFactory.getBean(BeanFactory.FACTORY_BEAN_PREFIX + beanName);
+        if (factoryBean instanceof GrpcClientFactoryBean) {
+          factoryBeans.add((GrpcClientFactoryBean<?>) factoryBean);
+        }
+      } catch (BeansException e) {
+        log.debug("GrpcClientsInitializer skip {}: {}", beanName, e.getMessage());
+      }
+    }
+    if (factoryBeans.isEmpty()) {
+      return;
+    }
+    // create the proxies and channels in parallel, one task per client
+    long start = System.nanoTime();
+    List<Callable<Object>> tasks = factoryBeans.stream()
+            .map(factoryBean -> Executors.callable(factoryBean::prepare))
+            .collect(Collectors.toList());
+    ForkJoinPool pool = new ForkJoinPool(Math.min(factoryBeans.size(), Runtime.getRuntime().availableProcessors()));
+    try {
+      for (Future<Object> future : pool.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      log.warn("GrpcClientsInitializer can not create the clients in parallel.", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+    log.info("GrpcClientsInitializer created {} clients in {} ms.", factoryBeans.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    GrpcClientCreator.shutdownChannels(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,117 @@
+package com.yinxiang.microservice.grpc.transport;
+
+import com.google.common.base.Strings;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Unix domain sockets of the epoll transport, for the server and channels on the same host.
+ * <p>
+ *   This class is only loaded when a domain socket is used, so the application without
+ *   netty-transport-native-epoll never touches its classes. Check a target by {@link #TARGET_PREFIX}.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public final class DomainSockets {
+  /** The prefix of targets of domain sockets, ex: unix:///var/run/grpc.sock. */
+  public static final String TARGET_PREFIX = "unix:";
+  /** The mask of file type in st_mode. */
+  private static final int S_IFMT = 0170000;
+  /** The file type of socket in st_mode. */
+  private static final int S_IFSOCK = 0140000;
+  /** The max milliseconds to dial an existing socket. */
+  private static final int PROBE_TIMEOUT_MILLIS = 1000;
+
+  private DomainSockets() {}
+
+  /**
+   * Create the address of a domain socket.
+   * @param path  the path of socket file
+   * @return  {@link SocketAddress}
+   */
+  public static SocketAddress newAddress(String path) {
+    checkState(Epoll.isAvailable(), "unix domain socket needs the epoll transport: %s", Epoll.unavailabilityCause());
+    return new DomainSocketAddress(path);
+  }
+
+  /**
+   * Create the address of a target of domain socket.
+   * @param target  unix:///path, unix:/path or unix:path(relative to the working directory)
+   * @return  {@link SocketAddress}
+   * @throws IllegalArgumentException the target has no path, ex: unix://relative.sock
+   */
+  public static SocketAddress fromTarget(String target) {
+    URI uri = URI.create(target);
+    // the opaque unix:relative.sock has no path, but its scheme-specific part
+    String path = uri.isOpaque() ? uri.getSchemeSpecificPart() : uri.getPath();
+    checkArgument(!Strings.isNullOrEmpty(path),
+            "no socket path in %s, use unix:/abs, unix:///abs or unix:relative", target);
+    return newAddress(path);
+  }
+
+  /**
+   * Delete the socket file left by a dead process, which can not be bound again.
+   * <p>
+   *   Only a socket which refuses connections is deleted. A socket which accepts them is served by another
+   *   process, and any other file is not a socket, both fail rather than be taken over.
+   * </p>
+   * @param path  the path of socket file
+   * @param group the epoll event loops to dial the socket
+   * @throws IOException  fail to read or delete the file
+   */
+  public static void deleteStale(Path path, EventLoopGroup group) throws IOException {
+    if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+    checkState((mode & S_IFMT) == S_IFSOCK, "%s exists and is not a socket", path);
+    ChannelFuture future = new Bootstrap()
+            .group(group)
+            .channel(getChannelType())
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, PROBE_TIMEOUT_MILLIS)
+            .handler(new ChannelInboundHandlerAdapter())
+            .connect(newAddress(path.toString()))
+            .awaitUninterruptibly();
+    if (future.isSuccess()) {
+      future.channel().close();
+      throw new IllegalStateException(path + " is served by another process");
+    }
+    Files.delete(path);
+  }
+
+  /**
+   * Get the type of server channels of domain sockets.
+   * @return  type of {@link ServerChannel}
+   */
+  public static Class<? extends ServerChannel> getServerChannelType() {
+    return EpollServerDomainSocketChannel.class;
+  }
+
+  /**
+   * Get the type of client channels of domain sockets.
+   * @return  type of {@link Channel}
+   */
+  public static Class<? extends Channel> getChannelType() {
+    return EpollDomainSocketChannel.class;
+  }
+}
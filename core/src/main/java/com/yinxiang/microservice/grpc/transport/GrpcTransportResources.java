@@ -0,0 +1,106 @@
+package com.yinxiang.microservice.grpc.transport;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.*;
+
+/**
+ * The transport resources shared by the server and all channels: one boss event loop, one group of worker
+ * event loops of a {@link NettyTransport} and one bounded executor of application callbacks.
+ * <p>
+ *   Without it every channel and the server take the default event loops and cached thread pools of gRPC.
+ *   When the executor is full, the callback runs on the calling thread rather than be dropped.
+ *   At destroy, the boss stops accepting first, then the workers, then the executor finishes its tasks.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class GrpcTransportResources implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(GrpcTransportResources.class);
+  /** The time to wait for every resource at destroy. */
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  /** The transport of event loops. */
+  private final NettyTransport transport;
+  /** The event loop which accepts connections of server. */
+  private final EventLoopGroup bossGroup;
+  /** The event loops of all connections. */
+  private final EventLoopGroup workerGroup;
+  /** The executor of application callbacks. */
+  private final ExecutorService executor;
+
+  /**
+   * @param transport         the transport of event loops
+   * @param workerThreads     the count of worker threads, 0 is the default of netty
+   * @param executorThreads   the count of executor threads
+   * @param executorQueueSize the capacity of queue of executor
+   */
+  public GrpcTransportResources(
+          NettyTransport transport,
+          int workerThreads,
+          int executorThreads,
+          int executorQueueSize
+  ) {
+    this.transport = transport;
+    bossGroup = transport.newEventLoopGroup(1, new DefaultThreadFactory("grpc-boss", true));
+    workerGroup = transport.newEventLoopGroup(workerThreads, new DefaultThreadFactory("grpc-worker", true));
+    executor = new ThreadPoolExecutor(executorThreads, executorThreads, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(executorQueueSize),
+            new ThreadFactoryBuilder().setNameFormat("grpc-executor-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /** @see #transport */
+  public NettyTransport getTransport() {
+    return transport;
+  }
+
+  /** @see #bossGroup */
+  public EventLoopGroup getBossGroup() {
+    return bossGroup;
+  }
+
+  /** @see #workerGroup */
+  public EventLoopGroup getWorkerGroup() {
+    return workerGroup;
+  }
+
+  /** @see #executor */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Get the type of server channels of the event loops.
+   * @return  type of {@link ServerChannel}
+   */
+  public Class<? extends ServerChannel> getServerChannelType() {
+    return transport.getServerChannelType();
+  }
+
+  /**
+   * Get the type of client channels of the event loops.
+   * @return  type of {@link Channel}
+   */
+  public Class<? extends Channel> getChannelType() {
+    return transport.getChannelType();
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    bossGroup.shutdownGracefully().await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    workerGroup.shutdownGracefully().await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    executor.shutdown();
+    if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      log.warn("grpc executor is not terminated in {}s", SHUTDOWN_TIMEOUT_SECONDS);
+      executor.shutdownNow();
+    }
+  }
+}
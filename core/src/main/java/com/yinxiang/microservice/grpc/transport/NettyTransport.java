@@ -0,0 +1,110 @@
+package com.yinxiang.microservice.grpc.transport;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The transport of netty event loops and channels.
+ * <p>
+ *   Epoll needs netty-transport-native-epoll on the classpath and a linux which can load it, its classes are
+ *   only touched when {@link #detect(boolean)} finds it available, so the application without it runs on NIO.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public enum NettyTransport {
+  /** The native transport of linux. */
+  EPOLL {
+    @Override
+    public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+      return new EpollEventLoopGroup(threads, threadFactory);
+    }
+
+    @Override
+    public Class<? extends ServerChannel> getServerChannelType() {
+      return EpollServerSocketChannel.class;
+    }
+
+    @Override
+    public Class<? extends Channel> getChannelType() {
+      return EpollSocketChannel.class;
+    }
+  },
+  /** The java NIO transport. */
+  NIO {
+    @Override
+    public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+      return new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    @Override
+    public Class<? extends ServerChannel> getServerChannelType() {
+      return NioServerSocketChannel.class;
+    }
+
+    @Override
+    public Class<? extends Channel> getChannelType() {
+      return NioSocketChannel.class;
+    }
+  };
+
+  private static final Logger log = LoggerFactory.getLogger(NettyTransport.class);
+  /** The class which tells epoll is available. */
+  private static final String EPOLL_CLASS = "io.netty.channel.epoll.Epoll";
+
+  /**
+   * Create a group of event loops.
+   * @param threads       the count of threads, 0 is the default of netty
+   * @param threadFactory the factory of threads
+   * @return  {@link EventLoopGroup}
+   */
+  public abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+  /**
+   * Get the type of server channels of the event loops.
+   * @return  type of {@link ServerChannel}
+   */
+  public abstract Class<? extends ServerChannel> getServerChannelType();
+
+  /**
+   * Get the type of client channels of the event loops.
+   * @return  type of {@link Channel}
+   */
+  public abstract Class<? extends Channel> getChannelType();
+
+  /**
+   * Detect the transport, and log which is active.
+   * @param preferNative  use epoll if available
+   * @return  {@link #EPOLL} if preferred and available, else {@link #NIO}
+   */
+  public static NettyTransport detect(boolean preferNative) {
+    if (!preferNative) {
+      log.info("gRPC transport: nio (native transport is disabled)");
+      return NIO;
+    }
+    try {
+      Class.forName(EPOLL_CLASS, false, NettyTransport.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      log.info("gRPC transport: nio (netty-transport-native-epoll is not on the classpath)");
+      return NIO;
+    }
+    if (!Epoll.isAvailable()) {
+      log.info("gRPC transport: nio (epoll is unavailable: {})", Epoll.unavailabilityCause().toString());
+      return NIO;
+    }
+    log.info("gRPC transport: epoll");
+    return EPOLL;
+  }
+}
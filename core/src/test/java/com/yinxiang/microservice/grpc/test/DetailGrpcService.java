@@ -0,0 +1,10 @@
+package com.yinxiang.microservice.grpc.test;
+
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcClient;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcHeader;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcParam;
+
+@GrpcClient(stub = TestServiceGrpc.TestServiceBlockingStub.class)
+public interface DetailGrpcService {
+  DetailReply detail(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String auth);
+}
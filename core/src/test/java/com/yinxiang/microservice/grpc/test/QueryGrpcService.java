@@ -0,0 +1,9 @@
+package com.yinxiang.microservice.grpc.test;
+
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcClient;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcParam;
+
+@GrpcClient(stub = BenchmarkServiceGrpc.BenchmarkServiceBlockingStub.class)
+public interface QueryGrpcService {
+  QueryReply query(@GrpcParam(param = "id") long id);
+}
@@ -1,35 +1,134 @@
 package com.yinxiang.microservice.grpc.test;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.api.CustomHttpPattern;
+import com.google.gson.Gson;
+import com.google.api.HttpRule;
+import com.google.protobuf.*;
 import com.googlecode.protobuf.format.JsonFormat;
+import com.yinxiang.microservice.grpc.autoconfigure.GrpcServerProperties;
+import com.yinxiang.microservice.grpc.GrpcGlobalInterceptor;
+import com.yinxiang.microservice.grpc.codec.CompiledJsonCodec;
+import com.yinxiang.microservice.grpc.codec.JsonCodec;
+import com.yinxiang.microservice.grpc.codec.LegacyJsonCodec;
+import com.yinxiang.grpc.http.Headers;
+import com.yinxiang.microservice.grpc.controller.BaseGrpcController;
 import com.yinxiang.microservice.grpc.controller.ClassPathLoader;
+import com.yinxiang.microservice.grpc.controller.HandlerMethodBinder;
+import com.yinxiang.microservice.grpc.controller.StreamingFormat;
+import com.yinxiang.microservice.grpc.inject.GrpcPublishers;
+import com.yinxiang.microservice.grpc.inject.GrpcStreams;
+import com.yinxiang.microservice.grpc.inject.channels.ChannelPool;
+import com.yinxiang.microservice.grpc.inject.channels.ChannelPoolPolicy;
+import com.yinxiang.microservice.grpc.inject.channels.FileNameResolver;
+import com.yinxiang.microservice.grpc.inject.channels.LoadBalancingPolicy;
 import com.yinxiang.microservice.grpc.inject.channels.ReusableChannel;
+import com.yinxiang.microservice.grpc.inject.channels.StaticNameResolver;
+import com.yinxiang.microservice.grpc.inject.config.GrpcServiceConfig;
+import com.yinxiang.microservice.grpc.inject.factories.GrpcClientCreator;
+import com.yinxiang.microservice.grpc.inject.factories.GrpcClientSources;
+import com.yinxiang.microservice.grpc.inject.header.StubHeadersProcessor;
+import com.yinxiang.microservice.grpc.inject.spring.AutoConfiguredGrpcClientScannerRegistrar;
+import com.yinxiang.microservice.grpc.inject.spring.GrpcClientFactoryBean;
+import com.yinxiang.microservice.grpc.inject.spring.GrpcClientsInitializer;
 import com.yinxiang.microservice.grpc.test.controllers.TestRestfulController;
 import com.yinxiang.microservice.grpc.test.controllers.TestServiceController;
+import com.yinxiang.microservice.grpc.transport.GrpcTransportResources;
+import com.yinxiang.microservice.grpc.transport.NettyTransport;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.internal.ObjectPool;
+import io.grpc.netty.NegotiationType;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.StandardAnnotationMetadata;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.yinxiang.microservice.grpc.inject.Marshaller.*;
 import static io.grpc.Status.Code.INVALID_ARGUMENT;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @SpringBootTest(classes = {TestCases.class})
@@ -40,9 +139,23 @@ public class TestCases {
   @Autowired
   private TestGrpcService testGrpcService;
   @Autowired
+  private DetailGrpcService detailGrpcService;
+  @Autowired
+  private QueryGrpcService queryGrpcService;
+  @Autowired
+  private ListableBeanFactory beanFactory;
+  @Autowired
   private TestServiceController testServiceController;
   @Autowired
+  private TestService testService;
+  @Autowired
   private TestRestfulController testRestfulController;
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+  @Autowired
+  private GrpcTransportResources grpcTransportResources;
+  @Autowired
+  private GrpcServerProperties grpcServerProperties;
 
   private void testNoHeader(Runnable runnable) {
     try {
@@ -69,6 +182,254 @@ public class TestCases {
     log.info("detail result: {}.", checkNotNull(testGrpcService.detail(3, "auth").getResult()));
   }
 
+  @Test
+  public void testHeadersWithInterceptor() {
+    // each header and the interceptor extend the stub of the one before, none is dropped
+    String requestId = UUID.randomUUID().toString();
+    checkNotNull(testGrpcService.search(1, "auth", requestId, stub ->
+            StubHeadersProcessor.withHeader(checkNotNull(stub), "x-intercepted", String.class, "true")).getResult());
+    Metadata headers = checkNotNull(RequestHeadersRecorder.headers.get(requestId), "no call of " + requestId);
+    checkArgument("auth".equals(headers.get(Metadata.Key.of("auth", Metadata.ASCII_STRING_MARSHALLER))));
+    checkArgument("true".equals(headers.get(Metadata.Key.of("x-intercepted", Metadata.ASCII_STRING_MARSHALLER))));
+  }
+
+  /**
+   * Record the headers of the calls which have a request id.
+   */
+  @GrpcGlobalInterceptor
+  static class RequestHeadersRecorder implements ServerInterceptor {
+    private static final Metadata.Key<String> REQUEST_ID =
+            Metadata.Key.of("x-request-id", Metadata.ASCII_STRING_MARSHALLER);
+    /** The headers of calls[key=request id]. */
+    static final Map<String, Metadata> headers = Maps.newConcurrentMap();
+    /** The full method names of calls[key=request id]. */
+    static final Map<String, String> methods = Maps.newConcurrentMap();
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call,
+            Metadata metadata,
+            ServerCallHandler<ReqT, RespT> next
+    ) {
+      String requestId = metadata.get(REQUEST_ID);
+      if (requestId != null) {
+        headers.put(requestId, metadata);
+        methods.put(requestId, call.getMethodDescriptor().getFullMethodName());
+      }
+      return next.startCall(call, metadata);
+    }
+  }
+
+  @Test
+  public void testAsyncClient() throws Exception {
+    checkNotNull(testGrpcService.searchAsync(1, "auth").get(5, TimeUnit.SECONDS).getResult());
+    String json = testGrpcService.searchJsonAsync(2, "auth").get(5, TimeUnit.SECONDS);
+    checkArgument(fromJson(SearchReply.newBuilder(), json).getResult().contains("2"));
+    // a POJO is mapped off the event loop, in the common pool without the executor of stub
+    SearchResult pojo = testGrpcService.searchPojoAsync(6, "auth").get(5, TimeUnit.SECONDS);
+    checkArgument(pojo.getResult().equals(testGrpcService.search(6, "auth").getResult()));
+    checkArgument(pojo.getThread().startsWith("ForkJoinPool.commonPool"));
+    checkNotNull(testGrpcService.detailAsync(3, "auth").get(5, TimeUnit.SECONDS).getResult());
+    // a failed call completes the future, and a safe method completes with null
+    try {
+      testGrpcService.searchAsync(4, "wrong").get(5, TimeUnit.SECONDS);
+      throw new IllegalStateException("the call with a wrong auth must fail");
+    } catch (ExecutionException e) {
+      checkArgument(e.getCause() instanceof StatusRuntimeException);
+    }
+    checkArgument(testGrpcService.sAsync(5).get(5, TimeUnit.SECONDS) == null);
+  }
+
+  @Test
+  public void testStreamingClient() throws Exception {
+    try (Stream<SearchReply> replies = testGrpcService.exportStream(100, "auth")) {
+      checkArgument(replies.count() == 100);
+    }
+    // close the stream before the end cancels the call
+    try (Stream<SearchReply> replies = testGrpcService.exportStream(1000, "auth")) {
+      checkArgument(replies.limit(3).count() == 3);
+    }
+    List<Object> exported = subscribe(testGrpcService.exportPublisher(5, "auth")).get(5, TimeUnit.SECONDS);
+    checkArgument(exported.size() == 5);
+    checkArgument(fromJson(SearchReply.newBuilder(), (String) exported.get(4)).getResult().equals("4"));
+    List<SearchRequest> requests = IntStream.range(0, 3)
+            .mapToObj(i -> SearchRequest.newBuilder().setId(i).build())
+            .collect(Collectors.toList());
+    List<Object> chat = subscribe(testGrpcService.chat(new ListPublisher<>(requests), "auth")).get(5, TimeUnit.SECONDS);
+    String results = chat.stream().map(reply -> ((SearchReply) reply).getResult()).collect(Collectors.joining());
+    checkArgument(results.equals("012"));
+  }
+
+  @Test
+  public void testStreamingBackpressure() throws Exception {
+    // the in-process server sends a reply only when the client has requested it
+    GrpcServerProperties properties = new GrpcServerProperties();
+    properties.setInProcessServerName("grpc-starter-test");
+    GrpcServiceConfig config = new GrpcServiceConfig();
+    config.setName("grpc.test");
+    config.setLocal(true);
+    LocalCreator creator = new LocalCreator();
+    creator.setGrpcServerProperties(properties);
+    ManagedChannel channel = creator.createChannel(config);
+    TestServiceGrpc.TestServiceStub stub =
+            StubHeadersProcessor.withHeader(TestServiceGrpc.newStub(channel), "auth", String.class, "auth");
+    // a subscriber which requests 1 receives exactly 1
+    DemandSubscriber subscriber = new DemandSubscriber(1);
+    GrpcPublishers.serverStreaming(stub, TestServiceGrpc.getExportMethod(),
+            SearchRequest.newBuilder().setId(1001).build(), SearchReply.class).subscribe(subscriber);
+    awaitTrue(() -> subscriber.values.size() == 1);
+    Thread.sleep(200);
+    checkArgument(subscriber.values.size() == 1 && !subscriber.terminated.isDone());
+    checkArgument(testService.getExported(1001) <= GrpcStreams.PREFETCH);
+    // a request which is not positive fails the subscriber serially, and cancels the call
+    subscriber.subscription.request(0);
+    try {
+      subscriber.terminated.get(5, TimeUnit.SECONDS);
+      throw new IllegalStateException("request(0) is accepted.");
+    } catch (ExecutionException e) {
+      checkArgument(e.getCause() instanceof IllegalArgumentException);
+    }
+    awaitTrue(() -> testService.isExportCancelled(1001));
+    checkArgument(!subscriber.overlapped);
+    // a stream holds at most PREFETCH replies ahead of the consumer, and close cancels the call
+    try (Stream<Object> replies = GrpcStreams.serverStreaming(stub, TestServiceGrpc.getExportMethod(),
+            SearchRequest.newBuilder().setId(1002).build(), SearchReply.class)) {
+      checkArgument(replies.iterator().next() != null);
+      Thread.sleep(200);
+      checkArgument(testService.getExported(1002) <= GrpcStreams.PREFETCH + 1);
+    }
+    awaitTrue(() -> testService.isExportCancelled(1002));
+    checkArgument(testService.getExported(1002) < 1002);
+    channel.shutdownNow();
+  }
+
+  /**
+   * Wait until a condition is true, at most 5 seconds.
+   * @param condition the condition
+   */
+  private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      checkArgument(System.nanoTime() < deadline, "The condition is not true in time.");
+      Thread.sleep(10);
+    }
+  }
+
+  /** A subscriber which requests a fixed demand, and records the signals and whether any two overlap. */
+  private static class DemandSubscriber implements Subscriber<Object> {
+    private final long demand;
+    private final List<Object> values = Lists.newCopyOnWriteArrayList();
+    private final CompletableFuture<Void> terminated = new CompletableFuture<>();
+    private final AtomicInteger signalling = new AtomicInteger();
+    private volatile Subscription subscription;
+    private volatile boolean overlapped;
+
+    private DemandSubscriber(long demand) {
+      this.demand = demand;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(demand);
+    }
+
+    @Override
+    public void onNext(Object value) {
+      signal(() -> values.add(value));
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      signal(() -> terminated.completeExceptionally(t));
+    }
+
+    @Override
+    public void onComplete() {
+      signal(() -> terminated.complete(null));
+    }
+
+    private void signal(Runnable runnable) {
+      if (signalling.incrementAndGet() != 1) {
+        overlapped = true;
+      }
+      try {
+        runnable.run();
+      } finally {
+        signalling.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Subscribe a {@link Publisher} and request one by one.
+   * @param publisher {@link Publisher}
+   * @return  the values
+   */
+  private static CompletableFuture<List<Object>> subscribe(Publisher<?> publisher) {
+    CompletableFuture<List<Object>> future = new CompletableFuture<>();
+    List<Object> values = Lists.newArrayList();
+    publisher.subscribe(new Subscriber<Object>() {
+      private Subscription subscription;
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      }
+
+      @Override
+      public void onNext(Object value) {
+        values.add(value);
+        subscription.request(1);
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        future.completeExceptionally(t);
+      }
+
+      @Override
+      public void onComplete() {
+        future.complete(values);
+      }
+    });
+    return future;
+  }
+
+  /** A {@link Publisher} of a list, delivers by the demand in the thread of request. */
+  private static class ListPublisher<T> implements Publisher<T> {
+    private final List<T> list;
+
+    private ListPublisher(List<T> list) {
+      this.list = list;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+      Iterator<T> iterator = list.iterator();
+      subscriber.onSubscribe(new Subscription() {
+        private boolean done;
+
+        @Override
+        public synchronized void request(long n) {
+          for (long i = 0; i < n && !done && iterator.hasNext(); i++) {
+            subscriber.onNext(iterator.next());
+          }
+          if (!done && !iterator.hasNext()) {
+            done = true;
+            subscriber.onComplete();
+          }
+        }
+
+        @Override
+        public synchronized void cancel() {
+          done = true;
+        }
+      });
+    }
+  }
+
   @Test
   public void testGrpcController() throws JsonFormat.ParseException {
     Map<String, Object> body = ImmutableMap.of("id", 1);
@@ -109,6 +470,327 @@ public class TestCases {
     checkArgument(response.getStatus() == HttpStatus.EXPECTATION_FAILED.value());
   }
 
+  @Test
+  public void testInterceptorChains() {
+    IntStream.range(0, 64).parallel().forEach(i -> {
+      String userAgent = "class-" + i;
+      Map<String, String> headers = ImmutableMap.of("auth", "auth", "user-agent", userAgent);
+      checkArgument(userAgent.equals(testRestfulController.userAgent(headers)));
+    });
+  }
+
+  @Test
+  public void testSharedConsumer() {
+    SharedConsumerController controller = new SharedConsumerController();
+    Map<String, String> headers = ImmutableMap.of("auth", "auth");
+    controller.first(headers);
+    controller.second(headers);
+    controller.first(headers);
+    // the descriptor is named by the calling method, not by the consumer
+    String service = "TestCases$SharedConsumerController/";
+    checkArgument(controller.methodNames.equals(
+            Lists.newArrayList(service + "first", service + "second", service + "first")));
+    // in a request of spring mvc, the descriptor is named by the handler method, not by the stack
+    controller.methodNames.clear();
+    inRequestOf(controller, "second", () -> controller.first(headers));
+    inRequestOf(controller, "first", () -> controller.first(headers));
+    checkArgument("third".equals(controller.third(headers)));
+    checkArgument(controller.methodNames.equals(
+            Lists.newArrayList(service + "second", service + "first", service + "third")));
+  }
+
+  /**
+   * Run in a request of spring mvc which is handled by a method of the controller.
+   * @param controller  the controller
+   * @param handler     the name of handler method
+   * @param runnable    run in the request
+   */
+  private static void inRequestOf(Object controller, String handler, Runnable runnable) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    try {
+      request.setAttribute(HandlerMethodBinder.HANDLER_METHOD_ATTRIBUTE,
+              new HandlerMethod(controller, controller.getClass().getDeclaredMethod(handler, Map.class)));
+      RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+      runnable.run();
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      RequestContextHolder.setRequestAttributes(attributes);
+    }
+  }
+
+  @Test
+  public void testHandlerMethodDescriptor() throws Exception {
+    // the header-only overloads name the descriptor by the handler method bound to the request
+    String requestId = UUID.randomUUID().toString();
+    MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    MvcResult result = mockMvc.perform(get("/rest7")
+            .header("auth", "auth")
+            .header("user-agent", "class")
+            .header("x-request-id", requestId))
+            .andExpect(status().isOk())
+            .andReturn();
+    checkArgument(result.getRequest().getAttribute(HandlerMethodBinder.HANDLER_METHOD_ATTRIBUTE) instanceof HandlerMethod);
+    checkArgument("TestRestfulController/userAgent".equals(RequestHeadersRecorder.methods.get(requestId)));
+  }
+
+  /** A controller which uses one consumer in two methods, and records the names of descriptors. */
+  private static class SharedConsumerController extends BaseGrpcController {
+    private final List<String> methodNames = Lists.newArrayList();
+    private final Consumer<Headers> consumer = header -> {};
+    private final MethodDescriptor third = getMethodDescriptor("third");
+
+    SharedConsumerController() {
+      setInterceptors(Lists.newArrayList(new ServerInterceptor() {
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+          methodNames.add(call.getMethodDescriptor().getFullMethodName());
+          return next.startCall(call, headers);
+        }
+      }));
+    }
+
+    void first(Map<String, String> headers) {
+      _processHeadersAndDo(headers, consumer);
+    }
+
+    void second(Map<String, String> headers) {
+      _processHeadersAndDo(headers, consumer);
+    }
+
+    String third(Map<String, String> headers) {
+      return _processHeadersAndDo(headers, header -> "third", third);
+    }
+  }
+
+  @Test
+  public void testAsyncController() throws Exception {
+    Map<String, String> headers = ImmutableMap.of("auth", "auth", "user-agent", "class");
+    String params = commonToJson(ImmutableMap.of("id", 1));
+    String json = testRestfulController.restAsync(params, headers).get(10, TimeUnit.SECONDS);
+    checkArgument(!fromJson(SearchReply.newBuilder(), json).getResult().isEmpty());
+    checkArgument(testRestfulController.restAsync(params, ImmutableMap.of()).isCompletedExceptionally());
+  }
+
+  @Test
+  public void testAsyncRejected() throws Exception {
+    CompletableFuture<String> future = new RejectingController().search();
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      throw new IllegalStateException("The rejected call is completed.");
+    } catch (ExecutionException e) {
+      checkArgument(Status.fromThrowable(e.getCause()).getCode() == Status.Code.PERMISSION_DENIED);
+    }
+    try {
+      new RejectingController().export();
+      throw new IllegalStateException("The rejected call is started.");
+    } catch (StatusRuntimeException e) {
+      checkArgument(e.getStatus().getCode() == Status.Code.PERMISSION_DENIED);
+    }
+  }
+
+  /** A controller whose interceptor rejects every call by close. */
+  private static class RejectingController extends BaseGrpcController {
+    RejectingController() {
+      setInterceptors(Lists.newArrayList(new ServerInterceptor() {
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+          call.close(Status.PERMISSION_DENIED, new Metadata());
+          return new ServerCall.Listener<ReqT>() {};
+        }
+      }));
+    }
+
+    CompletableFuture<String> search() throws JsonFormat.ParseException {
+      return _processAsync("{}", ImmutableMap.of(), SearchRequest.newBuilder(),
+              (SearchRequest request, StreamObserver<SearchReply> observer) -> {}, TestServiceGrpc.getSearchMethod());
+    }
+
+    ResponseEntity<StreamingResponseBody> export() throws JsonFormat.ParseException {
+      return _processStreaming("{}", ImmutableMap.of(), SearchRequest.newBuilder(),
+              (SearchRequest request, StreamObserver<SearchReply> observer) -> {}, TestServiceGrpc.getExportMethod(),
+              StreamingFormat.NDJSON);
+    }
+  }
+
+  @Test
+  public void testStreamingTimeout() throws Exception {
+    StalledController controller = new StalledController();
+    long start = System.nanoTime();
+    checkNotNull(controller.export().getBody()).writeTo(new ByteArrayOutputStream());
+    // the response ends by the timeout, and the call is cancelled
+    checkArgument(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+    checkArgument(controller.cancelled.await(10, TimeUnit.SECONDS));
+  }
+
+  /** A controller whose gRPC method never ends, and records the cancel. */
+  private static class StalledController extends BaseGrpcController {
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+
+    StalledController() {
+      setInterceptors(Lists.newArrayList());
+      setStreamingTimeout(200);
+    }
+
+    ResponseEntity<StreamingResponseBody> export() throws JsonFormat.ParseException {
+      return _processStreaming("{}", ImmutableMap.of(), SearchRequest.newBuilder(),
+              (SearchRequest request, StreamObserver<SearchReply> observer) ->
+                      ((ServerCallStreamObserver<SearchReply>) observer).setOnCancelHandler(cancelled::countDown),
+              TestServiceGrpc.getExportMethod(), StreamingFormat.NDJSON);
+    }
+  }
+
+  @Test
+  public void testStreamingController() throws IOException {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("auth", "auth");
+    headers.add("user-agent", "class");
+    String params = commonToJson(ImmutableMap.of("id", 3));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    checkNotNull(testRestfulController.export(params, headers, StreamingFormat.NDJSON).getBody()).writeTo(outputStream);
+    String[] lines = outputStream.toString("UTF-8").split("\n");
+    checkArgument(lines.length == 3 && fromJson(SearchReply.newBuilder(), lines[2]).getResult().equals("2"));
+
+    outputStream = new ByteArrayOutputStream();
+    checkNotNull(testRestfulController.export(params, headers, StreamingFormat.SSE).getBody()).writeTo(outputStream);
+    String[] events = outputStream.toString("UTF-8").split("\n\n");
+    checkArgument(events.length == 3 && events[0].startsWith("data: "));
+  }
+
+  @Test
+  public void testProtobufNegotiation() throws IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("auth", "auth");
+    request.addHeader("user-agent", "class");
+    request.addHeader("accept", "application/json;q=0.5, application/x-protobuf");
+    request.setContentType("application/x-protobuf");
+    request.setContent(SearchRequest.newBuilder().setId(7).build().toByteArray());
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    testRestfulController.restNegotiated(request, response);
+    checkArgument(response.getContentType().startsWith("application/x-protobuf"));
+    checkArgument(SearchReply.parseFrom(response.getContentAsByteArray()).getResult().contains("id: 7"));
+
+    request.removeHeader("accept");
+    request.addHeader("accept", "application/json");
+    request.setContentType("application/json");
+    request.setContent(commonToJson(ImmutableMap.of("id", 3)).getBytes(StandardCharsets.UTF_8));
+    response = new MockHttpServletResponse();
+    testRestfulController.exportNegotiated(request, response);
+    checkArgument(response.getContentAsString().startsWith("["));
+
+    request.removeHeader("accept");
+    request.addHeader("accept", "application/x-protobuf");
+    request.setContent(commonToJson(ImmutableMap.of("id", 3)).getBytes(StandardCharsets.UTF_8));
+    response = new MockHttpServletResponse();
+    testRestfulController.exportNegotiated(request, response);
+    ByteArrayInputStream inputStream = new ByteArrayInputStream(response.getContentAsByteArray());
+    int count = 0;
+    while (SearchReply.parseDelimitedFrom(inputStream) != null) {
+      count++;
+    }
+    checkArgument(count == 3);
+  }
+
+  @Test
+  public void testStreamJson() throws IOException {
+    Map<String, String> headers = ImmutableMap.of("auth", "auth", "user-agent", "class");
+    String json = "{\"id\": 5, \"unknown\": {\"a\": [1, \"b\"]}}";
+    String result = testRestfulController.restStream(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), headers);
+    checkArgument(result.equals(testRestfulController.rest("{\"id\": 5}", headers)));
+    // larger than the max inbound message size
+    StringBuilder builder = new StringBuilder("{\"id\": 5, \"unknown\": \"");
+    for (int i = 0; i < 5 * 1024 * 1024; i++) {
+      builder.append('x');
+    }
+    builder.append("\"}");
+    try {
+      testRestfulController.restStream(
+              new ByteArrayInputStream(builder.toString().getBytes(StandardCharsets.UTF_8)), headers);
+      throw new IllegalStateException("the limit is not enforced");
+    } catch (StatusRuntimeException e) {
+      checkArgument(e.getStatus().getCode() == Status.Code.RESOURCE_EXHAUSTED);
+    }
+  }
+
+  @Test
+  public void testJsonCodec() throws IOException {
+    JsonCodec compiled = new CompiledJsonCodec();
+    JsonCodec legacy = new LegacyJsonCodec();
+    byte[] bytes = new byte[256];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    List<Message> messages = Lists.newArrayList(
+            SearchRequest.newBuilder().setId(-7).build(),
+            SearchReply.getDefaultInstance(),
+            HttpRule.newBuilder()
+                    .setSelector("a\"b\\c\\a\\v\b\f\n\r\t\u0001\u001f 中文 \ud83d\ude00 end")
+                    .setCustom(CustomHttpPattern.newBuilder().setKind("kind").setPath("/path"))
+                    .addAdditionalBindings(HttpRule.newBuilder().setGet("/get"))
+                    .addAdditionalBindings(HttpRule.newBuilder().setPost("/post").setBody("*"))
+                    .build(),
+            Struct.newBuilder()
+                    .putFields("a", Value.newBuilder().setNumberValue(1.5).build())
+                    .putFields("b", Value.newBuilder().setListValue(ListValue.newBuilder()
+                            .addValues(Value.newBuilder().setBoolValue(true))
+                            .addValues(Value.newBuilder().setNullValue(NullValue.NULL_VALUE))).build())
+                    .build(),
+            UInt32Value.newBuilder().setValue(-1).build(),
+            UInt64Value.newBuilder().setValue(-1L).build(),
+            Int64Value.newBuilder().setValue(Long.MIN_VALUE).build(),
+            FloatValue.newBuilder().setValue(Float.NaN).build(),
+            DoubleValue.newBuilder().setValue(1e300).build(),
+            BytesValue.newBuilder().setValue(ByteString.copyFrom(bytes)).build(),
+            // extensions and unknown fields are printed by JsonFormat
+            SearchRequest.getDescriptor().getFile().toProto(),
+            Empty.parseFrom(SearchRequest.newBuilder().setId(3).build().toByteArray())
+    );
+    for (Message message : messages) {
+      String json = compiled.printToString(message);
+      checkArgument(json.equals(legacy.printToString(message)), json);
+      // extensions and unknown fields can not be parsed back
+      if (!(message instanceof DescriptorProtos.FileDescriptorProto || message instanceof Empty)) {
+        Message.Builder builder = message.newBuilderForType();
+        compiled.merge(json, builder);
+        checkArgument(builder.build().equals(message), json);
+      }
+    }
+  }
+
+  @Test
+  public void testTranscoding() throws Exception {
+    MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    MvcResult result = mockMvc.perform(post("/ms/test/search")
+            .header("auth", "auth")
+            .header("user-agent", "class")
+            .content(commonToJson(ImmutableMap.of("id", 1))))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    String json = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+    checkArgument(fromJson(SearchReply.newBuilder(), json).getResult().contains("id: 1"));
+
+    result = mockMvc.perform(get("/ms/test/export/2").param("exp", "1.5").header("auth", "auth").header("user-agent", "class"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[1].result").value("1"));
+
+    result = mockMvc.perform(get("/ms/test/export/a").header("auth", "auth").header("user-agent", "class"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+    result = mockMvc.perform(get("/ms/test/export/1")).andExpect(request().asyncStarted()).andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+  }
+
   @Test
   public void testMarshaller() throws JsonFormat.ParseException {
     SearchRequest searchRequest = SearchRequest.newBuilder().setId(1).addAllExp(Lists.newArrayList(2.0)).build();
@@ -123,6 +805,14 @@ public class TestCases {
     checkArgument(fromObjectButNot(SearchRequest.newBuilder(), data).getExp(0) == data.getExp().get(0));
     checkArgument(toObject(searchRequest, TestData.class).getId() == searchRequest.getId());
     data.setId(20);
+
+    // the direct mapping is the same as the json round trip
+    SearchRequest typed = searchRequest.toBuilder().addType(SearchType.B).addType(SearchType.C).build();
+    checkArgument(commonToJson(toObject(typed, TestData.class))
+            .equals(commonToJson(new Gson().fromJson(toJson(typed), TestData.class))));
+    data.setType(Lists.newArrayList(SearchType.C));
+    checkArgument(fromObjectButNot(SearchRequest.newBuilder(), data).build()
+            .equals(fromJsonButNot(SearchRequest.newBuilder(), commonToJson(data)).build()));
   }
 
   @Test
@@ -131,15 +821,518 @@ public class TestCases {
     classPathLoader.loadClasses("");
   }
 
+  @Test
+  public void testTransportResources() {
+    // the server and the channels of clients serve on the shared event loops
+    checkNotNull(testGrpcService.search(1, "auth").getResult());
+    checkArgument(Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().startsWith("grpc-worker")));
+    checkArgument(Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().startsWith("grpc-boss")));
+    checkArgument(!grpcTransportResources.getWorkerGroup().isShuttingDown());
+    // epoll is on the classpath of tests
+    NettyTransport transport = Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO;
+    checkArgument(grpcTransportResources.getTransport() == transport);
+  }
+
+  @Test
+  public void testLocalService() {
+    GrpcServerProperties properties = new GrpcServerProperties();
+    properties.setInProcessServerName("grpc-starter-test");
+    GrpcServiceConfig config = new GrpcServiceConfig();
+    config.setName("grpc.test");
+    config.setLocal(true);
+    config.setChannels(4);
+    LocalCreator creator = new LocalCreator();
+    creator.setGrpcServerProperties(properties);
+    ManagedChannel channel = creator.createChannel(config);
+    // one channel to the in-process server, not a pool
+    checkArgument(channel instanceof ReusableChannel);
+    testNoHeader(() -> TestServiceGrpc.newBlockingStub(channel).search(SearchRequest.newBuilder().setId(1).build()));
+    channel.shutdownNow();
+  }
+
+  /** A creator which only creates channels. */
+  static class LocalCreator extends GrpcClientCreator<Object> {
+    @Override
+    protected Class getStubClass() {
+      return TestServiceGrpc.TestServiceBlockingStub.class;
+    }
+
+    @Override
+    protected String getLogMethod() {
+      return "";
+    }
+
+    @Override
+    protected ManagedChannel createChannel(GrpcServiceConfig config) {
+      return super.createChannel(config);
+    }
+  }
+
+  @Test
+  public void testChannelSettings() throws Exception {
+    GrpcServiceConfig config = new GrpcServiceConfig();
+    config.setName("grpc.test");
+    config.setTarget("localhost:8006");
+    config.setKeepAliveTime(Duration.ofSeconds(30));
+    config.setKeepAliveTimeout(Duration.ofSeconds(5));
+    config.setKeepAliveWithoutCalls(true);
+    config.setIdleTimeout(Duration.ofMinutes(10));
+    config.setMaxInboundMessageSize(8388608);
+    config.setMaxInboundMetadataSize(16384);
+    config.setFlowControlWindow(2097152);
+    config.setCompression("gzip");
+    ChannelCreator creator = new ChannelCreator();
+    ManagedChannel channel = creator.createChannel(config);
+    // the compression is read from the options of a call, the others from the builder of channel
+    checkNotNull(channel.newCall(TestServiceGrpc.getSearchMethod(), CallOptions.DEFAULT));
+    checkArgument("gzip".equals(creator.callOptions.getCompressor()));
+    NettyChannelBuilder builder = creator.builders.get(0);
+    checkArgument(readField(builder, "keepAliveTimeNanos").equals(TimeUnit.SECONDS.toNanos(30)));
+    checkArgument(readField(builder, "keepAliveTimeoutNanos").equals(TimeUnit.SECONDS.toNanos(5)));
+    checkArgument(readField(builder, "keepAliveWithoutCalls").equals(true));
+    checkArgument(readField(builder, "idleTimeoutMillis").equals(TimeUnit.MINUTES.toMillis(10)));
+    checkArgument(readField(builder, "maxInboundMessageSize").equals(8388608));
+    checkArgument(readField(builder, "maxHeaderListSize").equals(16384));
+    checkArgument(readField(builder, "flowControlWindow").equals(2097152));
+    checkArgument(readField(builder, "negotiationType") == NegotiationType.PLAINTEXT);
+    channel.shutdownNow();
+    // TLS when not plaintext
+    config.setPlaintext(false);
+    creator.createChannel(config).shutdownNow();
+    checkArgument(readField(creator.builders.get(1), "negotiationType") == NegotiationType.TLS);
+    // the old hook is still called for a plain host and port with one channel, not for a target
+    LegacyCreator legacyCreator = new LegacyCreator();
+    legacyCreator.createChannel(config).shutdownNow();
+    checkArgument(legacyCreator.calls.get() == 0);
+    config.setTarget(null);
+    config.setHost("localhost");
+    config.setPort(8006);
+    legacyCreator.createChannel(config).shutdownNow();
+    checkArgument(legacyCreator.calls.get() == 1);
+    config.setChannels(2);
+    legacyCreator.createChannel(config).shutdownNow();
+    checkArgument(legacyCreator.calls.get() == 1);
+  }
+
+  @Test
+  public void testShutdownChannels() throws Exception {
+    GrpcServiceConfig config = new GrpcServiceConfig();
+    config.setName("grpc.own");
+    config.setTarget("localhost:8006");
+    config.setShareEventLoopGroup(false);
+    config.setEventLoopThreads(1);
+    ChannelCreator creator = new ChannelCreator();
+    creator.createChannel(config).shutdownNow();
+    @SuppressWarnings("unchecked")
+    EventLoopGroup group =
+            ((ObjectPool<EventLoopGroup>) readField(creator.builders.get(0), "eventLoopGroupPool")).getObject();
+    checkArgument(!group.isShuttingDown());
+    // the initializer of clients is destroyed after them, it shuts down all channels, then the own event loops
+    new GrpcClientsInitializer(Collections.emptyList()).destroy();
+    checkArgument(group.isTerminated());
+    // a client which is still used rebuilds its channel
+    checkNotNull(testGrpcService.search(1, "auth").getResult());
+  }
+
+  /**
+   * Read a field of a builder or its super classes.
+   * @param target  the builder
+   * @param name    the name of field
+   * @return  the value of field
+   */
+  private static Object readField(Object target, String name) throws ReflectiveOperationException {
+    for (Class<?> c = target.getClass(); c != null; c = c.getSuperclass()) {
+      try {
+        Field field = c.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+      } catch (NoSuchFieldException e) {
+        // read the super class
+      }
+    }
+    throw new NoSuchFieldException(name);
+  }
+
+  /** A creator which records the builders of channels and the options of calls. */
+  private static class ChannelCreator extends LocalCreator {
+    private final List<NettyChannelBuilder> builders = Lists.newArrayList();
+    private volatile CallOptions callOptions;
+
+    @Override
+    protected ManagedChannelBuilder<?> newChannelBuilder(String target, GrpcServiceConfig config) {
+      NettyChannelBuilder builder = (NettyChannelBuilder) super.newChannelBuilder(target, config);
+      builders.add(builder);
+      // intercepted before the interceptors of creator, so it is called after them
+      return builder.intercept(new ClientInterceptor() {
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+                MethodDescriptor<ReqT, RespT> method, CallOptions options, Channel next) {
+          callOptions = options;
+          return next.newCall(method, options);
+        }
+      });
+    }
+  }
+
+  /** A creator which still overrides the old hook, and counts its calls. */
+  private static class LegacyCreator extends LocalCreator {
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    @SuppressWarnings("deprecation")
+    protected ManagedChannel createChannel(String host, int port) {
+      calls.incrementAndGet();
+      return super.createChannel(host, port);
+    }
+  }
+
+  @Test
+  public void testProxyClassReused() throws Exception {
+    GrpcClientFactoryBean<TestGrpcService> factoryBean = new GrpcClientFactoryBean<>(TestGrpcService.class);
+    factoryBean.setGrpcServerProperties(grpcServerProperties);
+    factoryBean.setGrpcTransportResources(grpcTransportResources);
+    TestGrpcService client = factoryBean.getObject();
+    // the implement class is generated once, next to the interface
+    checkArgument(client != testGrpcService && client.getClass() == testGrpcService.getClass());
+    checkArgument(client.getClass().getClassLoader() == TestGrpcService.class.getClassLoader());
+    checkArgument(client.getClass().getPackage() == TestGrpcService.class.getPackage());
+  }
+
+  @Test
+  public void testParallelClients() {
+    // the clients of the same stub are created in parallel, on one stub and one implement class
+    List<TestGrpcService> clients = IntStream.range(0, 16).parallel().mapToObj(i -> {
+      GrpcClientFactoryBean<TestGrpcService> factoryBean = new GrpcClientFactoryBean<>(TestGrpcService.class);
+      factoryBean.setGrpcServerProperties(grpcServerProperties);
+      factoryBean.setGrpcTransportResources(grpcTransportResources);
+      try {
+        return factoryBean.getObject();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }).collect(Collectors.toList());
+    checkArgument(clients.stream().allMatch(client -> client.getClass() == testGrpcService.getClass()));
+    clients.forEach(client -> testNoHeader(() -> client.search(1)));
+  }
+
+  @Test
+  public void testScannedClients() throws Exception {
+    // the scanned clients are created together by GrpcClientsInitializer, getObject returns the prepared one
+    Map<String, GrpcClientFactoryBean> factoryBeans = beanFactory.getBeansOfType(GrpcClientFactoryBean.class);
+    checkArgument(factoryBeans.size() >= 3, factoryBeans.keySet());
+    for (GrpcClientFactoryBean<?> factoryBean : factoryBeans.values()) {
+      Object client = factoryBean.getObject();
+      checkArgument(client != null && client == readField(factoryBean, "object") && client == factoryBean.getObject(),
+              factoryBean.getObjectType());
+      checkArgument(client == beanFactory.getBean(factoryBean.getObjectType()), factoryBean.getObjectType());
+    }
+    // one stub of each stub class, all on one channel of the service
+    Object stub = readField(testGrpcService, "stub");
+    checkArgument(readField(detailGrpcService, "stub") == stub);
+    AbstractStub<?> queryStub = (AbstractStub<?>) readField(queryGrpcService, "stub");
+    checkArgument(queryStub != stub && queryStub.getChannel() == ((AbstractStub<?>) stub).getChannel());
+    checkNotNull(detailGrpcService.detail(1, "auth").getResult());
+  }
+
+  @Test
+  public void testClientsInitializerFallback() throws Exception {
+    DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+    beanFactory.registerSingleton("grpcServerProperties", grpcServerProperties);
+    beanFactory.registerSingleton("grpcTransportResources", grpcTransportResources);
+    for (Class<?> grpcInterface : Arrays.asList(TestGrpcService.class, DetailGrpcService.class, BrokenClient.class)) {
+      GenericBeanDefinition definition = new GenericBeanDefinition();
+      definition.setBeanClass(GrpcClientFactoryBean.class);
+      definition.getConstructorArgumentValues().addGenericArgumentValue(grpcInterface.getName());
+      definition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_BY_TYPE);
+      beanFactory.registerBeanDefinition(grpcInterface.getSimpleName(), definition);
+    }
+    beanFactory.registerSingleton("grpcClientsInitializer", new GrpcClientsInitializer(
+            Lists.newArrayList("TestGrpcService", "DetailGrpcService", "BrokenClient")));
+    beanFactory.getBean(GrpcClientsInitializer.class).setBeanFactory(beanFactory);
+    // the first client prepares the others
+    checkNotNull(beanFactory.getBean(TestGrpcService.class));
+    Object detailFactoryBean = beanFactory.getBean("&DetailGrpcService");
+    checkArgument(readField(detailFactoryBean, "object") == beanFactory.getBean(DetailGrpcService.class));
+    // a client which fails ahead is created again by its own bean, to throw its exception
+    checkArgument(readField(beanFactory.getBean("&BrokenClient"), "object") == null);
+    try {
+      beanFactory.getBean(BrokenClient.class);
+      throw new IllegalStateException("The broken client is created.");
+    } catch (BeanCreationException e) {
+      checkArgument(Throwables.getRootCause(e) instanceof NullPointerException, e);
+    }
+  }
+
+  /**
+   * The client without {@link com.yinxiang.microservice.grpc.inject.annotations.GrpcClient}, it can not be created.
+   */
+  interface BrokenClient {}
+
+  @Test
+  public void testReflectConfig() {
+    String config = GrpcClientSources.generateReflectConfig(TestGrpcService.class.getName(),
+            TestServiceGrpc.TestServiceBlockingStub.class);
+    // the generated class, the stub and the method of [serviceGrpc] which creates the stub are registered
+    checkArgument(config.contains(GrpcClientSources.getClassName(TestGrpcService.class.getName())));
+    checkArgument(config.contains(TestServiceGrpc.TestServiceBlockingStub.class.getName()));
+    checkArgument(config.contains("\"newBlockingStub\""));
+    checkArgument(new Gson().fromJson(config, List.class).size() == 4);
+  }
+
+  @Test
+  public void testClientsIndex() throws Exception {
+    // only the clients in the package are loaded, the class is not a candidate
+    Set<String> clients =
+            scanByIndex(TestGrpcService.class.getName(), TestService.class.getName(), "com.example.Missing");
+    checkArgument(clients.equals(Collections.singleton(TestGrpcService.class.getName())), clients);
+    // the classpath is not scanned in a native image
+    checkArgument(scanByIndex(TestService.class.getName()).isEmpty());
+  }
+
+  /**
+   * Register the clients of this package as in a native image, by an index of clients.
+   * @param clients the lines of index
+   * @return  the interfaces of registered clients
+   * @throws IOException  IOException
+   */
+  private static Set<String> scanByIndex(String... clients) throws IOException {
+    Path classes = Files.createTempDirectory("grpc-starter-index");
+    Path index = classes.resolve(GrpcClientSources.CLIENTS_INDEX);
+    Files.createDirectories(index.getParent());
+    Files.write(index, Arrays.asList(clients), StandardCharsets.UTF_8);
+    DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+    AutoConfigurationPackages.register(registry, TestCases.class.getPackage().getName());
+    AutoConfiguredGrpcClientScannerRegistrar registrar = new AutoConfiguredGrpcClientScannerRegistrar();
+    registrar.setBeanFactory(registry);
+    try (URLClassLoader classLoader =
+                 new URLClassLoader(new URL[]{classes.toUri().toURL()}, TestCases.class.getClassLoader())) {
+      registrar.setResourceLoader(new DefaultResourceLoader(classLoader));
+      System.setProperty("org.graalvm.nativeimage.imagecode", "runtime");
+      registrar.registerBeanDefinitions(new StandardAnnotationMetadata(TestCases.class), registry);
+    } finally {
+      System.clearProperty("org.graalvm.nativeimage.imagecode");
+      FileSystemUtils.deleteRecursively(classes);
+    }
+    // the interface is the argument of the factory bean
+    return Arrays.stream(registry.getBeanDefinitionNames())
+            .map(registry::getBeanDefinition)
+            .filter(definition -> GrpcClientFactoryBean.class.getName().equals(definition.getBeanClassName()))
+            .map(definition -> definition.getConstructorArgumentValues().getGenericArgumentValues().get(0).getValue())
+            .map(String.class::cast)
+            .collect(Collectors.toSet());
+  }
+
+  @Test
+  public void testChannelPoolRoundRobin() {
+    List<Integer> picks = Lists.newArrayList();
+    ChannelPool pool = new ChannelPool(ChannelPoolPolicy.ROUND_ROBIN,
+            new FakeChannel(0, picks, false), new FakeChannel(1, picks, false), new FakeChannel(2, picks, false));
+    // every channel in turn, whatever calls are active
+    for (int i = 0; i < 6; i++) {
+      pool.newCall(TestServiceGrpc.getSearchMethod(), CallOptions.DEFAULT)
+              .start(new ClientCall.Listener<SearchReply>() {}, new Metadata());
+    }
+    checkArgument(picks.equals(Lists.newArrayList(0, 1, 2, 0, 1, 2)));
+  }
+
+  @Test
+  public void testChannelPoolLeastCalls() {
+    List<Integer> picks = Lists.newArrayList();
+    FakeChannel[] channels = {new FakeChannel(0, picks, false), new FakeChannel(1, picks, false),
+            new FakeChannel(2, picks, false)};
+    ChannelPool pool = new ChannelPool(ChannelPoolPolicy.LEAST_CALLS, channels);
+    // ties are taken in turn, a call is only counted from start to close
+    pool.newCall(TestServiceGrpc.getSearchMethod(), CallOptions.DEFAULT);
+    startCall(pool);
+    startCall(pool);
+    startCall(pool);
+    checkArgument(picks.equals(Lists.newArrayList(0, 1, 2, 0)));
+    // every channel owns one active call until the call of channel 1 is closed
+    channels[1].listeners.get(0).onClose(Status.OK, new Metadata());
+    picks.clear();
+    pool.newCall(TestServiceGrpc.getSearchMethod(), CallOptions.DEFAULT);
+    // the turn is at channel 2, but channel 1 owns the least calls
+    startCall(pool);
+    checkArgument(picks.equals(Lists.newArrayList(1, 1)));
+  }
+
+  @Test
+  public void testChannelPoolFailedStart() {
+    List<Integer> picks = Lists.newArrayList();
+    ChannelPool pool = new ChannelPool(ChannelPoolPolicy.LEAST_CALLS,
+            new FakeChannel(0, picks, true), new FakeChannel(1, picks, false));
+    // the call of channel 0 fails to start and must not stay counted
+    try {
+      startCall(pool);
+      throw new IllegalStateException("start of channel 0 should fail");
+    } catch (IllegalArgumentException e) {
+      log.info("start failed: {}", e.getMessage());
+    }
+    startCall(pool);
+    pool.newCall(TestServiceGrpc.getSearchMethod(), CallOptions.DEFAULT);
+    // the turn starts from channel 1 which owns an active call, channel 0 owns none
+    pool.newCall(TestServiceGrpc.getSearchMethod(), CallOptions.DEFAULT);
+    checkArgument(picks.equals(Lists.newArrayList(0, 1, 0, 0)));
+  }
+
+  /**
+   * Create a call of the pool and start it.
+   * @param pool  ChannelPool
+   */
+  private static void startCall(ChannelPool pool) {
+    pool.newCall(TestServiceGrpc.getSearchMethod(), CallOptions.DEFAULT)
+            .start(new ClientCall.Listener<SearchReply>() {}, new Metadata());
+  }
+
+  /** A channel which records the calls it creates, its calls only keep their listeners. */
+  private static class FakeChannel extends ManagedChannel {
+    /** The index of channel in pool. */
+    private final int index;
+    /** The indexes of channels which create calls. */
+    private final List<Integer> picks;
+    /** True if the calls fail to start. */
+    private final boolean failStart;
+    /** The listeners of started calls. */
+    private final List<ClientCall.Listener<?>> listeners = Lists.newArrayList();
+
+    private FakeChannel(int index, List<Integer> picks, boolean failStart) {
+      this.index = index;
+      this.picks = picks;
+      this.failStart = failStart;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions options) {
+      picks.add(index);
+      return new ClientCall<ReqT, RespT>() {
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+          checkArgument(!failStart, "channel " + index + " fails to start.");
+          listeners.add(responseListener);
+        }
+
+        @Override
+        public void request(int numMessages) {}
+
+        @Override
+        public void cancel(String message, Throwable cause) {}
+
+        @Override
+        public void halfClose() {}
+
+        @Override
+        public void sendMessage(ReqT message) {}
+      };
+    }
+
+    @Override
+    public String authority() {
+      return "fake-" + index;
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+      return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+      return this;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+
   @Test
   public void testReusableChannel() {
-    checkArgument(!new ReusableChannel("localhost:8006").isShutdown());
+    AtomicInteger builds = new AtomicInteger();
+    ReusableChannel channel = new ReusableChannel("localhost:8006", () -> {
+      builds.incrementAndGet();
+      return ManagedChannelBuilder.forTarget("localhost:8006").usePlaintext();
+    });
+    checkArgument(!channel.isShutdown());
+    // a dead delegate is rebuilt once, all threads get a live one
+    channel.shutdownNow();
+    checkArgument(channel.isShutdown());
+    TestServiceGrpc.TestServiceBlockingStub stub =
+            StubHeadersProcessor.withHeader(TestServiceGrpc.newBlockingStub(channel), "auth", String.class, "auth");
+    IntStream.range(0, 64).parallel().forEach(i ->
+            checkNotNull(stub.search(SearchRequest.newBuilder().setId(i).build()).getResult()));
+    checkArgument(!channel.isShutdown() && builds.get() == 2);
+    channel.shutdownNow();
+  }
+
+  @Test
+  public void testLoadBalancing() {
+    List<String> addresses = Lists.newArrayList("localhost:8006", "127.0.0.1:8006;weight=2");
+    String target = StaticNameResolver.target("grpc.test");
+    for (LoadBalancingPolicy policy : LoadBalancingPolicy.values()) {
+      ReusableChannel channel = new ReusableChannel(target, () -> ManagedChannelBuilder.forTarget(target)
+              .nameResolverFactory(new StaticNameResolver.Factory(addresses))
+              .defaultLoadBalancingPolicy(policy.getPolicyName())
+              .usePlaintext());
+      checkArgument("localhost:8006".equals(channel.authority()));
+      // the server is reached by every policy, and rejects the call without headers
+      SearchRequest request = SearchRequest.newBuilder().setId(1).build();
+      IntStream.range(0, 8).forEach(i -> testNoHeader(() -> TestServiceGrpc.newBlockingStub(channel).search(request)));
+      channel.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFileNameResolver() throws Exception {
+    Path file = Files.createTempFile("grpc-test", ".addresses");
+    file.toFile().deleteOnExit();
+    // nothing listens on port 1
+    Files.write(file, Lists.newArrayList("# test service", "localhost:1"));
+    ReusableChannel channel = new ReusableChannel("file", () -> ManagedChannelBuilder.forTarget("file:///grpc.test")
+            .nameResolverFactory(new FileNameResolver.Factory(file))
+            .defaultLoadBalancingPolicy(LoadBalancingPolicy.ROUND_ROBIN.getPolicyName())
+            .usePlaintext());
+    checkArgument("grpc.test".equals(channel.authority()));
+    SearchRequest request = SearchRequest.newBuilder().setId(1).build();
+    try {
+      TestServiceGrpc.newBlockingStub(channel).withDeadlineAfter(1, TimeUnit.SECONDS).search(request);
+      throw new IllegalStateException("the call reached a server at port 1");
+    } catch (StatusRuntimeException e) {
+      checkArgument(e.getStatus().getCode() != INVALID_ARGUMENT);
+    }
+    // the new address is pushed to the live channel
+    Files.write(file, Lists.newArrayList("localhost:8006"));
+    Status.Code code = null;
+    for (int i = 0; i < 50 && code != INVALID_ARGUMENT; i++) {
+      try {
+        TestServiceGrpc.newBlockingStub(channel).withDeadlineAfter(1, TimeUnit.SECONDS).search(request);
+      } catch (StatusRuntimeException e) {
+        code = e.getStatus().getCode();
+      }
+      if (code != INVALID_ARGUMENT) {
+        Thread.sleep(200);
+      }
+    }
+    checkArgument(code == INVALID_ARGUMENT);
+    checkArgument(!channel.isShutdown());
+    channel.shutdownNow();
   }
 }
 
 class TestData {
   private int id;
   private List<Double> exp;
+  private List<SearchType> type;
 
   int getId() {
     return id;
@@ -156,4 +1349,30 @@ class TestData {
   void setExp(List<Double> exp) {
     this.exp = exp;
   }
+
+  List<SearchType> getType() {
+    return type;
+  }
+
+  void setType(List<SearchType> type) {
+    this.type = type;
+  }
+}
+
+class SearchResult {
+  private String result;
+  /** The thread which creates this object, not a field of message. */
+  private final transient String thread = Thread.currentThread().getName();
+
+  String getResult() {
+    return result;
+  }
+
+  void setResult(String result) {
+    this.result = result;
+  }
+
+  String getThread() {
+    return thread;
+  }
 }
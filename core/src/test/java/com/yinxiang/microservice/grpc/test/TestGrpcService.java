@@ -1,5 +1,6 @@
 package com.yinxiang.microservice.grpc.test;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.yinxiang.microservice.grpc.inject.LogSupplier;
 import com.yinxiang.microservice.grpc.inject.StubInterceptor;
 import com.yinxiang.microservice.grpc.inject.annotations.GrpcClient;
@@ -7,6 +8,10 @@ import com.yinxiang.microservice.grpc.inject.annotations.GrpcHeader;
 import com.yinxiang.microservice.grpc.inject.annotations.GrpcMethod;
 import com.yinxiang.microservice.grpc.inject.annotations.GrpcParam;
 import com.yinxiang.microservice.grpc.inject.header.StubHeadersProcessor;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -19,6 +24,24 @@ public interface TestGrpcService extends LogSupplier {
   SearchReply search(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String a);
   SearchReply search(@GrpcParam(param = "id") int id, StubInterceptor<TestServiceGrpc.TestServiceBlockingStub> interceptor);
   DetailReply detail(@GrpcParam(param = "id") int a, @GrpcHeader(name = "auth", type = String.class) String auth);
+  SearchReply search(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String a,
+                     @GrpcHeader(name = "x-request-id") String requestId,
+                     StubInterceptor<TestServiceGrpc.TestServiceBlockingStub> interceptor);
+  @GrpcMethod(method = "search")
+  CompletableFuture<SearchReply> searchAsync(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String a);
+  @GrpcMethod(method = "search")
+  CompletableFuture<String> searchJsonAsync(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String a);
+  @GrpcMethod(method = "search")
+  CompletableFuture<SearchResult> searchPojoAsync(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String a);
+  @GrpcMethod(method = "search", safe = true)
+  CompletableFuture<SearchReply> sAsync(@GrpcParam(param = "id") int id);
+  @GrpcMethod(method = "detail")
+  ListenableFuture<DetailReply> detailAsync(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String a);
+  @GrpcMethod(method = "export")
+  Stream<SearchReply> exportStream(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String a);
+  @GrpcMethod(method = "export")
+  Publisher<String> exportPublisher(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String a);
+  Publisher<SearchReply> chat(Publisher<SearchRequest> requests, @GrpcHeader(name = "auth") String a);
 
   default SearchReply searchWithLog(int id) {
     _log().info("will search with id: {}.", id);
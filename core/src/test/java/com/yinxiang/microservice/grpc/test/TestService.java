@@ -1,15 +1,26 @@
 package com.yinxiang.microservice.grpc.test;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.yinxiang.grpc.http.Headers;
 import com.yinxiang.microservice.grpc.GrpcService;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @GrpcService
 public class TestService extends TestServiceGrpc.TestServiceImplBase {
   private static final Logger log = LoggerFactory.getLogger(TestService.class);
+  /** id of the last export - the count of replies sent, one more after completed. */
+  private final Map<Integer, AtomicInteger> exportedCounts = Maps.newConcurrentMap();
+  /** The ids of exports which are cancelled. */
+  private final Set<Integer> cancelledExports = Sets.newConcurrentHashSet();
 
   @Override
   public void search(SearchRequest request, StreamObserver<SearchReply> responseObserver) {
@@ -30,4 +41,73 @@ public class TestService extends TestServiceGrpc.TestServiceImplBase {
     responseObserver.onNext(DetailReply.newBuilder().setResult(request.toString()).build());
     responseObserver.onCompleted();
   }
+
+  @Override
+  public void export(SearchRequest request, StreamObserver<SearchReply> responseObserver) {
+    Preconditions.checkArgument(request.hasHeaders());
+    log.info("Receive gRPC export request: {}.", request.getId());
+    if (!(responseObserver instanceof ServerCallStreamObserver)) {
+      // the observers of rest controllers
+      for (int i = 0; i < request.getId(); i++) {
+        responseObserver.onNext(SearchReply.newBuilder().setResult(String.valueOf(i)).build());
+      }
+      responseObserver.onCompleted();
+      return;
+    }
+    // send only when the call is ready, so the replies are sent by the demand of client
+    ServerCallStreamObserver<SearchReply> observer = (ServerCallStreamObserver<SearchReply>) responseObserver;
+    AtomicInteger exported = new AtomicInteger();
+    exportedCounts.put(request.getId(), exported);
+    observer.setOnCancelHandler(() -> cancelledExports.add(request.getId()));
+    Runnable drain = () -> {
+      while (observer.isReady() && exported.get() < request.getId()) {
+        observer.onNext(SearchReply.newBuilder().setResult(String.valueOf(exported.getAndIncrement())).build());
+      }
+      if (exported.get() == request.getId()) {
+        exported.incrementAndGet();
+        observer.onCompleted();
+      }
+    };
+    observer.setOnReadyHandler(drain);
+    drain.run();
+  }
+
+  /**
+   * Get the count of replies sent by the last export of an id.
+   * @param id  the id of export request
+   * @return  the count of replies
+   */
+  int getExported(int id) {
+    AtomicInteger exported = exportedCounts.get(id);
+    return exported == null ? 0 : Math.min(exported.get(), id);
+  }
+
+  /**
+   * Check an export is cancelled by the client.
+   * @param id  the id of export request
+   * @return  true if cancelled
+   */
+  boolean isExportCancelled(int id) {
+    return cancelledExports.contains(id);
+  }
+
+  @Override
+  public StreamObserver<SearchRequest> chat(StreamObserver<SearchReply> responseObserver) {
+    return new StreamObserver<SearchRequest>() {
+      @Override
+      public void onNext(SearchRequest request) {
+        responseObserver.onNext(SearchReply.newBuilder().setResult(String.valueOf(request.getId())).build());
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        log.warn("gRPC chat error: {}.", t.getMessage());
+      }
+
+      @Override
+      public void onCompleted() {
+        responseObserver.onCompleted();
+      }
+    };
+  }
 }
@@ -0,0 +1,116 @@
+package com.yinxiang.microservice.grpc.test;
+
+import com.yinxiang.microservice.grpc.autoconfigure.GrpcServerProperties;
+import com.yinxiang.microservice.grpc.inject.config.GrpcServiceConfig;
+import com.yinxiang.microservice.grpc.inject.header.StubHeadersProcessor;
+import com.yinxiang.microservice.grpc.transport.DomainSockets;
+import com.yinxiang.microservice.grpc.transport.GrpcTransportResources;
+import io.grpc.ManagedChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.unix.DomainSocketAddress;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The server and the clients on an unix domain socket, only on the hosts of epoll.
+ * <p>
+ *   The channels and stubs of clients are static, so this context runs in its own JVM(the unix-socket execution
+ *   of surefire), where the test-service is dialed by the socket instead of its addresses.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {TestCases.class}, properties = {
+        "grpc.unixSocketPath=${java.io.tmpdir}/grpc-starter-test.sock",
+        "grpc.services.test-service.target=unix://${java.io.tmpdir}/grpc-starter-test.sock"
+})
+public class UnixSocketTestCases {
+  @Autowired
+  private TestGrpcService testGrpcService;
+  @Autowired
+  private GrpcTransportResources grpcTransportResources;
+  @Autowired
+  private GrpcServerProperties grpcServerProperties;
+
+  @BeforeClass
+  public static void assumeEpoll() {
+    Assume.assumeTrue(Epoll.isAvailable());
+  }
+
+  @Test
+  public void testClient() {
+    // the test-service has its own event loops, they are epoll for the socket
+    checkNotNull(testGrpcService.search(1, "auth").getResult());
+    checkArgument(Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().startsWith("grpc-grpc.test")));
+  }
+
+  @Test
+  public void testSharedEventLoops() {
+    GrpcServiceConfig config = new GrpcServiceConfig();
+    config.setName("socket.shared");
+    config.setTarget("unix://" + grpcServerProperties.getUnixSocketPath());
+    TestCases.LocalCreator creator = new TestCases.LocalCreator();
+    creator.setGrpcTransportResources(grpcTransportResources);
+    ManagedChannel channel = creator.createChannel(config);
+    TestServiceGrpc.TestServiceBlockingStub stub =
+            StubHeadersProcessor.withHeader(TestServiceGrpc.newBlockingStub(channel), "auth", "auth");
+    checkNotNull(stub.search(SearchRequest.newBuilder().setId(1).build()).getResult());
+    // the shared event loops are epoll, no own ones
+    checkArgument(Thread.getAllStackTraces().keySet().stream().noneMatch(t -> t.getName().startsWith("grpc-socket")));
+    channel.shutdownNow();
+  }
+
+  @Test
+  public void testTargets() {
+    checkArgument(pathOf("unix:///tmp/grpc.sock").equals("/tmp/grpc.sock"));
+    checkArgument(pathOf("unix:/tmp/grpc.sock").equals("/tmp/grpc.sock"));
+    checkArgument(pathOf("unix:relative.sock").equals("relative.sock"));
+    // the authority is not a path
+    try {
+      DomainSockets.fromTarget("unix://relative.sock");
+      throw new IllegalStateException("The target without path is accepted.");
+    } catch (IllegalArgumentException e) {
+      checkArgument(e.getMessage().contains("unix:/abs"));
+    }
+  }
+
+  private static String pathOf(String target) {
+    return ((DomainSocketAddress) DomainSockets.fromTarget(target)).path();
+  }
+
+  @Test
+  public void testStaleSocket() throws IOException {
+    // a live socket is not taken over
+    Path socket = Paths.get(grpcServerProperties.getUnixSocketPath());
+    try {
+      DomainSockets.deleteStale(socket, grpcTransportResources.getWorkerGroup());
+      throw new IllegalStateException("The live socket is deleted.");
+    } catch (IllegalStateException e) {
+      checkArgument(Files.exists(socket) && e.getMessage().contains("another process"));
+    }
+    // a file which is not a socket is kept
+    Path file = Files.createTempFile("grpc-starter-test", ".sock");
+    try {
+      DomainSockets.deleteStale(file, grpcTransportResources.getWorkerGroup());
+      throw new IllegalStateException("The file is deleted.");
+    } catch (IllegalStateException e) {
+      checkArgument(Files.exists(file) && e.getMessage().contains("not a socket"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
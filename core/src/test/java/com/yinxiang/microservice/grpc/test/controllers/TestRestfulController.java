@@ -5,18 +5,29 @@ import com.google.common.base.Strings;
 import com.googlecode.protobuf.format.JsonFormat;
 import com.yinxiang.grpc.http.Headers;
 import com.yinxiang.microservice.grpc.controller.BaseGrpcController;
+import com.yinxiang.microservice.grpc.controller.StreamingFormat;
 import com.yinxiang.microservice.grpc.inject.Marshaller;
+import com.yinxiang.microservice.grpc.test.SearchReply;
 import com.yinxiang.microservice.grpc.test.SearchRequest;
 import com.yinxiang.microservice.grpc.test.TestCases;
 import com.yinxiang.microservice.grpc.test.TestServiceGrpc;
+import io.grpc.Context;
+import io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.yinxiang.microservice.grpc.inject.header.StubHeadersProcessor.createMetadata;
 
@@ -72,6 +83,42 @@ public class TestRestfulController extends BaseGrpcController {
     _processInterceptors(createMetadata(headers), metadata -> {}, TestServiceGrpc.getSearchMethod()).onMessage(request);
   }
 
+  @RequestMapping(value = "/rest7", method = RequestMethod.GET)
+  public String userAgent(@RequestHeader Map<String, String> headers) {
+    return _processHeadersAndDo(headers, Headers::getUSERAGENT);
+  }
+
+  @RequestMapping(value = "/rest8", method = RequestMethod.POST)
+  public CompletableFuture<String> restAsync(@RequestBody String params, @RequestHeader Map<String, String> headers)
+          throws JsonFormat.ParseException {
+    return _processAsync(params, headers, SearchRequest.newBuilder(), (SearchRequest request, StreamObserver<SearchReply> observer) ->
+            ForkJoinPool.commonPool().execute(Context.current().wrap((Runnable) () -> grpc.search(request, observer))), TestServiceGrpc.getSearchMethod());
+  }
+
+  @RequestMapping(value = "/rest9", method = RequestMethod.POST)
+  public void restNegotiated(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    _process(request, response, SearchRequest.newBuilder(), grpc::search, TestServiceGrpc.getSearchMethod());
+  }
+
+  @RequestMapping(value = "/rest10", method = RequestMethod.POST)
+  public String restStream(InputStream params, @RequestHeader Map<String, String> headers) throws IOException {
+    return _process(params, headers, SearchRequest.newBuilder(), grpc::search, TestServiceGrpc.getSearchMethod());
+  }
+
+  @RequestMapping(value = "/export2", method = RequestMethod.POST)
+  public void exportNegotiated(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    _process(request, response, SearchRequest.newBuilder(), grpc::export, TestServiceGrpc.getExportMethod());
+  }
+
+  @RequestMapping(value = "/export", method = RequestMethod.POST)
+  public ResponseEntity<StreamingResponseBody> export(
+          @RequestBody String params,
+          @RequestHeader MultiValueMap<String, String> headers,
+          StreamingFormat format
+  ) throws JsonFormat.ParseException {
+    return _processStreaming(params, headers, SearchRequest.newBuilder(), grpc::export, TestServiceGrpc.getExportMethod(), format);
+  }
+
   @RequestMapping(value = "/error1", method = RequestMethod.GET)
   public void error(@RequestBody String params, HttpServletResponse response) {
     SearchRequest request = Marshaller.fromJsonButNot(SearchRequest.newBuilder(), params).build();
@@ -0,0 +1,156 @@
+package com.yinxiang.microservice.grpc.processor;
+
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcClient;
+import com.yinxiang.microservice.grpc.inject.factories.ClientMethodInfo;
+import com.yinxiang.microservice.grpc.inject.factories.GrpcClientSources;
+import io.grpc.stub.AbstractStub;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * The annotation processor which generates the implement classes of the interfaces with {@link GrpcClient}.
+ * <p>
+ *   The same code as javassist generates at runtime is written to java source at build time, and the class is used
+ *   by GrpcClientProxyFactory instead of javassist, so the clients are not compiled on every startup.
+ *   The stub must be loadable by the processor, ex: in a dependency, an interface is skipped and generated by
+ *   javassist at runtime if its stub is compiled in the same module or can not be generated.
+ * </p>
+ * <p>
+ *   For GraalVM native image, a reflect-config.json is written with each generated class, and all interfaces of
+ *   the module are listed in {@link GrpcClientSources#CLIENTS_INDEX}, which is read instead of scanning classpath.
+ * </p>
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+@SupportedAnnotationTypes("com.yinxiang.microservice.grpc.inject.annotations.GrpcClient")
+public class GrpcClientProcessor extends AbstractProcessor {
+  /** The binary names of all interfaces with {@link GrpcClient} of all rounds. */
+  private final Set<String> clients = new TreeSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(GrpcClient.class)) {
+      if (element.getKind() == ElementKind.INTERFACE) {
+        clients.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+        generate((TypeElement) element);
+      }
+    }
+    if (roundEnv.processingOver() && !clients.isEmpty()) {
+      writeIndex();
+    }
+    return false;
+  }
+
+  /**
+   * Write {@link GrpcClientSources#CLIENTS_INDEX}, the interfaces are listed in order, one per line.
+   */
+  private void writeIndex() {
+    try (Writer writer = processingEnv.getFiler()
+            .createResource(StandardLocation.CLASS_OUTPUT, "", GrpcClientSources.CLIENTS_INDEX).openWriter()) {
+      for (String client : clients) {
+        writer.write(client);
+        writer.write('\n');
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+              "can not write " + GrpcClientSources.CLIENTS_INDEX + ": " + e);
+    }
+  }
+
+  /**
+   * Generate the implement class of an interface.
+   * @param grpcInterface the interface with {@link GrpcClient}
+   */
+  private void generate(TypeElement grpcInterface) {
+    GrpcClient grpcClient = grpcInterface.getAnnotation(GrpcClient.class);
+    String stubName = getStubName(grpcClient);
+    Class<? extends AbstractStub> stubClass;
+    try {
+      stubClass = Class.forName(stubName, false, getClass().getClassLoader()).asSubclass(AbstractStub.class);
+    } catch (ClassNotFoundException | LinkageError e) {
+      // javassist is not available in a native image, where this interface fails on startup
+      warn(grpcInterface, "the stub " + stubName + " is not loadable, generate by javassist at runtime");
+      return;
+    }
+    // the abstract methods, with the type arguments of the interface
+    DeclaredType interfaceType = (DeclaredType) grpcInterface.asType();
+    List<? extends Element> members = processingEnv.getElementUtils().getAllMembers(grpcInterface);
+    List<ClientMethodInfo> methods = ElementFilter.methodsIn(members).stream()
+            .filter(method -> method.getModifiers().contains(Modifier.ABSTRACT))
+            .map(method -> new MirrorMethodInfo(processingEnv, method, asMemberOf(interfaceType, method)))
+            .collect(Collectors.toList());
+    MirrorTypeInfo interfaceInfo = new MirrorTypeInfo(processingEnv, interfaceType);
+    try {
+      String source = GrpcClientSources.generate(interfaceInfo, methods, stubClass, grpcClient.logMethod());
+      String className = GrpcClientSources.getClassName(interfaceInfo.getName());
+      try (Writer writer = processingEnv.getFiler().createSourceFile(className, grpcInterface).openWriter()) {
+        writer.write(source);
+      }
+      // the reflection of generated class for native image
+      String reflectConfig = GrpcClientSources.generateReflectConfig(interfaceInfo.getName(), stubClass);
+      String reflectConfigName = GrpcClientSources.getReflectConfigName(interfaceInfo.getName());
+      try (Writer writer = processingEnv.getFiler()
+              .createResource(StandardLocation.CLASS_OUTPUT, "", reflectConfigName, grpcInterface).openWriter()) {
+        writer.write(reflectConfig);
+      }
+    } catch (Exception | LinkageError e) {
+      warn(grpcInterface, "can not generate the implement, generate by javassist at runtime: " + e);
+    }
+  }
+
+  /**
+   * Get the binary name of {@link GrpcClient#stub()}, the class member is only readable by its mirror.
+   * @param grpcClient  {@link GrpcClient}
+   * @return  binary name of stub
+   */
+  private String getStubName(GrpcClient grpcClient) {
+    try {
+      return grpcClient.stub().getName();
+    } catch (MirroredTypeException e) {
+      return new MirrorTypeInfo(processingEnv, e.getTypeMirror()).getName();
+    }
+  }
+
+  /**
+   * @param type    the interface
+   * @param method  a method of interface
+   * @return  {@link ExecutableType} of method as a member of type
+   */
+  private ExecutableType asMemberOf(DeclaredType type, ExecutableElement method) {
+    return (ExecutableType) processingEnv.getTypeUtils().asMemberOf(type, method);
+  }
+
+  /**
+   * Print a warning of an interface which is not generated.
+   * @param element the interface
+   * @param message message
+   */
+  private void warn(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+  }
+}
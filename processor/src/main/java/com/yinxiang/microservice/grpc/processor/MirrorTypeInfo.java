@@ -0,0 +1,245 @@
+package com.yinxiang.microservice.grpc.processor;
+
+import com.google.common.collect.Lists;
+import com.google.protobuf.Message;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcHeader;
+import com.yinxiang.microservice.grpc.inject.factories.ClientMethodInfo;
+import com.yinxiang.microservice.grpc.inject.factories.ClientParameterInfo;
+import com.yinxiang.microservice.grpc.inject.factories.ClientTypeInfo;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ClientTypeInfo} by the mirror of annotation processor, the type may be compiled in the same round.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class MirrorTypeInfo implements ClientTypeInfo {
+  /** The environment of annotation processor. */
+  private final ProcessingEnvironment env;
+  /** The utils of elements. */
+  private final Elements elements;
+  /** The utils of types. */
+  private final Types types;
+  /** The type. */
+  private final TypeMirror type;
+
+  MirrorTypeInfo(ProcessingEnvironment env, TypeMirror type) {
+    this.env = env;
+    this.elements = env.getElementUtils();
+    this.types = env.getTypeUtils();
+    this.type = type;
+  }
+
+  @Override
+  public String getName() {
+    TypeMirror erasure = erasure();
+    if (erasure.getKind() == TypeKind.DECLARED) {
+      return elements.getBinaryName(asTypeElement(erasure)).toString();
+    }
+    return getCanonicalName();
+  }
+
+  @Override
+  public String getCanonicalName() {
+    TypeMirror erasure = erasure();
+    switch (erasure.getKind()) {
+      case DECLARED:
+        return asTypeElement(erasure).getQualifiedName().toString();
+      case ARRAY:
+        return new MirrorTypeInfo(env, ((ArrayType) erasure).getComponentType()).getCanonicalName() + "[]";
+      default:
+        // primitive and void
+        return erasure.getKind().name().toLowerCase();
+    }
+  }
+
+  @Override
+  public String getGenericName() {
+    // a type variable is not declared in the generated class
+    return hasTypeVariable(type) ? getCanonicalName() : type.toString();
+  }
+
+  @Override
+  public boolean isSubtypeOf(Class<?> type) {
+    TypeElement element = elements.getTypeElement(type.getCanonicalName());
+    return element != null && types.isSubtype(erasure(), types.erasure(element.asType()));
+  }
+
+  /** @return  erasure of {@link #type}, primitive and void are themselves */
+  private TypeMirror erasure() {
+    return type.getKind().isPrimitive() || type.getKind() == TypeKind.VOID ? type : types.erasure(type);
+  }
+
+  /**
+   * @param type  a declared type
+   * @return  element of type
+   */
+  private static TypeElement asTypeElement(TypeMirror type) {
+    return (TypeElement) ((DeclaredType) type).asElement();
+  }
+
+  /**
+   * @param type  a type
+   * @return  true if type is or has a type variable
+   */
+  private static boolean hasTypeVariable(TypeMirror type) {
+    switch (type.getKind()) {
+      case TYPEVAR:
+        return true;
+      case ARRAY:
+        return hasTypeVariable(((ArrayType) type).getComponentType());
+      case WILDCARD:
+        WildcardType wildcard = (WildcardType) type;
+        return wildcard.getExtendsBound() != null && hasTypeVariable(wildcard.getExtendsBound()) ||
+                wildcard.getSuperBound() != null && hasTypeVariable(wildcard.getSuperBound());
+      case DECLARED:
+        return ((DeclaredType) type).getTypeArguments().stream().anyMatch(MirrorTypeInfo::hasTypeVariable);
+      default:
+        return false;
+    }
+  }
+}
+
+/**
+ * A {@link ClientParameterInfo} by the mirror of annotation processor.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class MirrorParameterInfo implements ClientParameterInfo {
+  /** The environment of annotation processor. */
+  private final ProcessingEnvironment env;
+  /** The parameter. */
+  private final VariableElement parameter;
+  /** The type of parameter, as member of the custom interface. */
+  private final TypeMirror type;
+
+  MirrorParameterInfo(ProcessingEnvironment env, VariableElement parameter, TypeMirror type) {
+    this.env = env;
+    this.parameter = parameter;
+    this.type = type;
+  }
+
+  @Override
+  public String getName() {
+    return parameter.getSimpleName().toString();
+  }
+
+  @Override
+  public ClientTypeInfo getType() {
+    return new MirrorTypeInfo(env, type);
+  }
+
+  @Override
+  public <A extends Annotation> A getAnnotation(Class<A> annotationClass) {
+    return parameter.getAnnotation(annotationClass);
+  }
+
+  @Override
+  public ClientTypeInfo getHeaderType() {
+    // the class member of annotation is only readable by its mirror
+    for (AnnotationMirror annotation : parameter.getAnnotationMirrors()) {
+      TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+      if (!annotationType.getQualifiedName().contentEquals(GrpcHeader.class.getCanonicalName())) {
+        continue;
+      }
+      Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+              env.getElementUtils().getElementValuesWithDefaults(annotation);
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+        if (entry.getKey().getSimpleName().contentEquals("type")) {
+          return new MirrorTypeInfo(env, (TypeMirror) entry.getValue().getValue());
+        }
+      }
+    }
+    return null;
+  }
+}
+
+/**
+ * A {@link ClientMethodInfo} by the mirror of annotation processor.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+class MirrorMethodInfo implements ClientMethodInfo {
+  /** The environment of annotation processor. */
+  private final ProcessingEnvironment env;
+  /** The method. */
+  private final ExecutableElement method;
+  /** The type of method, as member of the custom interface. */
+  private final ExecutableType type;
+
+  MirrorMethodInfo(ProcessingEnvironment env, ExecutableElement method, ExecutableType type) {
+    this.env = env;
+    this.method = method;
+    this.type = type;
+  }
+
+  @Override
+  public String getName() {
+    return method.getSimpleName().toString();
+  }
+
+  @Override
+  public ClientTypeInfo getReturnType() {
+    return new MirrorTypeInfo(env, type.getReturnType());
+  }
+
+  @Override
+  public ClientTypeInfo getValueType() {
+    TypeMirror returnType = type.getReturnType();
+    TypeMirror valueType = null;
+    if (returnType.getKind() == TypeKind.DECLARED && !((DeclaredType) returnType).getTypeArguments().isEmpty()) {
+      valueType = ((DeclaredType) returnType).getTypeArguments().get(0);
+      if (valueType.getKind() == TypeKind.WILDCARD) {
+        valueType = ((WildcardType) valueType).getExtendsBound();
+      }
+    }
+    if (valueType != null) {
+      valueType = env.getTypeUtils().erasure(valueType);
+    }
+    // same as the raw type of reflection, Message if it is raw or a wildcard
+    if (valueType == null || env.getTypeUtils().isSameType(valueType, elementType(Object.class))) {
+      valueType = elementType(Message.class);
+    }
+    return new MirrorTypeInfo(env, valueType);
+  }
+
+  @Override
+  public List<ClientParameterInfo> getParameters() {
+    List<? extends VariableElement> parameters = method.getParameters();
+    List<ClientParameterInfo> list = Lists.newArrayListWithCapacity(parameters.size());
+    for (int i = 0;i < parameters.size();i++) {
+      list.add(new MirrorParameterInfo(env, parameters.get(i), type.getParameterTypes().get(i)));
+    }
+    return list;
+  }
+
+  @Override
+  public <A extends Annotation> A getAnnotation(Class<A> annotationClass) {
+    return method.getAnnotation(annotationClass);
+  }
+
+  /**
+   * @param type  a class
+   * @return  erasure of the type of class
+   */
+  private TypeMirror elementType(Class<?> type) {
+    return env.getTypeUtils().erasure(env.getElementUtils().getTypeElement(type.getCanonicalName()).asType());
+  }
+}
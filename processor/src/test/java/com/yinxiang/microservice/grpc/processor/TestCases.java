@@ -0,0 +1,336 @@
+package com.yinxiang.microservice.grpc.processor;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.yinxiang.microservice.grpc.autoconfigure.GrpcServerProperties;
+import com.yinxiang.microservice.grpc.inject.config.GrpcServiceConfig;
+import com.yinxiang.microservice.grpc.inject.factories.GrpcClientSources;
+import com.yinxiang.microservice.grpc.inject.spring.GrpcClientFactoryBean;
+import com.yinxiang.microservice.grpc.test.SearchReply;
+import com.yinxiang.microservice.grpc.test.SearchRequest;
+import com.yinxiang.microservice.grpc.test.TestServiceGrpc;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Compile the clients in test resources by {@link GrpcClientProcessor}, and call the generated implements against
+ * an in-process server, the same as the implements which are generated by javassist at runtime.
+ * @author Huiyuan Fu
+ * @since 1.0.8
+ */
+public class TestCases {
+  /** The client of all shapes. */
+  private static final String CLIENT = "com.yinxiang.microservice.grpc.processor.clients.ProcessedClient";
+  /** The name of in-process server. */
+  private static final String SERVER_NAME = "grpc-processor-test";
+  /** The header auth. */
+  private static final Metadata.Key<String> AUTH_KEY = Metadata.Key.of("auth", Metadata.ASCII_STRING_MARSHALLER);
+  /** The header auth of current call. */
+  private static final Context.Key<String> AUTH = Context.key("auth");
+  private static Server server;
+  /** The class loaders of compiled clients. */
+  private static final List<URLClassLoader> loaders = Lists.newArrayList();
+  /** The classes which are compiled by the processor. */
+  private static Path generatedClasses;
+  /** The client which is generated by the processor. */
+  private static Object generatedClient;
+  /** The client which is generated by javassist. */
+  private static Object javassistClient;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    server = InProcessServerBuilder.forName(SERVER_NAME).directExecutor()
+            .addService(ServerInterceptors.intercept(new EchoService(), new AuthInterceptor())).build().start();
+    GrpcServiceConfig config = new GrpcServiceConfig();
+    config.setName("grpc.test");
+    config.setLocal(true);
+    GrpcServerProperties properties = new GrpcServerProperties();
+    properties.setInProcessServerName(SERVER_NAME);
+    properties.setServices(ImmutableMap.of("test-service", config));
+    // the same interface, compiled with and without the processor
+    generatedClasses = compile("ProcessedClient", true, new DiagnosticCollector<>());
+    generatedClient = createClient(generatedClasses, properties);
+    javassistClient = createClient(compile("ProcessedClient", false, new DiagnosticCollector<>()), properties);
+  }
+
+  @AfterClass
+  public static void tearDown() throws IOException {
+    for (URLClassLoader loader : loaders) {
+      loader.close();
+    }
+    server.shutdownNow();
+  }
+
+  @Test
+  public void testGeneratedClasses() throws IOException {
+    checkArgument(generatedClient.getClass().getName().equals(GrpcClientSources.getClassName(CLIENT)),
+            "not generated by the processor: %s", generatedClient.getClass());
+    checkArgument(javassistClient.getClass().getName().startsWith(CLIENT + "$$Impl"),
+            "not generated by javassist: %s", javassistClient.getClass());
+    // the index and the reflect-config.json for native image
+    List<String> clients = Files.readAllLines(generatedClasses.resolve(GrpcClientSources.CLIENTS_INDEX));
+    checkArgument(clients.equals(Collections.singletonList(CLIENT)), "wrong index: %s", clients);
+    Path reflectConfigPath = generatedClasses.resolve(GrpcClientSources.getReflectConfigName(CLIENT));
+    String reflectConfig = new String(Files.readAllBytes(reflectConfigPath), StandardCharsets.UTF_8);
+    checkArgument(reflectConfig.contains(GrpcClientSources.getClassName(CLIENT)), reflectConfig);
+  }
+
+  @Test
+  public void testShapes() throws Exception {
+    List<Object> expected = Arrays.asList(
+            // unary, by a parameter, a request and a builder
+            "search:1:null", "search:2:null", "search:3:null",
+            // header
+            "search:4:auth",
+            // safe
+            null, "search:5:null",
+            // future
+            "search:6:auth",
+            // streaming
+            Arrays.asList("export:0:auth", "export:1:auth", "export:2:auth"),
+            Arrays.asList("export:0:auth", "export:1:auth"));
+    List<Object> generated = callShapes(generatedClient);
+    checkArgument(generated.equals(expected), "generated by the processor: %s", generated);
+    List<Object> javassist = callShapes(javassistClient);
+    checkArgument(javassist.equals(expected), "generated by javassist: %s", javassist);
+    // an error which is not safe
+    for (Object client : Arrays.asList(generatedClient, javassistClient)) {
+      try {
+        call(client, "search", new Class<?>[]{int.class}, -1);
+        throw new IllegalStateException("The error is not thrown: " + client.getClass());
+      } catch (StatusRuntimeException e) {
+        checkArgument(e.getStatus().getCode() == Status.Code.INVALID_ARGUMENT, e.getStatus());
+      }
+    }
+  }
+
+  @Test
+  public void testNotLoadableStub() throws Exception {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    Path classes = compile("LocalStubClient", true, diagnostics);
+    // a native image can not generate it at runtime, so the build warns
+    checkArgument(diagnostics.getDiagnostics().stream().anyMatch(diagnostic ->
+                    diagnostic.getKind() == Diagnostic.Kind.WARNING &&
+                            diagnostic.getMessage(null).contains("is not loadable")),
+            "no warning: %s", diagnostics.getDiagnostics());
+    String className = GrpcClientSources.getClassName(CLIENT.replace("ProcessedClient", "LocalStubClient"));
+    checkArgument(!Files.exists(classes.resolve(className.replace('.', '/') + ".class")), className);
+  }
+
+  /**
+   * Call all shapes of the client.
+   * @param client  the client
+   * @return  the results of replies, in the order of shapes
+   * @throws Exception  Exception
+   */
+  private static List<Object> callShapes(Object client) throws Exception {
+    List<Object> results = Lists.newArrayList();
+    results.add(result(call(client, "search", new Class<?>[]{int.class}, 1)));
+    results.add(result(call(client, "search", new Class<?>[]{SearchRequest.class},
+            SearchRequest.newBuilder().setId(2).build())));
+    results.add(result(call(client, "search", new Class<?>[]{SearchRequest.Builder.class},
+            SearchRequest.newBuilder().setId(3))));
+    results.add(result(call(client, "search", new Class<?>[]{int.class, String.class}, 4, "auth")));
+    results.add(result(call(client, "safeSearch", new Class<?>[]{int.class}, -1)));
+    results.add(result(call(client, "safeSearch", new Class<?>[]{int.class}, 5)));
+    CompletableFuture<?> future =
+            (CompletableFuture<?>) call(client, "searchAsync", new Class<?>[]{int.class, String.class}, 6, "auth");
+    results.add(result(future.get(5, TimeUnit.SECONDS)));
+    Class<?>[] idAndAuth = {int.class, String.class};
+    try (Stream<?> stream = (Stream<?>) call(client, "exportStream", idAndAuth, 3, "auth")) {
+      results.add(stream.map(TestCases::result).collect(Collectors.toList()));
+    }
+    Publisher<?> publisher =
+            (Publisher<?>) call(client, "exportPublisher", new Class<?>[]{int.class, String.class}, 2, "auth");
+    results.add(subscribe(publisher).get(5, TimeUnit.SECONDS));
+    return results;
+  }
+
+  /**
+   * @param reply {@link SearchReply} or null
+   * @return  the result of reply, null if the reply is null
+   */
+  private static String result(Object reply) {
+    return reply == null ? null : ((SearchReply) reply).getResult();
+  }
+
+  /**
+   * Call a method of client, whose interface is only loaded by the class loader of its compilation.
+   * @param client          the client
+   * @param name            name of method
+   * @param parameterTypes  the types of parameters
+   * @param args            arguments
+   * @return  result
+   * @throws Exception  the exception of method
+   */
+  private static Object call(Object client, String name, Class<?>[] parameterTypes, Object... args) throws Exception {
+    Class<?> grpcInterface = client.getClass().getInterfaces()[0];
+    try {
+      return grpcInterface.getMethod(name, parameterTypes).invoke(client, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  /**
+   * Subscribe a {@link Publisher} and request all.
+   * @param publisher {@link Publisher}
+   * @return  the results of replies
+   */
+  private static CompletableFuture<List<String>> subscribe(Publisher<?> publisher) {
+    CompletableFuture<List<String>> future = new CompletableFuture<>();
+    List<String> results = Collections.synchronizedList(Lists.newArrayList());
+    publisher.subscribe(new Subscriber<Object>() {
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(Object value) {
+        results.add(result(value));
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        future.completeExceptionally(t);
+      }
+
+      @Override
+      public void onComplete() {
+        future.complete(results);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Compile a client in test resources.
+   * @param name        simple name of client
+   * @param process     true to run {@link GrpcClientProcessor}
+   * @param diagnostics collector of diagnostics
+   * @return  the directory of classes
+   * @throws IOException  IOException
+   */
+  private static Path compile(String name, boolean process, DiagnosticCollector<JavaFileObject> diagnostics)
+          throws IOException {
+    Path output = Paths.get("target", "test-clients", name + (process ? "-processed" : "-javassist"));
+    Files.createDirectories(output);
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager =
+                 compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+      Iterable<? extends JavaFileObject> sources = fileManager.getJavaFileObjects(
+              TestCases.class.getResource("/clients/" + name + ".java").getPath());
+      List<String> options =
+              Lists.newArrayList("-d", output.toString(), "-classpath", System.getProperty("java.class.path"));
+      if (!process) {
+        options.add("-proc:none");
+      }
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, sources);
+      if (process) {
+        task.setProcessors(Collections.singletonList(new GrpcClientProcessor()));
+      }
+      checkState(task.call(), "can not compile %s: %s", name, diagnostics.getDiagnostics());
+    }
+    return output;
+  }
+
+  /**
+   * Create a client which is compiled in a directory, by the factory bean of spring.
+   * @param classes     the directory of classes
+   * @param properties  {@link GrpcServerProperties}
+   * @return  the client
+   * @throws Exception  Exception
+   */
+  @SuppressWarnings("unchecked")
+  private static Object createClient(Path classes, GrpcServerProperties properties) throws Exception {
+    URLClassLoader loader =
+            new URLClassLoader(new URL[]{classes.toUri().toURL()}, TestCases.class.getClassLoader());
+    loaders.add(loader);
+    GrpcClientFactoryBean<Object> factoryBean = new GrpcClientFactoryBean<>((Class<Object>) loader.loadClass(CLIENT));
+    factoryBean.setGrpcServerProperties(properties);
+    return factoryBean.getObject();
+  }
+
+  /**
+   * The service which replies the id of request and the header auth.
+   */
+  private static class EchoService extends TestServiceGrpc.TestServiceImplBase {
+    @Override
+    public void search(SearchRequest request, StreamObserver<SearchReply> responseObserver) {
+      if (request.getId() < 0) {
+        responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("negative id").asRuntimeException());
+        return;
+      }
+      responseObserver.onNext(reply("search:" + request.getId()));
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void export(SearchRequest request, StreamObserver<SearchReply> responseObserver) {
+      for (int i = 0; i < request.getId(); i++) {
+        responseObserver.onNext(reply("export:" + i));
+      }
+      responseObserver.onCompleted();
+    }
+
+    private static SearchReply reply(String result) {
+      return SearchReply.newBuilder().setResult(result + ":" + AUTH.get()).build();
+    }
+  }
+
+  /**
+   * Put the header auth into the {@link Context} of call.
+   */
+  private static class AuthInterceptor implements ServerInterceptor {
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call,
+            Metadata headers,
+            ServerCallHandler<ReqT, RespT> next
+    ) {
+      return Contexts.interceptCall(Context.current().withValue(AUTH, headers.get(AUTH_KEY)), call, headers, next);
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.yinxiang.microservice.grpc.processor.clients;
+
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcClient;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcParam;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.stub.AbstractStub;
+
+/**
+ * The client whose stub is compiled with it, so the stub is not loadable by GrpcClientProcessor.
+ */
+@GrpcClient(stub = LocalStubClient.LocalStub.class)
+public interface LocalStubClient {
+  String search(@GrpcParam(param = "id") int id);
+
+  final class LocalStub extends AbstractStub<LocalStub> {
+    private LocalStub(Channel channel, CallOptions callOptions) {
+      super(channel, callOptions);
+    }
+
+    @Override
+    protected LocalStub build(Channel channel, CallOptions callOptions) {
+      return new LocalStub(channel, callOptions);
+    }
+  }
+}
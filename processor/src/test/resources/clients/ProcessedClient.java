@@ -0,0 +1,32 @@
+package com.yinxiang.microservice.grpc.processor.clients;
+
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcClient;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcHeader;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcMethod;
+import com.yinxiang.microservice.grpc.inject.annotations.GrpcParam;
+import com.yinxiang.microservice.grpc.test.SearchReply;
+import com.yinxiang.microservice.grpc.test.SearchRequest;
+import com.yinxiang.microservice.grpc.test.TestServiceGrpc;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * The client which is compiled by TestCases of the processor, with and without GrpcClientProcessor.
+ */
+@GrpcClient(stub = TestServiceGrpc.TestServiceBlockingStub.class)
+public interface ProcessedClient {
+  SearchReply search(@GrpcParam(param = "id") int id);
+  SearchReply search(SearchRequest request);
+  SearchReply search(SearchRequest.Builder builder);
+  SearchReply search(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String auth);
+  @GrpcMethod(method = "search", safe = true)
+  SearchReply safeSearch(@GrpcParam(param = "id") int id);
+  @GrpcMethod(method = "search")
+  CompletableFuture<SearchReply> searchAsync(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String auth);
+  @GrpcMethod(method = "export")
+  Stream<SearchReply> exportStream(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String auth);
+  @GrpcMethod(method = "export")
+  Publisher<SearchReply> exportPublisher(@GrpcParam(param = "id") int id, @GrpcHeader(name = "auth") String auth);
+}